@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.EventHandler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares posting events one by one with
+ * {@link EventBus#postAll(java.util.Collection)}. Results are per event.
+ * 
+ * @author mendlik
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchPostBenchmark {
+
+	private static final int BATCH_SIZE = 100;
+
+	public static class StringHandler {
+
+		private int count;
+
+		@EventHandler
+		public void handle(String event) {
+			count++;
+		}
+
+	}
+
+	private EventBus eventBus;
+
+	private final List<String> events = new ArrayList<String>();
+
+	@Setup
+	public void setUp() {
+		eventBus = EventBus.builder().withSyncDispatchStrategy()
+				.buildEventBus(new StringHandler());
+		for (int i = 0; i < BATCH_SIZE; ++i) {
+			events.add("event-" + i);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void post() {
+		for (String event : events) {
+			eventBus.post(event);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public void postAll() {
+		eventBus.postAll(events);
+	}
+
+}
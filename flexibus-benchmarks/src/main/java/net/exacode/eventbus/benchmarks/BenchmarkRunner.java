@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all benchmarks with GC profiler, so allocation rate of hot paths is
+ * reported next to the timings. {@link DispatchStrategyBenchmark} is run with
+ * 1 to N posting threads.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar
+ * net.exacode.eventbus.benchmarks.BenchmarkRunner [maxThreads]}
+ * 
+ * @author mendlik
+ * 
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException {
+		int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime
+				.getRuntime().availableProcessors();
+		String dispatchBenchmark = DispatchStrategyBenchmark.class
+				.getSimpleName();
+		new Runner(options().exclude(dispatchBenchmark).build()).run();
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			new Runner(options().include(dispatchBenchmark).threads(threads)
+					.build()).run();
+		}
+	}
+
+	private static ChainedOptionsBuilder options() {
+		return new OptionsBuilder().include(
+				BenchmarkRunner.class.getPackage().getName()).addProfiler(
+				GCProfiler.class);
+	}
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.benchmarks;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.EventHandler;
+import net.exacode.eventbus.dispatch.DispatchStrategy;
+import net.exacode.eventbus.dispatch.KeyExtractor;
+import net.exacode.eventbus.dispatch.LifecycleDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.AsyncDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.BlockingAsyncDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.BoundedAsyncDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.BoundedAsyncDispatchStrategy.OverflowPolicy;
+import net.exacode.eventbus.dispatch.concurrent.ConflatingDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.MailboxDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.PartitionedDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.RingBufferDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.SingleThreadedAsyncDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.SyncDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.VirtualThreadDispatchStrategy;
+import net.exacode.eventbus.dispatch.unique.EventUniqueDispatchStrategy;
+import net.exacode.eventbus.dispatch.unique.HandlerObjectUniqueDispatchStrategy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures end-to-end throughput of every shipped {@link DispatchStrategy}.
+ * Posting threads wait when too many events are not delivered yet, so
+ * asynchronous strategies are measured by their delivery rate, not by the
+ * rate of queueing. Number of posting threads is set with {@code -t}.
+ * <p>
+ * Decorating strategies wrap {@link SyncDispatchStrategy}, so they measure
+ * the cost of handler filtering. Conflating strategy uses every event as its
+ * own key. Events are never conflated, as posting threads wait for delivery
+ * of every event.
+ * 
+ * @author mendlik
+ * 
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchStrategyBenchmark {
+
+	private static final long MAX_IN_FLIGHT = 4096;
+
+	public enum StrategyType {
+		SYNC, SINGLE_THREADED, ASYNC, BLOCKING_ASYNC, RING_BUFFER, VIRTUAL_THREAD, MAILBOX, PARTITIONED, BOUNDED, CONFLATING, EVENT_UNIQUE, HANDLER_OBJECT_UNIQUE
+	}
+
+	public static class CountingHandler {
+
+		private final AtomicLong delivered;
+
+		public CountingHandler(AtomicLong delivered) {
+			this.delivered = delivered;
+		}
+
+		@EventHandler
+		public void handle(Long event) {
+			delivered.incrementAndGet();
+		}
+
+	}
+
+	private static final KeyExtractor IDENTITY = new KeyExtractor() {
+		@Override
+		public Object getKey(Object event) {
+			return event;
+		}
+	};
+
+	@Param
+	private StrategyType strategyType;
+
+	private final AtomicLong posted = new AtomicLong();
+
+	private final AtomicLong delivered = new AtomicLong();
+
+	private ExecutorService executor;
+
+	private DispatchStrategy strategy;
+
+	private EventBus eventBus;
+
+	@Setup
+	public void setUp() {
+		strategy = createStrategy();
+		eventBus = EventBus.builder().eventDispatchStrategy(strategy)
+				.buildEventBus(new CountingHandler(delivered));
+	}
+
+	@TearDown
+	public void tearDown() throws InterruptedException {
+		if (strategy instanceof LifecycleDispatchStrategy) {
+			LifecycleDispatchStrategy lifecycle = (LifecycleDispatchStrategy) strategy;
+			lifecycle.shutdown();
+			lifecycle.awaitTermination(10, TimeUnit.SECONDS);
+		}
+		if (executor != null) {
+			executor.shutdown();
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		}
+	}
+
+	@Benchmark
+	public void post() {
+		long sequence = posted.incrementAndGet();
+		eventBus.post(sequence);
+		while (sequence - delivered.get() > MAX_IN_FLIGHT) {
+			Thread.yield();
+		}
+	}
+
+	private DispatchStrategy createStrategy() {
+		int threads = Runtime.getRuntime().availableProcessors();
+		switch (strategyType) {
+		case SYNC:
+			return new SyncDispatchStrategy();
+		case SINGLE_THREADED:
+			return new SingleThreadedAsyncDispatchStrategy();
+		case ASYNC:
+			executor = Executors.newFixedThreadPool(threads);
+			return new AsyncDispatchStrategy(executor);
+		case BLOCKING_ASYNC:
+			return new BlockingAsyncDispatchStrategy();
+		case RING_BUFFER:
+			return new RingBufferDispatchStrategy();
+		case VIRTUAL_THREAD:
+			return new VirtualThreadDispatchStrategy();
+		case MAILBOX:
+			executor = Executors.newFixedThreadPool(threads);
+			return new MailboxDispatchStrategy(executor);
+		case PARTITIONED:
+			return new PartitionedDispatchStrategy(threads, IDENTITY);
+		case BOUNDED:
+			return new BoundedAsyncDispatchStrategy(threads, 1024,
+					OverflowPolicy.BLOCK, 0, TimeUnit.MILLISECONDS);
+		case CONFLATING:
+			executor = Executors.newFixedThreadPool(threads);
+			return new ConflatingDispatchStrategy(executor, IDENTITY);
+		case EVENT_UNIQUE:
+			return new EventUniqueDispatchStrategy(new SyncDispatchStrategy());
+		case HANDLER_OBJECT_UNIQUE:
+			return new HandlerObjectUniqueDispatchStrategy(
+					new SyncDispatchStrategy());
+		default:
+			throw new IllegalStateException("Unknown strategy: "
+					+ strategyType);
+		}
+	}
+
+}
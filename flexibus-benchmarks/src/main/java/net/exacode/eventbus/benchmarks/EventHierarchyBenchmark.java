@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.EventHandler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures posting of events with deep class hierarchies. Handlers are
+ * registered for the root class and one of interfaces, so the whole hierarchy
+ * of an event has to be flattened.
+ * <p>
+ * {@link #postToNewBus()} measures the first post of an event type, when
+ * handlers of the flattened hierarchy are resolved.
+ * 
+ * @author mendlik
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EventHierarchyBenchmark {
+
+	public interface Marker0 {
+	}
+
+	public interface Marker1 extends Marker0 {
+	}
+
+	public interface Marker2 {
+	}
+
+	public interface Marker3 extends Marker2 {
+	}
+
+	public static class Level0 {
+	}
+
+	public static class Level1 extends Level0 implements Marker0 {
+	}
+
+	public static class Level2 extends Level1 {
+	}
+
+	public static class Level3 extends Level2 implements Marker1 {
+	}
+
+	public static class Level4 extends Level3 {
+	}
+
+	public static class Level5 extends Level4 implements Marker2 {
+	}
+
+	public static class Level6 extends Level5 {
+	}
+
+	public static class Level7 extends Level6 implements Marker3 {
+	}
+
+	public static class Level8 extends Level7 {
+	}
+
+	public static class Level9 extends Level8 {
+	}
+
+	public static class Level10 extends Level9 {
+	}
+
+	public static class Level11 extends Level10 {
+	}
+
+	public static class Level12 extends Level11 {
+	}
+
+	public static class Level13 extends Level12 {
+	}
+
+	public static class Level14 extends Level13 {
+	}
+
+	public static class Level15 extends Level14 {
+	}
+
+	public static class HierarchyHandler {
+
+		private int count;
+
+		@EventHandler
+		public void handleRoot(Level0 event) {
+			count++;
+		}
+
+		@EventHandler
+		public void handleMarker(Marker0 event) {
+			count++;
+		}
+
+	}
+
+	private static final Object[] EVENTS = { new Level0(), new Level1(),
+			new Level2(), new Level3(), new Level4(), new Level5(),
+			new Level6(), new Level7(), new Level8(), new Level9(),
+			new Level10(), new Level11(), new Level12(), new Level13(),
+			new Level14(), new Level15() };
+
+	@Param({ "0", "3", "7", "15" })
+	private int depth;
+
+	private Object event;
+
+	private EventBus eventBus;
+
+	private HierarchyHandler handler;
+
+	@Setup
+	public void setUp() {
+		event = EVENTS[depth];
+		handler = new HierarchyHandler();
+		eventBus = newEventBus();
+	}
+
+	@Benchmark
+	public void post() {
+		eventBus.post(event);
+	}
+
+	@Benchmark
+	public EventBus postToNewBus() {
+		EventBus newEventBus = newEventBus();
+		newEventBus.post(event);
+		return newEventBus;
+	}
+
+	private EventBus newEventBus() {
+		return EventBus.builder().withSyncDispatchStrategy()
+				.buildEventBus(handler);
+	}
+
+}
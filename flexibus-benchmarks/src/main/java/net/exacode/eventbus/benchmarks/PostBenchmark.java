@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.EventHandler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures synchronous {@link EventBus#post(Object)} with different number of
+ * handlers, with and without handler metrics. Zero handlers measures dead
+ * event path.
+ * 
+ * @author mendlik
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PostBenchmark {
+
+	public static class StringHandler {
+
+		private int count;
+
+		@EventHandler
+		public void handle(String event) {
+			count++;
+		}
+
+	}
+
+	@Param({ "0", "1", "10", "100" })
+	private int handlerCount;
+
+	@Param({ "true", "false" })
+	private boolean metrics;
+
+	private EventBus eventBus;
+
+	@Setup
+	public void setUp() {
+		eventBus = EventBus.builder().withSyncDispatchStrategy()
+				.metricsEnabled(metrics).buildEventBus();
+		for (int i = 0; i < handlerCount; ++i) {
+			eventBus.register(new StringHandler());
+		}
+	}
+
+	@Benchmark
+	public void post() {
+		eventBus.post("event");
+	}
+
+}
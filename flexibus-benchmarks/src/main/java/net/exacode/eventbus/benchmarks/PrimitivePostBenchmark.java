@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.EventHandler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures posting of primitive events to handlers with primitive
+ * parameters. Run with GC profiler to see the cost of boxing.
+ * 
+ * @author mendlik
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrimitivePostBenchmark {
+
+	public static class PrimitiveHandler {
+
+		private long sum;
+
+		@EventHandler
+		public void handleInt(int event) {
+			sum += event;
+		}
+
+		@EventHandler
+		public void handleLong(long event) {
+			sum += event;
+		}
+
+		@EventHandler
+		public void handleDouble(double event) {
+			sum += (long) event;
+		}
+
+	}
+
+	private EventBus eventBus;
+
+	private int intEvent = 1000;
+
+	private long longEvent = 1000000L;
+
+	private double doubleEvent = 1000.5;
+
+	@Setup
+	public void setUp() {
+		eventBus = EventBus.builder().withSyncDispatchStrategy()
+				.buildEventBus(new PrimitiveHandler());
+	}
+
+	@Benchmark
+	public void postInt() {
+		eventBus.post(intEvent);
+	}
+
+	@Benchmark
+	public void postLong() {
+		eventBus.post(longEvent);
+	}
+
+	@Benchmark
+	public void postDouble() {
+		eventBus.post(doubleEvent);
+	}
+
+}
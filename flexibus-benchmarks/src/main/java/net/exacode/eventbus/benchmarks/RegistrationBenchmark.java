@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.EventHandler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures register/unregister churn, alone and with concurrent posting
+ * threads.
+ * 
+ * @author mendlik
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegistrationBenchmark {
+
+	public static class ChurnHandler {
+
+		private int count;
+
+		@EventHandler
+		public void handleString(String event) {
+			count++;
+		}
+
+		@EventHandler
+		public void handleInteger(Integer event) {
+			count++;
+		}
+
+	}
+
+	@Param({ "0", "100" })
+	private int registeredHandlerCount;
+
+	private EventBus eventBus;
+
+	@Setup
+	public void setUp() {
+		eventBus = EventBus.builder().withSyncDispatchStrategy()
+				.buildEventBus();
+		for (int i = 0; i < registeredHandlerCount; ++i) {
+			eventBus.register(new ChurnHandler());
+		}
+		eventBus.post("event");
+		eventBus.post(1);
+	}
+
+	@Benchmark
+	public void registerAndUnregister() {
+		ChurnHandler handler = new ChurnHandler();
+		eventBus.register(handler);
+		eventBus.unregister(handler);
+	}
+
+	@Benchmark
+	@Group("churnWhilePosting")
+	@GroupThreads(1)
+	public void churn() {
+		registerAndUnregister();
+	}
+
+	@Benchmark
+	@Group("churnWhilePosting")
+	@GroupThreads(3)
+	public void post() {
+		eventBus.post("event");
+	}
+
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates {@code HandlerIndex} of every concrete class with event handler
+ * methods, i.e. public methods annotated with {@code EventHandler} or with an
+ * annotation annotated with {@code EventHandler}. Inherited handler methods
+ * are indexed too.
+ * <p>
+ * Index of class {@code com.example.Listener} is generated as
+ * {@code com.example.Listener$$FlexibusIndex} and contains invokers that call
+ * handler methods directly. Indexes are used by
+ * {@code IndexedMethodHandlerFinder}.
+ * <p>
+ * Classes that cannot be referenced from their package (e.g. private nested
+ * classes) are not indexed and are scanned by reflection at runtime.
+ * 
+ * @author mendlik
+ * 
+ */
+@SupportedAnnotationTypes("*")
+public class HandlerIndexProcessor extends AbstractProcessor {
+
+	static final String EVENT_HANDLER = "net.exacode.eventbus.EventHandler";
+
+	static final String INDEX_SUFFIX = "$$FlexibusIndex";
+
+	private static final String HANDLER_INDEX = "net.exacode.eventbus.handler.HandlerIndex";
+
+	private static final String HANDLER_INDEX_ENTRY = "net.exacode.eventbus.handler.HandlerIndexEntry";
+
+	private static final String HANDLER_INVOKER = "net.exacode.eventbus.handler.HandlerInvoker";
+
+	/** handler method found in a listener class */
+	private static class HandlerMethod {
+
+		private final ExecutableElement method;
+
+		private final String annotationType;
+
+		private final TypeMirror parameterType;
+
+		HandlerMethod(ExecutableElement method, String annotationType,
+				TypeMirror parameterType) {
+			this.method = method;
+			this.annotationType = annotationType;
+			this.parameterType = parameterType;
+		}
+
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations,
+			RoundEnvironment roundEnv) {
+		for (TypeElement type : ElementFilter.typesIn(roundEnv
+				.getRootElements())) {
+			processType(type);
+		}
+		return false;
+	}
+
+	private void processType(TypeElement type) {
+		for (TypeElement nested : ElementFilter.typesIn(type
+				.getEnclosedElements())) {
+			processType(nested);
+		}
+		if (type.getKind() != ElementKind.CLASS
+				|| type.getModifiers().contains(Modifier.ABSTRACT)
+				|| !isAccessibleFromPackage(type)) {
+			return;
+		}
+		PackageElement packageElement = packageOf(type);
+		List<HandlerMethod> handlerMethods = new ArrayList<HandlerMethod>();
+		for (ExecutableElement method : ElementFilter.methodsIn(processingEnv
+				.getElementUtils().getAllMembers(type))) {
+			if (!method.getModifiers().contains(Modifier.PUBLIC)) {
+				// only public methods are event handlers
+				continue;
+			}
+			TypeElement annotationType = findHandlerAnnotation(method);
+			if (annotationType == null) {
+				continue;
+			}
+			if (method.getParameters().size() != 1) {
+				processingEnv.getMessager().printMessage(
+						Diagnostic.Kind.ERROR,
+						"Event handler method must require a single argument",
+						method);
+				return;
+			}
+			TypeMirror parameterType = processingEnv.getTypeUtils().erasure(
+					method.getParameters().get(0).asType());
+			if (!isAccessibleFrom(parameterType, packageElement)
+					|| !isAccessibleFrom(annotationType.asType(),
+							packageElement)) {
+				// index could not reference the types, leave the class to
+				// reflection
+				return;
+			}
+			handlerMethods.add(new HandlerMethod(method, annotationType
+					.getQualifiedName().toString(), parameterType));
+		}
+		if (!handlerMethods.isEmpty()) {
+			writeIndex(type, handlerMethods);
+		}
+	}
+
+	/**
+	 * @return annotation that marks the method as an event handler,
+	 *         {@code null} if the method is not an event handler
+	 */
+	private TypeElement findHandlerAnnotation(ExecutableElement method) {
+		for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+			TypeElement annotationType = (TypeElement) annotation
+					.getAnnotationType().asElement();
+			if (isEventHandler(annotationType)) {
+				return annotationType;
+			}
+			for (AnnotationMirror metaAnnotation : annotationType
+					.getAnnotationMirrors()) {
+				if (isEventHandler((TypeElement) metaAnnotation
+						.getAnnotationType().asElement())) {
+					return annotationType;
+				}
+			}
+		}
+		return null;
+	}
+
+	private boolean isEventHandler(TypeElement annotationType) {
+		return annotationType.getQualifiedName().contentEquals(EVENT_HANDLER);
+	}
+
+	private void writeIndex(TypeElement type, List<HandlerMethod> handlerMethods) {
+		String packageName = packageOf(type).getQualifiedName().toString();
+		String binaryName = processingEnv.getElementUtils()
+				.getBinaryName(type).toString();
+		String indexName = binaryName.substring(binaryName.lastIndexOf('.') + 1)
+				+ INDEX_SUFFIX;
+		String listenerType = type.getQualifiedName().toString();
+		StringBuilder source = new StringBuilder();
+		if (!packageName.isEmpty()) {
+			source.append("package ").append(packageName).append(";\n\n");
+		}
+		source.append("/**\n");
+		source.append(" * Handler index of {@link ").append(listenerType)
+				.append("}.\n");
+		source.append(" * Generated by ")
+				.append(HandlerIndexProcessor.class.getName())
+				.append(", do not edit.\n");
+		source.append(" */\n");
+		source.append("@SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n");
+		source.append("public final class ").append(indexName)
+				.append(" implements ").append(HANDLER_INDEX).append(" {\n\n");
+		source.append("\t@Override\n");
+		source.append("\tpublic ").append(HANDLER_INDEX_ENTRY)
+				.append("[] getEntries() {\n");
+		source.append("\t\treturn new ").append(HANDLER_INDEX_ENTRY)
+				.append("[] {\n");
+		for (HandlerMethod handlerMethod : handlerMethods) {
+			appendEntry(source, listenerType, handlerMethod);
+		}
+		source.append("\t\t};\n");
+		source.append("\t}\n\n");
+		source.append("}\n");
+		String indexQualifiedName = packageName.isEmpty() ? indexName
+				: packageName + "." + indexName;
+		try {
+			JavaFileObject file = processingEnv.getFiler().createSourceFile(
+					indexQualifiedName, type);
+			Writer writer = file.openWriter();
+			try {
+				writer.write(source.toString());
+			} finally {
+				writer.close();
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Could not write handler index: " + e, type);
+		}
+	}
+
+	private void appendEntry(StringBuilder source, String listenerType,
+			HandlerMethod handlerMethod) {
+		String methodName = handlerMethod.method.getSimpleName().toString();
+		TypeMirror parameterType = handlerMethod.parameterType;
+		String castType = parameterType.toString();
+		if (parameterType.getKind().isPrimitive()) {
+			castType = processingEnv.getTypeUtils()
+					.boxedClass((PrimitiveType) parameterType)
+					.getQualifiedName().toString();
+		}
+		String receiver = handlerMethod.method.getModifiers().contains(
+				Modifier.STATIC) ? listenerType : "((" + listenerType
+				+ ") target)";
+		source.append("\t\t\tnew ").append(HANDLER_INDEX_ENTRY).append("(")
+				.append(handlerMethod.annotationType).append(".class, \"")
+				.append(methodName).append("\", ").append(parameterType)
+				.append(".class,\n");
+		source.append("\t\t\t\t\tnew ").append(HANDLER_INVOKER)
+				.append("() {\n");
+		source.append("\t\t\t\t\t\t@Override\n");
+		source.append("\t\t\t\t\t\tpublic void invoke(Object target, Object event)\n");
+		source.append("\t\t\t\t\t\t\t\tthrows Throwable {\n");
+		source.append("\t\t\t\t\t\t\t").append(receiver).append(".")
+				.append(methodName).append("((").append(castType)
+				.append(") event);\n");
+		source.append("\t\t\t\t\t\t}\n");
+		source.append("\t\t\t\t\t}),\n");
+	}
+
+	private PackageElement packageOf(Element element) {
+		return processingEnv.getElementUtils().getPackageOf(element);
+	}
+
+	private boolean isAccessibleFromPackage(TypeElement type) {
+		Element element = type;
+		while (element instanceof TypeElement) {
+			TypeElement enclosing = (TypeElement) element;
+			if (enclosing.getModifiers().contains(Modifier.PRIVATE)
+					|| enclosing.getNestingKind() == NestingKind.LOCAL
+					|| enclosing.getNestingKind() == NestingKind.ANONYMOUS) {
+				return false;
+			}
+			element = enclosing.getEnclosingElement();
+		}
+		return true;
+	}
+
+	private boolean isAccessibleFrom(TypeMirror type, PackageElement from) {
+		if (type.getKind() == TypeKind.ARRAY) {
+			return isAccessibleFrom(((ArrayType) type).getComponentType(), from);
+		}
+		if (type.getKind() != TypeKind.DECLARED) {
+			return type.getKind().isPrimitive();
+		}
+		Element element = ((DeclaredType) type).asElement();
+		while (element instanceof TypeElement) {
+			Set<Modifier> modifiers = element.getModifiers();
+			if (modifiers.contains(Modifier.PRIVATE)) {
+				return false;
+			}
+			if (!modifiers.contains(Modifier.PUBLIC)
+					&& !packageOf(element).equals(from)) {
+				return false;
+			}
+			element = element.getEnclosingElement();
+		}
+		return true;
+	}
+
+}
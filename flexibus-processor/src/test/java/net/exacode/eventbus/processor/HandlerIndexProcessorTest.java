@@ -0,0 +1,216 @@
+package net.exacode.eventbus.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import net.exacode.eventbus.EventHandler;
+import net.exacode.eventbus.handler.HandlerIndex;
+import net.exacode.eventbus.handler.HandlerIndexEntry;
+import net.exacode.eventbus.handler.IndexedMethodHandlerFinder;
+import net.exacode.eventbus.handler.MethodHandler;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HandlerIndexProcessorTest {
+
+	private static final String LISTENER = "package example;\n"
+			+ "import java.util.List;\n"
+			+ "import java.util.ArrayList;\n"
+			+ "import net.exacode.eventbus.EventHandler;\n"
+			+ "public class Listener extends BaseListener {\n"
+			+ "	public final List<Object> events = new ArrayList<Object>();\n"
+			+ "	@EventHandler public void handleString(String event) { events.add(event); }\n"
+			+ "	@EventHandler public void handleInt(int event) { events.add(event); }\n"
+			+ "	@Custom public void handleList(List<String> event) { events.add(event); }\n"
+			+ "	public void notHandler(String event) { }\n"
+			+ "	@EventHandler void notPublic(String event) { }\n"
+			+ "	public static class Nested {\n"
+			+ "		@EventHandler public void handle(String event) { }\n"
+			+ "	}\n"
+			+ "	private static class Hidden {\n"
+			+ "		@EventHandler public void handle(String event) { }\n"
+			+ "	}\n"
+			+ "}\n";
+
+	private static final String BASE_LISTENER = "package example;\n"
+			+ "import net.exacode.eventbus.EventHandler;\n"
+			+ "public abstract class BaseListener {\n"
+			+ "	@EventHandler public void handleLong(Long event) { }\n"
+			+ "}\n";
+
+	private static final String CUSTOM = "package example;\n"
+			+ "import java.lang.annotation.*;\n"
+			+ "import net.exacode.eventbus.EventHandler;\n"
+			+ "@EventHandler\n"
+			+ "@Retention(RetentionPolicy.RUNTIME)\n"
+			+ "@Target(ElementType.METHOD)\n"
+			+ "public @interface Custom {\n"
+			+ "}\n";
+
+	private File directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("flexibus-processor").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		delete(directory);
+	}
+
+	@Test
+	public void shouldGenerateIndexOfConcreteAccessibleClasses()
+			throws Exception {
+		// when
+		List<String> errors = compile(LISTENER, BASE_LISTENER, CUSTOM);
+
+		// then
+		Assertions.assertThat(errors).isEmpty();
+		Assertions.assertThat(
+				new File(directory, "example/Listener$$FlexibusIndex.class"))
+				.exists();
+		Assertions.assertThat(
+				new File(directory,
+						"example/Listener$Nested$$FlexibusIndex.class"))
+				.exists();
+		Assertions.assertThat(
+				new File(directory,
+						"example/Listener$Hidden$$FlexibusIndex.class"))
+				.doesNotExist();
+		Assertions.assertThat(
+				new File(directory, "example/BaseListener$$FlexibusIndex.class"))
+				.doesNotExist();
+	}
+
+	@Test
+	public void shouldIndexInheritedAndMetaAnnotatedHandlerMethods()
+			throws Exception {
+		// given
+		compile(LISTENER, BASE_LISTENER, CUSTOM);
+		ClassLoader classLoader = classLoader();
+
+		// when
+		HandlerIndex index = (HandlerIndex) classLoader
+				.loadClass("example.Listener$$FlexibusIndex")
+				.getDeclaredConstructor().newInstance();
+
+		// then
+		List<String> methodNames = new ArrayList<String>();
+		for (HandlerIndexEntry entry : index.getEntries()) {
+			methodNames.add(entry.getMethodName());
+		}
+		Collections.sort(methodNames);
+		Assertions.assertThat(methodNames).containsExactly("handleInt",
+				"handleList", "handleLong", "handleString");
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void shouldInvokeHandlerMethodsThroughIndex() throws Exception {
+		// given
+		compile(LISTENER, BASE_LISTENER, CUSTOM);
+		Class<?> listenerClass = classLoader().loadClass("example.Listener");
+		Object listener = listenerClass.getDeclaredConstructor().newInstance();
+		IndexedMethodHandlerFinder<EventHandler> finder = new IndexedMethodHandlerFinder<EventHandler>(
+				EventHandler.class);
+
+		// when
+		Map<Class<?>, Set<MethodHandler>> handlers = finder
+				.findHandlerMethods(listener);
+		handlers.get(String.class).iterator().next().handleEvent("event");
+		handlers.get(Integer.class).iterator().next().handleEvent(1);
+		handlers.get(List.class).iterator().next()
+				.handleEvent(Arrays.asList("a"));
+
+		// then
+		Assertions.assertThat(finder.isIndexed(listenerClass)).isTrue();
+		Assertions.assertThat(handlers.keySet()).containsOnly(String.class,
+				Integer.class, Long.class, List.class);
+		Assertions.assertThat(
+				(List<Object>) listenerClass.getField("events").get(listener))
+				.containsExactly("event", 1, Arrays.asList("a"));
+	}
+
+	@Test
+	public void shouldReportHandlerMethodWithManyParameters()
+			throws Exception {
+		// when
+		List<String> errors = compile("package example;\n"
+				+ "import net.exacode.eventbus.EventHandler;\n"
+				+ "public class Invalid {\n"
+				+ "	@EventHandler public void handle(String a, String b) { }\n"
+				+ "}\n");
+
+		// then
+		Assertions.assertThat(errors).containsExactly(
+				"Event handler method must require a single argument");
+	}
+
+	private List<String> compile(String... sources) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(
+				diagnostics, null, StandardCharsets.UTF_8);
+		List<File> files = new ArrayList<File>();
+		for (String source : sources) {
+			String name = source.replaceAll("(?s).*public (abstract )?"
+					+ "(class|@interface) (\\w+).*", "$3");
+			File file = new File(directory, "example/" + name + ".java");
+			file.getParentFile().mkdirs();
+			Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+			files.add(file);
+		}
+		JavaCompiler.CompilationTask task = compiler.getTask(null,
+				fileManager, diagnostics, Arrays.asList("-d",
+						directory.getPath(), "-classpath",
+						System.getProperty("java.class.path")), null,
+				fileManager.getJavaFileObjectsFromFiles(files));
+		task.setProcessors(Arrays.asList(new HandlerIndexProcessor()));
+		task.call();
+		fileManager.close();
+		List<String> errors = new ArrayList<String>();
+		for (javax.tools.Diagnostic<? extends JavaFileObject> diagnostic : diagnostics
+				.getDiagnostics()) {
+			if (diagnostic.getKind() == javax.tools.Diagnostic.Kind.ERROR) {
+				errors.add(diagnostic.getMessage(null));
+			}
+		}
+		return errors;
+	}
+
+	private ClassLoader classLoader() throws IOException {
+		return new URLClassLoader(new URL[] { directory.toURI().toURL() },
+				getClass().getClassLoader());
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks event handler method that receives events in batches. The method
+ * accepts a single {@link java.util.List} parameter, element type of the list
+ * is the type of handled events.
+ * <p>
+ * Events are accumulated per handler object and delivered on a background
+ * thread when {@link #maxSize()} events are collected or when
+ * {@link #maxLingerMillis()} elapses since the first event of the batch.
+ * Batches of a handler object are delivered one at a time, in posting order.
+ * 
+ * <pre>
+ * &#064;BatchEventHandler(maxSize = 500, maxLingerMillis = 20)
+ * public void store(List&lt;OrderEvent&gt; events) {
+ * 	repository.saveAll(events);
+ * }
+ * </pre>
+ * 
+ * @author mendlik
+ * 
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@EventHandler
+public @interface BatchEventHandler {
+
+	/**
+	 * @return maximal number of events in a batch
+	 */
+	int maxSize() default 100;
+
+	/**
+	 * @return maximal time in milliseconds an event waits for its batch to be
+	 *         delivered
+	 */
+	long maxLingerMillis() default 10;
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus;
+
+import net.exacode.eventbus.exception.ExceptionHandler;
+
+/**
+ * Records exceptions of handler methods in the future returned by
+ * {@link EventBus#postAsync(Object)} or a request method and passes them to another
+ * {@link ExceptionHandler}. Handler methods found by default finding
+ * strategies of {@link EventBus#builder()} report exceptions through it.
+ * 
+ * @author mendlik
+ * 
+ */
+public class CompletionExceptionHandler implements ExceptionHandler {
+
+	private final ExceptionHandler delegate;
+
+	public CompletionExceptionHandler(ExceptionHandler delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void handle(Throwable e) {
+		PostCompletion<?> completion = PostCompletion.current();
+		if (completion != null) {
+			completion.fail(e);
+		}
+		delegate.handle(e);
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus;
+
+/**
+ * Wraps an event that was posted, but was dropped by a
+ * {@link net.exacode.eventbus.dispatch.DispatchStrategy} because its queue was
+ * full.
+ * <p>
+ * Dropped events are posted to the same {@link EventBus}. A DroppedEvent that
+ * can not be delivered is not reposted again.
+ * 
+ * @author mendlik
+ */
+public class DroppedEvent {
+
+	private final Object event;
+
+	/**
+	 * Creates a new DroppedEvent.
+	 * 
+	 * @param event
+	 *            the event that was dropped.
+	 */
+	public DroppedEvent(Object event) {
+		this.event = event;
+	}
+
+	/**
+	 * Returns the wrapped, 'dropped' event, which was not delivered to its
+	 * handlers.
+	 * 
+	 * @return the 'dropped' event.
+	 */
+	public Object getEvent() {
+		return event;
+	}
+
+}
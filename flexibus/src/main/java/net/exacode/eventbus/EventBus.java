@@ -16,19 +16,33 @@
  */
 package net.exacode.eventbus;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Set;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import net.exacode.eventbus.builder.DeadEventLoggingHandler;
 import net.exacode.eventbus.builder.EventBusBuilder;
 import net.exacode.eventbus.dispatch.DispatchStrategy;
+import net.exacode.eventbus.dispatch.EventBusAware;
 import net.exacode.eventbus.dispatch.concurrent.SingleThreadedAsyncDispatchStrategy;
 import net.exacode.eventbus.dispatch.concurrent.SyncDispatchStrategy;
+import net.exacode.eventbus.exception.EventHandlingException;
+import net.exacode.eventbus.exception.ExceptionLoggingHandler;
 import net.exacode.eventbus.handler.AnnotatedMethodHandlerFinder;
 import net.exacode.eventbus.handler.MethodHandler;
 import net.exacode.eventbus.handler.MethodHandlerFinder;
+import net.exacode.eventbus.jfr.FlightRecording;
+import net.exacode.eventbus.metrics.EventBusMetrics;
+import net.exacode.eventbus.metrics.InstrumentedMethodHandlerFinder;
 
 /**
  * Dispatches events to listeners, and provides ways for listeners to register
@@ -108,23 +122,93 @@ import net.exacode.eventbus.handler.MethodHandlerFinder;
  */
 public class EventBus {
 
-	/** simple struct representing an event and it's subscriber */
-	private static class HandlerWithEvent {
-		final Object event;
-		final Collection<MethodHandler> handlers;
-		final DispatchStrategy dispatchStrategy;
-
-		public HandlerWithEvent(Object event,
-				Collection<MethodHandler> handlers,
-				DispatchStrategy dispatchStrategy) {
-			this.event = event;
-			this.handlers = handlers;
-			this.dispatchStrategy = dispatchStrategy;
+	/**
+	 * Per-thread queue of events waiting for dispatch. Events and their
+	 * handlers are kept in parallel ring buffers, that are reused by
+	 * subsequent posts, so steady-state posting does not allocate.
+	 */
+	private static final class DispatchQueue {
+
+		private static final int INITIAL_CAPACITY = 16;
+
+		/**
+		 * Buffers that grew above this capacity are released after dispatch.
+		 */
+		private static final int MAX_RETAINED_CAPACITY = 1024;
+
+		/** true if the current thread is currently dispatching an event */
+		boolean dispatching;
+
+		private Object[] events = new Object[INITIAL_CAPACITY];
+
+		private Object[] handlers = new Object[INITIAL_CAPACITY];
+
+		private int head;
+
+		private int size;
+
+		void offer(Object event, List<MethodHandler> eventHandlers) {
+			if (size == events.length) {
+				grow();
+			}
+			int tail = (head + size) & (events.length - 1);
+			events[tail] = event;
+			handlers[tail] = eventHandlers;
+			++size;
 		}
 
-		public void execute() {
-			dispatchStrategy.dispatchEvent(event, handlers);
+		/**
+		 * Dispatches queued events. Events queued during the dispatch are
+		 * dispatched as well.
+		 */
+		@SuppressWarnings("unchecked")
+		void drain(DispatchStrategy dispatchStrategy) {
+			while (size > 0) {
+				Object event = events[head];
+				List<MethodHandler> eventHandlers = (List<MethodHandler>) handlers[head];
+				events[head] = null;
+				handlers[head] = null;
+				head = (head + 1) & (events.length - 1);
+				--size;
+				dispatchStrategy.dispatchEvent(event, eventHandlers);
+			}
+		}
+
+		/**
+		 * Drops queued events left by a failed dispatch and releases oversized
+		 * buffers.
+		 */
+		void reset() {
+			if (events.length > MAX_RETAINED_CAPACITY) {
+				events = new Object[INITIAL_CAPACITY];
+				handlers = new Object[INITIAL_CAPACITY];
+			} else {
+				while (size > 0) {
+					events[head] = null;
+					handlers[head] = null;
+					head = (head + 1) & (events.length - 1);
+					--size;
+				}
+			}
+			head = 0;
+			size = 0;
+			dispatching = false;
+		}
+
+		private void grow() {
+			int capacity = events.length;
+			Object[] newEvents = new Object[capacity << 1];
+			Object[] newHandlers = new Object[capacity << 1];
+			int firstPart = capacity - head;
+			System.arraycopy(events, head, newEvents, 0, firstPart);
+			System.arraycopy(events, 0, newEvents, firstPart, head);
+			System.arraycopy(handlers, head, newHandlers, 0, firstPart);
+			System.arraycopy(handlers, 0, newHandlers, firstPart, head);
+			events = newEvents;
+			handlers = newHandlers;
+			head = 0;
 		}
+
 	}
 
 	public static EventBusBuilder builder() {
@@ -137,19 +221,16 @@ public class EventBus {
 
 	private final DispatchStrategy dispatchStrategy;
 
-	/** true if the current thread is currently dispatching an event */
-	private final ThreadLocal<Boolean> isDispatching = new ThreadLocal<Boolean>() {
-		@Override
-		protected Boolean initialValue() {
-			return false;
-		}
-	};
+	private final EventBusMetrics metrics;
+
+	/** number of posted events without handlers */
+	final LongAdder deadEventCount = new LongAdder();
 
 	/** queues of events for the current thread to dispatch */
-	private final ThreadLocal<Queue<HandlerWithEvent>> eventsToDispatch = new ThreadLocal<Queue<HandlerWithEvent>>() {
+	private final ThreadLocal<DispatchQueue> eventsToDispatch = new ThreadLocal<DispatchQueue>() {
 		@Override
-		protected Queue<HandlerWithEvent> initialValue() {
-			return new LinkedList<HandlerWithEvent>();
+		protected DispatchQueue initialValue() {
+			return new DispatchQueue();
 		}
 	};
 
@@ -157,16 +238,33 @@ public class EventBus {
 		this.id = EventBus.class.getSimpleName();
 		this.handlerRegistry = new HandlerRegistry(
 				new AnnotatedMethodHandlerFinder<EventHandler>(
-						EventHandler.class));
+						EventHandler.class, new CompletionExceptionHandler(
+								new ExceptionLoggingHandler())));
 		this.dispatchStrategy = new SingleThreadedAsyncDispatchStrategy();
+		this.metrics = EventBusMetrics.disabled();
 		this.register(new DeadEventLoggingHandler());
 	}
 
 	public EventBus(String logId, MethodHandlerFinder methodHandlerFinder,
 			DispatchStrategy eventDispatchStrategy) {
+		this(logId, methodHandlerFinder, eventDispatchStrategy,
+				EventBusMetrics.disabled());
+	}
+
+	/**
+	 * @param metrics
+	 *            metrics recorded by {@code methodHandlerFinder}, see
+	 *            {@link InstrumentedMethodHandlerFinder}
+	 */
+	public EventBus(String logId, MethodHandlerFinder methodHandlerFinder,
+			DispatchStrategy eventDispatchStrategy, EventBusMetrics metrics) {
 		this.id = logId;
+		this.metrics = metrics;
 		this.handlerRegistry = new HandlerRegistry(methodHandlerFinder);
 		this.dispatchStrategy = eventDispatchStrategy;
+		if (eventDispatchStrategy instanceof EventBusAware) {
+			((EventBusAware) eventDispatchStrategy).setEventBus(this);
+		}
 	}
 
 	/**
@@ -194,18 +292,322 @@ public class EventBus {
 		if (event == null) {
 			return;
 		}
-		Set<MethodHandler> handlerMethods = handlerRegistry
+		Object postEvent = FlightRecording.beginPost();
+		List<MethodHandler> handlerMethods = handlerRegistry
+				.findEventHandlerMethods(event.getClass());
+		try {
+			DispatchQueue queue = eventsToDispatch.get();
+			boolean dispatched = false;
+			if (!handlerMethods.isEmpty()) {
+				dispatched = true;
+				queue.offer(event, handlerMethods);
+			}
+
+			if (!dispatched && !(event instanceof DeadEvent)) {
+				deadEventCount.increment();
+				post(new DeadEvent(event));
+			}
+			dispatchQueuedEvents(queue);
+		} finally {
+			FlightRecording.endPost(postEvent, id, event.getClass(),
+					handlerMethods.size());
+		}
+	}
+
+	/**
+	 * Posts an event like {@link #post(Object)} and tracks its delivery. The
+	 * returned future completes when every handler method selected for the
+	 * event has finished, or completes exceptionally with
+	 * {@link EventHandlingException} that carries failures of all handler
+	 * methods that threw an exception. Lets callers of asynchronous buses
+	 * wait for the event to be handled, e.g. to apply backpressure.
+	 * 
+	 * <p>
+	 * Handler methods are tracked with a shared counter, no future is created
+	 * per handler method. Exceptions are recorded when they escape the
+	 * handler method or are reported to {@link CompletionExceptionHandler},
+	 * which handler methods found by default finding strategies do. A batch
+	 * handler method finishes when the event is added to its batch. Events
+	 * dropped or filtered out by the {@link DispatchStrategy} complete the
+	 * future too, dropped events exceptionally.
+	 * 
+	 * <p>
+	 * Events without handlers are reposted as {@link DeadEvent} and the
+	 * returned future is already completed. If the {@link DispatchStrategy}
+	 * rejects the event, the future completes with the rejection exception.
+	 * 
+	 * @param event
+	 *            event to post.
+	 * @return future completed when all handler methods finished
+	 */
+	public CompletableFuture<Void> postAsync(Object event) {
+		return postTracked(event, PostCompletion.Reply.NONE);
+	}
+
+	/**
+	 * Posts a request event and returns the first result of its handler
+	 * methods, without posting a reply event. Handler methods reply by
+	 * returning a value or a {@link CompletionStage} of the value. The
+	 * returned future completes with the first non-null result, in order of
+	 * completion, or with {@code null} if all handler methods finished
+	 * without a result. It completes exceptionally with
+	 * {@link EventHandlingException} only if there is no result and some
+	 * handler methods failed.
+	 * 
+	 * <p>
+	 * The event is delivered like by {@link #postAsync(Object)}. Batch
+	 * handler methods do not reply.
+	 * 
+	 * @param event
+	 *            event to post.
+	 * @return future of the first result
+	 */
+	public CompletableFuture<Object> request(Object event) {
+		return postTracked(event, PostCompletion.Reply.FIRST);
+	}
+
+	/**
+	 * Posts a request event and collects results of all its handler methods,
+	 * like {@link #request(Object)}. The returned future completes with a
+	 * list of non-null results in order of handler methods, when every
+	 * handler method finished, or exceptionally with
+	 * {@link EventHandlingException} if any handler method failed.
+	 * 
+	 * @param event
+	 *            event to post.
+	 * @return future of all results
+	 */
+	public CompletableFuture<List<Object>> requestAll(Object event) {
+		return postTracked(event, PostCompletion.Reply.ALL);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> CompletableFuture<T> postTracked(Object event,
+			PostCompletion.Reply reply) {
+		if (event == null) {
+			return CompletableFuture.completedFuture((T) PostCompletion
+					.noReply(reply));
+		}
+		List<MethodHandler> handlerMethods = handlerRegistry
 				.findEventHandlerMethods(event.getClass());
-		boolean dispatched = false;
-		if (handlerMethods != null && !handlerMethods.isEmpty()) {
-			dispatched = true;
-			enqueueEventExecution(handlerMethods, event);
+		if (handlerMethods.isEmpty()) {
+			post(event);
+			return CompletableFuture.completedFuture((T) PostCompletion
+					.noReply(reply));
+		}
+		Object postEvent = FlightRecording.beginPost();
+		PostCompletion<T> completion = new PostCompletion<T>(event,
+				handlerMethods, reply);
+		try {
+			DispatchQueue queue = eventsToDispatch.get();
+			queue.offer(event, completion.getHandlers());
+			dispatchQueuedEvents(queue);
+		} catch (RuntimeException e) {
+			completion.getFuture().completeExceptionally(e);
+		} finally {
+			FlightRecording.endPost(postEvent, id, event.getClass(),
+					handlerMethods.size());
+		}
+		return completion.getFuture();
+	}
+
+	/**
+	 * Posts events to all registered handlers, in iteration order of
+	 * {@code events}. Handler lookup is repeated only when the event class
+	 * changes and the whole batch is passed to
+	 * {@link DispatchStrategy#dispatchEvents(List, List)} at once.
+	 * <p>
+	 * Unlike a sequence of {@link #post(Object)} calls, events posted by
+	 * handler methods during the delivery are queued until the whole batch is
+	 * dispatched. For a batch {@code e1, e2}, where handling of {@code e1}
+	 * posts {@code n1}, the delivery order is {@code e1, e2, n1} instead of
+	 * {@code e1, n1, e2}. When called from a handler method, the events are
+	 * queued like by {@link #post(Object)}.
+	 * 
+	 * <p>
+	 * Null events are skipped.
+	 * 
+	 * @param events
+	 *            events to post.
+	 */
+	public void postAll(Collection<?> events) {
+		DispatchQueue queue = eventsToDispatch.get();
+		if (queue.dispatching) {
+			for (Object event : events) {
+				post(event);
+			}
+			return;
+		}
+		List<Object> batch = new ArrayList<Object>(events.size());
+		List<Collection<MethodHandler>> batchHandlers = new ArrayList<Collection<MethodHandler>>(
+				events.size());
+		Class<?> eventType = null;
+		List<MethodHandler> handlerMethods = null;
+		for (Object event : events) {
+			if (event == null) {
+				continue;
+			}
+			if (event.getClass() != eventType) {
+				eventType = event.getClass();
+				handlerMethods = handlerRegistry
+						.findEventHandlerMethods(eventType);
+			}
+			FlightRecording.endPost(FlightRecording.beginPost(), id,
+					eventType, handlerMethods.size());
+			if (!handlerMethods.isEmpty()) {
+				batch.add(event);
+				batchHandlers.add(handlerMethods);
+			} else if (!(event instanceof DeadEvent)) {
+				deadEventCount.increment();
+				List<MethodHandler> deadEventHandlers = handlerRegistry
+						.findEventHandlerMethods(DeadEvent.class);
+				if (!deadEventHandlers.isEmpty()) {
+					batch.add(new DeadEvent(event));
+					batchHandlers.add(deadEventHandlers);
+				}
+			}
+		}
+		if (batch.isEmpty()) {
+			return;
+		}
+		queue.dispatching = true;
+		try {
+			dispatchStrategy.dispatchEvents(batch, batchHandlers);
+			queue.drain(dispatchStrategy);
+		} finally {
+			queue.reset();
 		}
+	}
 
-		if (!dispatched && !(event instanceof DeadEvent)) {
-			post(new DeadEvent(event));
+	/**
+	 * Posts an {@code int} event to all registered handlers. It is delivered
+	 * like {@link #post(Object) post(Integer.valueOf(event))}, but when the
+	 * {@link DispatchStrategy} handles events synchronously, handler methods
+	 * with {@code int} parameter receive it without boxing.
+	 * 
+	 * @param event
+	 *            event to post.
+	 */
+	public void post(int event) {
+		List<MethodHandler> handlerMethods = handlerRegistry
+				.findEventHandlerMethods(Integer.class);
+		DispatchQueue queue = eventsToDispatch.get();
+		if (handlerMethods.isEmpty() || queue.dispatching) {
+			post(Integer.valueOf(event));
+			return;
+		}
+		Object postEvent = FlightRecording.beginPost();
+		queue.dispatching = true;
+		try {
+			dispatchStrategy.dispatchEvent(event, handlerMethods);
+			queue.drain(dispatchStrategy);
+		} finally {
+			queue.reset();
+			FlightRecording.endPost(postEvent, id, Integer.class,
+					handlerMethods.size());
+		}
+	}
+
+	/**
+	 * Posts a {@code long} event to all registered handlers. It is delivered
+	 * like {@link #post(Object) post(Long.valueOf(event))}, but when the
+	 * {@link DispatchStrategy} handles events synchronously, handler methods
+	 * with {@code long} parameter receive it without boxing.
+	 * 
+	 * @param event
+	 *            event to post.
+	 */
+	public void post(long event) {
+		List<MethodHandler> handlerMethods = handlerRegistry
+				.findEventHandlerMethods(Long.class);
+		DispatchQueue queue = eventsToDispatch.get();
+		if (handlerMethods.isEmpty() || queue.dispatching) {
+			post(Long.valueOf(event));
+			return;
+		}
+		Object postEvent = FlightRecording.beginPost();
+		queue.dispatching = true;
+		try {
+			dispatchStrategy.dispatchEvent(event, handlerMethods);
+			queue.drain(dispatchStrategy);
+		} finally {
+			queue.reset();
+			FlightRecording.endPost(postEvent, id, Long.class,
+					handlerMethods.size());
 		}
-		dispatchQueuedEvents();
+	}
+
+	/**
+	 * Posts a {@code double} event to all registered handlers. It is delivered
+	 * like {@link #post(Object) post(Double.valueOf(event))}, but when the
+	 * {@link DispatchStrategy} handles events synchronously, handler methods
+	 * with {@code double} parameter receive it without boxing.
+	 * 
+	 * @param event
+	 *            event to post.
+	 */
+	public void post(double event) {
+		List<MethodHandler> handlerMethods = handlerRegistry
+				.findEventHandlerMethods(Double.class);
+		DispatchQueue queue = eventsToDispatch.get();
+		if (handlerMethods.isEmpty() || queue.dispatching) {
+			post(Double.valueOf(event));
+			return;
+		}
+		Object postEvent = FlightRecording.beginPost();
+		queue.dispatching = true;
+		try {
+			dispatchStrategy.dispatchEvent(event, handlerMethods);
+			queue.drain(dispatchStrategy);
+		} finally {
+			queue.reset();
+			FlightRecording.endPost(postEvent, id, Double.class,
+					handlerMethods.size());
+		}
+	}
+
+	/**
+	 * Posts boxed {@code byte} event. Prevents widening of the event to
+	 * {@code int} by {@link #post(int)}.
+	 * 
+	 * @param event
+	 *            event to post.
+	 */
+	public void post(byte event) {
+		post(Byte.valueOf(event));
+	}
+
+	/**
+	 * Posts boxed {@code short} event. Prevents widening of the event to
+	 * {@code int} by {@link #post(int)}.
+	 * 
+	 * @param event
+	 *            event to post.
+	 */
+	public void post(short event) {
+		post(Short.valueOf(event));
+	}
+
+	/**
+	 * Posts boxed {@code char} event. Prevents widening of the event to
+	 * {@code int} by {@link #post(int)}.
+	 * 
+	 * @param event
+	 *            event to post.
+	 */
+	public void post(char event) {
+		post(Character.valueOf(event));
+	}
+
+	/**
+	 * Posts boxed {@code float} event. Prevents widening of the event to
+	 * {@code double} by {@link #post(double)}.
+	 * 
+	 * @param event
+	 *            event to post.
+	 */
+	public void post(float event) {
+		post(Float.valueOf(event));
 	}
 
 	/**
@@ -235,45 +637,89 @@ public class EventBus {
 		handlerRegistry.removeHandler(handler);
 	}
 
-	@Override
-	public String toString() {
-		return "EventBus [id=" + id + "]";
+	/**
+	 * Returns invocation statistics of handler methods. Metrics are recorded
+	 * only if enabled in {@link EventBusBuilder}, see
+	 * {@link EventBusBuilder#withMetrics()}.
+	 * 
+	 * @return metrics of this event bus
+	 */
+	public EventBusMetrics getMetrics() {
+		return metrics;
 	}
 
 	/**
-	 * Queue the {@code event} for dispatch during
-	 * {@link #dispatchQueuedEvents()}. Events are queued in-order of occurrence
-	 * so they can be dispatched in the same order.
+	 * Registers {@link EventBusMXBean} of this event bus in the platform
+	 * {@link MBeanServer}, named after the id of this bus.
+	 * 
+	 * @return name of the registered MBean
+	 * @throws IllegalStateException
+	 *             if the MBean could not be registered, e.g. because another
+	 *             bus with the same id is registered
 	 */
-	private void enqueueEventExecution(Collection<MethodHandler> handlers,
-			Object event) {
-		eventsToDispatch.get().offer(
-				new HandlerWithEvent(event, handlers, dispatchStrategy));
+	public ObjectName registerMBean() {
+		ObjectName name = EventBusManagement.objectNameOf(id);
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(
+					new EventBusManagement(this), name);
+		} catch (JMException e) {
+			throw new IllegalStateException("Could not register MBean: "
+					+ name, e);
+		}
+		return name;
+	}
+
+	/**
+	 * Removes {@link EventBusMXBean} registered by {@link #registerMBean()}.
+	 * Does nothing if the MBean is not registered.
+	 */
+	public void unregisterMBean() {
+		ObjectName name = EventBusManagement.objectNameOf(id);
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		} catch (InstanceNotFoundException e) {
+			// not registered
+		} catch (JMException e) {
+			throw new IllegalStateException("Could not unregister MBean: "
+					+ name, e);
+		}
+	}
+
+	String getId() {
+		return id;
+	}
+
+	HandlerRegistry getHandlerRegistry() {
+		return handlerRegistry;
+	}
+
+	DispatchStrategy getDispatchStrategy() {
+		return dispatchStrategy;
+	}
+
+	@Override
+	public String toString() {
+		return "EventBus [id=" + id + "]";
 	}
 
 	/**
 	 * Drain the queue of events to be dispatched. As the queue is being
 	 * drained, new events may be posted to the end of the queue.
 	 */
-	private void dispatchQueuedEvents() {
+	private void dispatchQueuedEvents(DispatchQueue queue) {
 		// don't dispatch if we're already dispatching, that would allow
 		// reentrancy
 		// and out-of-order events. Instead, leave the events to be dispatched
 		// after the in-progress dispatch is complete.
-		if (isDispatching.get()) {
+		if (queue.dispatching) {
 			return;
 		}
 
-		isDispatching.set(true);
+		queue.dispatching = true;
 		try {
-			Queue<HandlerWithEvent> events = eventsToDispatch.get();
-			HandlerWithEvent hadnlerWithEvent;
-			while ((hadnlerWithEvent = events.poll()) != null) {
-				hadnlerWithEvent.execute();
-			}
+			queue.drain(dispatchStrategy);
 		} finally {
-			isDispatching.remove();
-			eventsToDispatch.remove();
+			queue.reset();
 		}
 	}
 
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus;
+
+import java.util.Map;
+
+import net.exacode.eventbus.dispatch.MonitoredDispatchStrategy;
+import net.exacode.eventbus.exception.ExceptionHandler;
+
+/**
+ * Management interface of an {@link EventBus}. Registered with
+ * {@link EventBus#registerMBean()} under name
+ * {@code net.exacode.eventbus:type=EventBus,name=<id>}.
+ * 
+ * @author mendlik
+ * 
+ */
+public interface EventBusMXBean {
+
+	/**
+	 * @return id of the event bus
+	 */
+	String getId();
+
+	/**
+	 * @return class name of the dispatch strategy
+	 */
+	String getDispatchStrategy();
+
+	/**
+	 * @return number of registered handler methods by handled event type
+	 */
+	Map<String, Integer> getHandlerCounts();
+
+	/**
+	 * @return number of all registered handler methods
+	 */
+	int getHandlerCount();
+
+	/**
+	 * @return number of events waiting for delivery, or -1 if the dispatch
+	 *         strategy is not a {@link MonitoredDispatchStrategy}
+	 */
+	int getQueueSize();
+
+	/**
+	 * @return number of worker threads that are delivering events, or -1 if
+	 *         the dispatch strategy is not a {@link MonitoredDispatchStrategy}
+	 */
+	int getActiveWorkerCount();
+
+	/**
+	 * @return number of posted events without handlers
+	 */
+	long getDeadEventCount();
+
+	/**
+	 * @return number of handler invocations, or -1 if metrics are disabled
+	 */
+	long getInvocationCount();
+
+	/**
+	 * @return number of handler exceptions passed to the
+	 *         {@link ExceptionHandler}, or -1 if metrics are disabled
+	 */
+	long getExceptionCount();
+
+	/**
+	 * @return number of handler invocations reported by
+	 *         {@link net.exacode.eventbus.metrics.HandlerWatchdog}, or -1 if
+	 *         metrics are disabled
+	 */
+	long getSlowInvocationCount();
+
+	/**
+	 * Lists handler methods of every event class posted so far, one event
+	 * class per line.
+	 * 
+	 * @return text dump of the dispatch table
+	 */
+	String dumpDispatchTable();
+
+	/**
+	 * Clears dead event count and handler metrics.
+	 */
+	void resetCounters();
+
+}
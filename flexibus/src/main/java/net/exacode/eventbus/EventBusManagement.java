@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import net.exacode.eventbus.dispatch.DispatchStrategy;
+import net.exacode.eventbus.dispatch.MonitoredDispatchStrategy;
+import net.exacode.eventbus.handler.MethodHandler;
+import net.exacode.eventbus.metrics.EventBusMetrics;
+import net.exacode.eventbus.metrics.HandlerMetricsSnapshot;
+import net.exacode.eventbus.metrics.InstrumentedMethodHandler;
+
+/**
+ * {@link EventBusMXBean} implementation that reads live state of an
+ * {@link EventBus}.
+ * 
+ * @author mendlik
+ * 
+ */
+final class EventBusManagement implements EventBusMXBean {
+
+	static final String DOMAIN = "net.exacode.eventbus";
+
+	private static final Pattern SPECIAL_CHARACTERS = Pattern
+			.compile("[,=:\"*?\\n]");
+
+	private static final Comparator<Class<?>> CLASS_NAME_ORDER = new Comparator<Class<?>>() {
+		@Override
+		public int compare(Class<?> first, Class<?> second) {
+			return first.getName().compareTo(second.getName());
+		}
+	};
+
+	private final EventBus eventBus;
+
+	EventBusManagement(EventBus eventBus) {
+		this.eventBus = eventBus;
+	}
+
+	/**
+	 * @param id
+	 *            id of an event bus
+	 * @return name of the event bus MBean
+	 */
+	static ObjectName objectNameOf(String id) {
+		String name = SPECIAL_CHARACTERS.matcher(id).find() ? ObjectName
+				.quote(id) : id;
+		try {
+			return new ObjectName(DOMAIN + ":type=EventBus,name=" + name);
+		} catch (MalformedObjectNameException e) {
+			throw new IllegalArgumentException("Invalid event bus id: " + id,
+					e);
+		}
+	}
+
+	@Override
+	public String getId() {
+		return eventBus.getId();
+	}
+
+	@Override
+	public String getDispatchStrategy() {
+		return eventBus.getDispatchStrategy().getClass().getName();
+	}
+
+	@Override
+	public Map<String, Integer> getHandlerCounts() {
+		Map<String, Integer> counts = new TreeMap<String, Integer>();
+		for (Entry<Class<?>, Integer> entry : eventBus.getHandlerRegistry()
+				.getHandlerCounts().entrySet()) {
+			counts.put(entry.getKey().getName(), entry.getValue());
+		}
+		return counts;
+	}
+
+	@Override
+	public int getHandlerCount() {
+		int count = 0;
+		for (Integer handlerCount : eventBus.getHandlerRegistry()
+				.getHandlerCounts().values()) {
+			count += handlerCount;
+		}
+		return count;
+	}
+
+	@Override
+	public int getQueueSize() {
+		DispatchStrategy strategy = eventBus.getDispatchStrategy();
+		if (strategy instanceof MonitoredDispatchStrategy) {
+			return ((MonitoredDispatchStrategy) strategy).getQueueSize();
+		}
+		return -1;
+	}
+
+	@Override
+	public int getActiveWorkerCount() {
+		DispatchStrategy strategy = eventBus.getDispatchStrategy();
+		if (strategy instanceof MonitoredDispatchStrategy) {
+			return ((MonitoredDispatchStrategy) strategy).getActiveCount();
+		}
+		return -1;
+	}
+
+	@Override
+	public long getDeadEventCount() {
+		return eventBus.deadEventCount.sum();
+	}
+
+	@Override
+	public long getInvocationCount() {
+		EventBusMetrics metrics = eventBus.getMetrics();
+		if (!metrics.isEnabled()) {
+			return -1;
+		}
+		long count = 0;
+		for (HandlerMetricsSnapshot snapshot : metrics.getSnapshots()) {
+			count += snapshot.getInvocationCount();
+		}
+		return count;
+	}
+
+	@Override
+	public long getExceptionCount() {
+		EventBusMetrics metrics = eventBus.getMetrics();
+		if (!metrics.isEnabled()) {
+			return -1;
+		}
+		long count = 0;
+		for (HandlerMetricsSnapshot snapshot : metrics.getSnapshots()) {
+			count += snapshot.getErrorCount();
+		}
+		return count;
+	}
+
+	@Override
+	public long getSlowInvocationCount() {
+		EventBusMetrics metrics = eventBus.getMetrics();
+		if (!metrics.isEnabled()) {
+			return -1;
+		}
+		long count = 0;
+		for (HandlerMetricsSnapshot snapshot : metrics.getSnapshots()) {
+			count += snapshot.getSlowInvocationCount();
+		}
+		return count;
+	}
+
+	@Override
+	public String dumpDispatchTable() {
+		Map<Class<?>, List<MethodHandler>> dispatchTable = new TreeMap<Class<?>, List<MethodHandler>>(
+				CLASS_NAME_ORDER);
+		dispatchTable.putAll(eventBus.getHandlerRegistry().getDispatchTable());
+		StringBuilder dump = new StringBuilder();
+		for (Entry<Class<?>, List<MethodHandler>> entry : dispatchTable
+				.entrySet()) {
+			List<String> handlers = new ArrayList<String>();
+			for (MethodHandler handler : entry.getValue()) {
+				handlers.add(InstrumentedMethodHandler.nameOf(handler));
+			}
+			dump.append(entry.getKey().getName()).append(" -> ")
+					.append(handlers).append('\n');
+		}
+		return dump.toString();
+	}
+
+	@Override
+	public void resetCounters() {
+		eventBus.deadEventCount.reset();
+		eventBus.getMetrics().reset();
+	}
+
+}
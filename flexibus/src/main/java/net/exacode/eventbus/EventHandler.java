@@ -22,6 +22,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import net.exacode.eventbus.dispatch.concurrent.BlockingAsyncDispatchStrategy;
 import net.exacode.eventbus.handler.MethodHandlerFinder;
 
 /**
@@ -30,14 +31,27 @@ import net.exacode.eventbus.handler.MethodHandlerFinder;
  * <p>
  * If you want to change annotation handler finding mechanism register in
  * {@link EventBus} appropriate {@link MethodHandlerFinder}.
+ * <p>
+ * Annotation can be used on other annotations. Methods annotated with such
+ * annotations are event handler methods too.
  * 
  * @author Cliff Biffle
  * @author mendlik
  * 
  */
-@Target({ ElementType.METHOD })
+@Target({ ElementType.METHOD, ElementType.ANNOTATION_TYPE })
 @Retention(RetentionPolicy.RUNTIME)
 @Documented
 public @interface EventHandler {
 
+	/**
+	 * Timeout of the handler method in milliseconds, enforced by dispatch
+	 * strategies that support timeouts, e.g.
+	 * {@link BlockingAsyncDispatchStrategy}. Negative value (default) means
+	 * the default timeout of the strategy, 0 means no timeout. Methods
+	 * annotated with an annotation that carries this annotation have the
+	 * timeout of the annotation.
+	 */
+	long timeoutMillis() default -1;
+
 }
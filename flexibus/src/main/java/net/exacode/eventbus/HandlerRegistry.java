@@ -16,16 +16,17 @@
  */
 package net.exacode.eventbus;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.WeakHashMap;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicReference;
 
 import net.exacode.eventbus.handler.MethodHandler;
 import net.exacode.eventbus.handler.MethodHandlerFinder;
@@ -33,6 +34,16 @@ import net.exacode.eventbus.handler.MethodHandlerFinder;
 /**
  * Stores and organizes {@link MethodHandler}s.
  * <p>
+ * Whole state of the registry is kept in an immutable {@link Snapshot}. Every
+ * change builds a new snapshot and publishes it with a compare-and-set, so
+ * readers always observe a complete handler set and never take a lock.
+ * Handlers resolved for a concrete event class are kept in the snapshot's
+ * dispatch table, so {@link #findEventHandlerMethods(Class)} does not
+ * allocate once the event class was looked up. Registering or unregistering a
+ * handler rebuilds only entries of event classes that are assignable to the
+ * handled types. Event classes are held weakly by the dispatch table, so
+ * generated or per class loader event classes can still be unloaded.
+ * <p>
  * Thread safe.
  * 
  * @author mendlik
@@ -40,13 +51,197 @@ import net.exacode.eventbus.handler.MethodHandlerFinder;
  */
 class HandlerRegistry {
 
-	private final Map<Class<?>, Set<MethodHandler>> eventHandlerMethods = new HashMap<Class<?>, Set<MethodHandler>>();
+	/**
+	 * Flattened event hierarchies. Values are stored within classes
+	 * themselves, so the cache does not pin class loaders.
+	 */
+	private static final ClassValue<Set<Class<?>>> flattenHierarchyCache = new ClassValue<Set<Class<?>>>() {
+		@Override
+		protected Set<Class<?>> computeValue(Class<?> concreteClass) {
+			Set<Class<?>> hierarchy = new LinkedHashSet<Class<?>>();
+			Class<?> currentClass = concreteClass;
+			while (currentClass != null) {
+				hierarchy.add(currentClass);
+				hierarchy.addAll(Arrays.asList(currentClass.getInterfaces()));
+				currentClass = currentClass.getSuperclass();
+			}
+			return Collections.unmodifiableSet(hierarchy);
+		}
+	};
 
-	private final MethodHandlerFinder finder;
+	/**
+	 * Immutable state of the registry.
+	 */
+	private static final class Snapshot {
+
+		static final Snapshot EMPTY = new Snapshot(
+				Collections.<Class<?>, MethodHandler[]> emptyMap(),
+				DispatchTable.EMPTY);
+
+		/** handled event type to its handlers */
+		final Map<Class<?>, MethodHandler[]> eventHandlerMethods;
+
+		/** concrete event class to handlers of all its supertypes */
+		final DispatchTable dispatchTable;
+
+		Snapshot(Map<Class<?>, MethodHandler[]> eventHandlerMethods,
+				DispatchTable dispatchTable) {
+			this.eventHandlerMethods = eventHandlerMethods;
+			this.dispatchTable = dispatchTable;
+		}
+
+		Snapshot withDispatchTableEntry(Class<?> eventType,
+				List<MethodHandler> handlerMethods) {
+			return new Snapshot(eventHandlerMethods, dispatchTable.with(
+					eventType, handlerMethods));
+		}
+
+		/**
+		 * Creates snapshot with replaced handler registrations. Dispatch table
+		 * entries of event classes assignable to any of changed types are
+		 * recomputed.
+		 */
+		Snapshot withEventHandlerMethods(
+				Map<Class<?>, MethodHandler[]> changedEventHandlerMethods) {
+			Map<Class<?>, MethodHandler[]> handlers = new HashMap<Class<?>, MethodHandler[]>(
+					eventHandlerMethods);
+			for (Entry<Class<?>, MethodHandler[]> entry : changedEventHandlerMethods
+					.entrySet()) {
+				if (entry.getValue().length == 0) {
+					handlers.remove(entry.getKey());
+				} else {
+					handlers.put(entry.getKey(), entry.getValue());
+				}
+			}
+			return new Snapshot(handlers, dispatchTable.rebuild(handlers,
+					changedEventHandlerMethods.keySet()));
+		}
+
+	}
+
+	/**
+	 * Immutable open addressing table from concrete event class to its
+	 * handlers. Event classes are referenced weakly and compared by identity,
+	 * so lookups do not allocate and do not prevent classes from being
+	 * unloaded. Entries of collected classes are dropped whenever the table
+	 * is copied.
+	 */
+	private static final class DispatchTable {
+
+		private static final int MIN_CAPACITY = 16;
 
-	private final Map<Class<?>, Set<Class<?>>> flattenHierarchyCache = new WeakHashMap<Class<?>, Set<Class<?>>>();
+		static final DispatchTable EMPTY = new DispatchTable(
+				new ClassEntry[MIN_CAPACITY]);
 
-	private final ReadWriteLock eventHandlerMethodsLock = new ReentrantReadWriteLock();
+		/** length is a power of two, at most half of slots is used */
+		private final ClassEntry[] entries;
+
+		private DispatchTable(ClassEntry[] entries) {
+			this.entries = entries;
+		}
+
+		List<MethodHandler> get(Class<?> eventType) {
+			ClassEntry[] table = entries;
+			int mask = table.length - 1;
+			int index = indexOf(eventType, mask);
+			ClassEntry entry;
+			while ((entry = table[index]) != null) {
+				if (entry.get() == eventType) {
+					return entry.handlerMethods;
+				}
+				index = (index + 1) & mask;
+			}
+			return null;
+		}
+
+		DispatchTable with(Class<?> eventType,
+				List<MethodHandler> handlerMethods) {
+			List<ClassEntry> live = liveEntries();
+			live.add(new ClassEntry(eventType, handlerMethods));
+			return of(live);
+		}
+
+		DispatchTable rebuild(Map<Class<?>, MethodHandler[]> handlers,
+				Set<Class<?>> changedTypes) {
+			List<ClassEntry> live = liveEntries();
+			for (int i = 0; i < live.size(); ++i) {
+				ClassEntry entry = live.get(i);
+				Class<?> eventType = entry.get();
+				if (eventType != null
+						&& !Collections.disjoint(
+								flattenHierarchyCache.get(eventType),
+								changedTypes)) {
+					live.set(i, new ClassEntry(eventType,
+							collectEventHandlerMethods(handlers, eventType)));
+				}
+			}
+			return of(live);
+		}
+
+		Map<Class<?>, List<MethodHandler>> toMap() {
+			Map<Class<?>, List<MethodHandler>> map = new HashMap<Class<?>, List<MethodHandler>>();
+			for (ClassEntry entry : entries) {
+				Class<?> eventType = entry != null ? entry.get() : null;
+				if (eventType != null) {
+					map.put(eventType, entry.handlerMethods);
+				}
+			}
+			return map;
+		}
+
+		private List<ClassEntry> liveEntries() {
+			List<ClassEntry> live = new ArrayList<ClassEntry>();
+			for (ClassEntry entry : entries) {
+				if (entry != null && entry.get() != null) {
+					live.add(entry);
+				}
+			}
+			return live;
+		}
+
+		private static DispatchTable of(List<ClassEntry> live) {
+			int capacity = MIN_CAPACITY;
+			while (capacity < live.size() * 2) {
+				capacity <<= 1;
+			}
+			ClassEntry[] table = new ClassEntry[capacity];
+			int mask = capacity - 1;
+			for (ClassEntry entry : live) {
+				Class<?> eventType = entry.get();
+				if (eventType == null) {
+					continue;
+				}
+				int index = indexOf(eventType, mask);
+				while (table[index] != null) {
+					index = (index + 1) & mask;
+				}
+				table[index] = entry;
+			}
+			return new DispatchTable(table);
+		}
+
+		private static int indexOf(Class<?> eventType, int mask) {
+			int hash = System.identityHashCode(eventType);
+			return (hash ^ (hash >>> 16)) & mask;
+		}
+
+	}
+
+	private static final class ClassEntry extends WeakReference<Class<?>> {
+
+		final List<MethodHandler> handlerMethods;
+
+		ClassEntry(Class<?> eventType, List<MethodHandler> handlerMethods) {
+			super(eventType);
+			this.handlerMethods = handlerMethods;
+		}
+
+	}
+
+	private final MethodHandlerFinder finder;
+
+	private final AtomicReference<Snapshot> snapshot = new AtomicReference<Snapshot>(
+			Snapshot.EMPTY);
 
 	public HandlerRegistry(MethodHandlerFinder finder) {
 		this.finder = finder;
@@ -64,12 +259,27 @@ class HandlerRegistry {
 	public void addHandler(Object handler) {
 		Map<Class<?>, Set<MethodHandler>> handlerMethods = finder
 				.findHandlerMethods(handler);
-		eventHandlerMethodsLock.writeLock().lock();
-		try {
-			mergeEventHadnlerMethods(handlerMethods);
-		} finally {
-			eventHandlerMethodsLock.writeLock().unlock();
+		if (handlerMethods.isEmpty()) {
+			return;
 		}
+		Snapshot current;
+		Snapshot updated;
+		do {
+			current = snapshot.get();
+			Map<Class<?>, MethodHandler[]> changed = new HashMap<Class<?>, MethodHandler[]>();
+			for (Entry<Class<?>, Set<MethodHandler>> entry : handlerMethods
+					.entrySet()) {
+				Set<MethodHandler> handlerSet = new LinkedHashSet<MethodHandler>();
+				MethodHandler[] currentHandlers = current.eventHandlerMethods
+						.get(entry.getKey());
+				if (currentHandlers != null) {
+					handlerSet.addAll(Arrays.asList(currentHandlers));
+				}
+				handlerSet.addAll(entry.getValue());
+				changed.put(entry.getKey(), toArray(handlerSet));
+			}
+			updated = current.withEventHandlerMethods(changed);
+		} while (!snapshot.compareAndSet(current, updated));
 	}
 
 	/**
@@ -80,73 +290,120 @@ class HandlerRegistry {
 	public void removeHandler(Object handler) {
 		Map<Class<?>, Set<MethodHandler>> methodsInListener = finder
 				.findHandlerMethods(handler);
-		for (Entry<Class<?>, Set<MethodHandler>> entry : methodsInListener
-				.entrySet()) {
-			Class<?> eventType = entry.getKey();
-			Set<MethodHandler> eventMethodsInListener = entry.getValue();
-
-			eventHandlerMethodsLock.writeLock().lock();
-			try {
-				Set<MethodHandler> currentHandlers = eventHandlerMethods
-						.get(eventType);
-				if (currentHandlers != null
-						&& currentHandlers.containsAll(entry.getValue())) {
-					currentHandlers.removeAll(eventMethodsInListener);
+		if (methodsInListener.isEmpty()) {
+			return;
+		}
+		Snapshot current;
+		Snapshot updated;
+		do {
+			current = snapshot.get();
+			Map<Class<?>, MethodHandler[]> changed = new HashMap<Class<?>, MethodHandler[]>();
+			for (Entry<Class<?>, Set<MethodHandler>> entry : methodsInListener
+					.entrySet()) {
+				Set<MethodHandler> eventMethodsInListener = entry.getValue();
+				MethodHandler[] currentHandlers = current.eventHandlerMethods
+						.get(entry.getKey());
+				if (currentHandlers == null) {
+					continue;
+				}
+				Set<MethodHandler> handlerSet = new LinkedHashSet<MethodHandler>(
+						Arrays.asList(currentHandlers));
+				if (handlerSet.containsAll(eventMethodsInListener)) {
+					handlerSet.removeAll(eventMethodsInListener);
+					changed.put(entry.getKey(), toArray(handlerSet));
 				}
-			} finally {
-				eventHandlerMethodsLock.writeLock().unlock();
 			}
-		}
+			if (changed.isEmpty()) {
+				return;
+			}
+			updated = current.withEventHandlerMethods(changed);
+		} while (!snapshot.compareAndSet(current, updated));
 	}
 
 	/**
 	 * Finds all {@link MethodHandler}s connected with given {@code eventType}.
+	 * <p>
+	 * Returned list is immutable and shared between callers.
 	 * 
 	 * @param eventType
 	 * @return handlerMethods
 	 */
-	public Set<MethodHandler> findEventHandlerMethods(Class<?> eventType) {
-		Set<MethodHandler> handlerMethods = new LinkedHashSet<MethodHandler>();
-		Set<Class<?>> eventFlattenedTypes = flattenEventHierarchy(eventType);
-		for (Class<?> eventFlattenedType : eventFlattenedTypes) {
-			Set<MethodHandler> handlers = eventHandlerMethods
-					.get(eventFlattenedType);
-			if (handlers != null) {
-				handlerMethods.addAll(handlers);
-			}
+	public List<MethodHandler> findEventHandlerMethods(Class<?> eventType) {
+		List<MethodHandler> handlerMethods = snapshot.get().dispatchTable
+				.get(eventType);
+		if (handlerMethods == null) {
+			handlerMethods = resolveEventHandlerMethods(eventType);
 		}
 		return handlerMethods;
 	}
 
-	private void mergeEventHadnlerMethods(
-			Map<Class<?>, Set<MethodHandler>> handlerMethods) {
-		for (Entry<Class<?>, Set<MethodHandler>> entry : handlerMethods
+	/**
+	 * @return number of registered handler methods by handled event type
+	 */
+	public Map<Class<?>, Integer> getHandlerCounts() {
+		Map<Class<?>, Integer> counts = new HashMap<Class<?>, Integer>();
+		for (Entry<Class<?>, MethodHandler[]> entry : snapshot.get().eventHandlerMethods
 				.entrySet()) {
-			Set<MethodHandler> handlerSet = eventHandlerMethods.get(entry
-					.getKey());
-			if (handlerSet == null) {
-				handlerSet = new HashSet<MethodHandler>();
-				eventHandlerMethods.put(entry.getKey(), handlerSet);
-			}
-			handlerSet.addAll(entry.getValue());
+			counts.put(entry.getKey(), entry.getValue().length);
 		}
+		return counts;
 	}
 
-	private Set<Class<?>> flattenEventHierarchy(Class<?> concreteClass) {
-		Set<Class<?>> hierarchy = flattenHierarchyCache.get(concreteClass);
-		if (hierarchy == null) {
-			synchronized (flattenHierarchyCache) {
-				hierarchy = new LinkedHashSet<Class<?>>();
-				Class<?> currentClass = concreteClass;
-				while (currentClass != null) {
-					hierarchy.add(currentClass);
-					hierarchy
-							.addAll(Arrays.asList(currentClass.getInterfaces()));
-					currentClass = currentClass.getSuperclass();
-				}
-				flattenHierarchyCache.put(concreteClass, hierarchy);
+	/**
+	 * Returns handlers resolved so far for concrete event classes. Event
+	 * classes are added on their first lookup and dropped once they are
+	 * garbage collected.
+	 * 
+	 * @return copy of the dispatch table
+	 */
+	public Map<Class<?>, List<MethodHandler>> getDispatchTable() {
+		return Collections.unmodifiableMap(snapshot.get().dispatchTable
+				.toMap());
+	}
+
+	/**
+	 * Computes handlers for event class that is not present in the dispatch
+	 * table yet and publishes them.
+	 */
+	private List<MethodHandler> resolveEventHandlerMethods(Class<?> eventType) {
+		Snapshot current;
+		List<MethodHandler> handlerMethods;
+		do {
+			current = snapshot.get();
+			handlerMethods = current.dispatchTable.get(eventType);
+			if (handlerMethods != null) {
+				return handlerMethods;
 			}
+			handlerMethods = collectEventHandlerMethods(
+					current.eventHandlerMethods, eventType);
+		} while (!snapshot.compareAndSet(current,
+				current.withDispatchTableEntry(eventType, handlerMethods)));
+		return handlerMethods;
+	}
+
+	private static List<MethodHandler> collectEventHandlerMethods(
+			Map<Class<?>, MethodHandler[]> eventHandlerMethods,
+			Class<?> eventType) {
+		Set<MethodHandler> handlerMethods = new LinkedHashSet<MethodHandler>();
+		Set<Class<?>> eventFlattenedTypes = flattenHierarchyCache
+				.get(eventType);
+		for (Class<?> eventFlattenedType : eventFlattenedTypes) {
+			MethodHandler[] handlers = eventHandlerMethods
+					.get(eventFlattenedType);
+			if (handlers != null) {
+				handlerMethods.addAll(Arrays.asList(handlers));
+			}
+		}
+		if (handlerMethods.isEmpty()) {
+			return Collections.emptyList();
 		}
-		return hierarchy;
+		return Collections.unmodifiableList(Arrays
+				.asList(toArray(handlerMethods)));
 	}
+
+	private static MethodHandler[] toArray(Set<MethodHandler> handlerMethods) {
+		return handlerMethods
+				.toArray(new MethodHandler[handlerMethods.size()]);
+	}
+
 }
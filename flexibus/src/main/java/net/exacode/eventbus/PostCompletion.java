@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import net.exacode.eventbus.exception.EventHandlingException;
+import net.exacode.eventbus.handler.MethodHandler;
+import net.exacode.eventbus.handler.TrackedMethodHandler;
+
+/**
+ * Tracks delivery of an event posted by {@link EventBus#postAsync(Object)},
+ * {@link EventBus#request(Object)} or {@link EventBus#requestAll(Object)}.
+ * Handler methods are wrapped in {@link TrackedMethodHandler}s that count
+ * down a shared counter, the future completes when the counter reaches zero.
+ * Results of handler methods are collected for requests.
+ * 
+ * @author mendlik
+ * 
+ * @param <T>
+ *            type of the future value
+ */
+final class PostCompletion<T> {
+
+	/**
+	 * What the future completes with.
+	 */
+	enum Reply {
+
+		/** {@code null}, results of handler methods are not collected */
+		NONE,
+
+		/** the first non-null result */
+		FIRST,
+
+		/** list of non-null results in order of handler methods */
+		ALL
+
+	}
+
+	/**
+	 * Delivery tracked on the current thread, receives exceptions passed to
+	 * {@link CompletionExceptionHandler}.
+	 */
+	private static final ThreadLocal<PostCompletion<?>> CURRENT = new ThreadLocal<PostCompletion<?>>();
+
+	private final class Tracker implements TrackedMethodHandler {
+
+		private final MethodHandler delegate;
+
+		private final int index;
+
+		/**
+		 * Set by the first of delivery and {@link #discard(Throwable)}, the
+		 * other one is ignored.
+		 */
+		private final AtomicBoolean done = new AtomicBoolean();
+
+		Tracker(MethodHandler delegate, int index) {
+			this.delegate = delegate;
+			this.index = index;
+		}
+
+		@Override
+		public void handleEvent(Object event) {
+			PostCompletion<?> enclosing = CURRENT.get();
+			CURRENT.set(PostCompletion.this);
+			Object result = null;
+			try {
+				if (reply == Reply.NONE) {
+					delegate.handleEvent(event);
+				} else {
+					result = delegate.handleRequest(event);
+				}
+			} catch (RuntimeException e) {
+				if (done.compareAndSet(false, true)) {
+					fail(e);
+					finished();
+				}
+				throw e;
+			} catch (Error e) {
+				if (done.compareAndSet(false, true)) {
+					fail(e);
+					finished();
+				}
+				throw e;
+			} finally {
+				CURRENT.set(enclosing);
+			}
+			if (result instanceof CompletionStage) {
+				((CompletionStage<?>) result)
+						.whenComplete(new BiConsumer<Object, Throwable>() {
+							@Override
+							public void accept(Object value, Throwable failure) {
+								if (!done.compareAndSet(false, true)) {
+									return;
+								}
+								if (failure instanceof CompletionException
+										&& failure.getCause() != null) {
+									fail(failure.getCause());
+								} else if (failure != null) {
+									fail(failure);
+								} else {
+									reply(index, value);
+								}
+								finished();
+							}
+						});
+			} else if (done.compareAndSet(false, true)) {
+				reply(index, result);
+				finished();
+			}
+		}
+
+		@Override
+		public void discard(Throwable failure) {
+			if (!done.compareAndSet(false, true)) {
+				return;
+			}
+			if (failure != null) {
+				fail(failure);
+			}
+			finished();
+		}
+
+		@Override
+		public MethodHandler getDelegate() {
+			return delegate;
+		}
+
+		@Override
+		public Object getTarget() {
+			return delegate.getTarget();
+		}
+
+		@Override
+		public Method getMethod() {
+			return delegate.getMethod();
+		}
+
+		@Override
+		public long getTimeoutMillis() {
+			return delegate.getTimeoutMillis();
+		}
+
+		@Override
+		public String toString() {
+			return "TrackedMethodHandler [delegate=" + delegate + "]";
+		}
+
+	}
+
+	private final Object event;
+
+	private final Reply reply;
+
+	private final CompletableFuture<T> future = new CompletableFuture<T>();
+
+	private final AtomicInteger remaining;
+
+	private final List<MethodHandler> handlers;
+
+	/**
+	 * Results of handler methods by index, {@code null} if results are not
+	 * collected. Published to the completing thread by {@link #remaining}.
+	 */
+	private final Object[] results;
+
+	/** guarded by this */
+	private List<Throwable> failures;
+
+	PostCompletion(Object event, List<MethodHandler> handlerMethods,
+			Reply reply) {
+		this.event = event;
+		this.reply = reply;
+		this.remaining = new AtomicInteger(handlerMethods.size());
+		this.handlers = new ArrayList<MethodHandler>(handlerMethods.size());
+		for (MethodHandler handlerMethod : handlerMethods) {
+			handlers.add(new Tracker(handlerMethod, handlers.size()));
+		}
+		this.results = reply == Reply.NONE ? null : new Object[handlers
+				.size()];
+	}
+
+	/**
+	 * @return delivery tracked on the current thread or {@code null}
+	 */
+	static PostCompletion<?> current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * @return value of a future of a request that no handler method received
+	 */
+	static Object noReply(Reply reply) {
+		return reply == Reply.ALL ? Collections.emptyList() : null;
+	}
+
+	/**
+	 * @return tracked handler methods to dispatch the event to
+	 */
+	List<MethodHandler> getHandlers() {
+		return handlers;
+	}
+
+	CompletableFuture<T> getFuture() {
+		return future;
+	}
+
+	/**
+	 * Records failure of a handler method.
+	 */
+	synchronized void fail(Throwable failure) {
+		if (failures == null) {
+			failures = new ArrayList<Throwable>(1);
+		}
+		failures.add(failure);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void reply(int index, Object result) {
+		if (results == null || result == null) {
+			return;
+		}
+		results[index] = result;
+		if (reply == Reply.FIRST) {
+			future.complete((T) result);
+		}
+	}
+
+	private void finished() {
+		if (remaining.decrementAndGet() == 0) {
+			complete();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private synchronized void complete() {
+		if (failures != null && !(reply == Reply.FIRST && future.isDone())) {
+			future.completeExceptionally(new EventHandlingException(event,
+					failures));
+		} else if (reply == Reply.ALL) {
+			List<Object> values = new ArrayList<Object>(results.length);
+			for (Object result : results) {
+				if (result != null) {
+					values.add(result);
+				}
+			}
+			future.complete((T) values);
+		} else {
+			future.complete(null);
+		}
+	}
+
+}
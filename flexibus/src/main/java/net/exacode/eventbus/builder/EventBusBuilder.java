@@ -18,17 +18,36 @@ package net.exacode.eventbus.builder;
 
 import java.lang.annotation.Annotation;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
+import net.exacode.eventbus.CompletionExceptionHandler;
 import net.exacode.eventbus.EventBus;
 import net.exacode.eventbus.EventHandler;
 import net.exacode.eventbus.dispatch.DispatchStrategy;
+import net.exacode.eventbus.dispatch.KeyExtractor;
 import net.exacode.eventbus.dispatch.concurrent.AsyncDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.BlockingAsyncDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.BoundedAsyncDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.BoundedAsyncDispatchStrategy.OverflowPolicy;
+import net.exacode.eventbus.dispatch.concurrent.ConflatingDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.MailboxDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.PartitionedDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.RingBufferDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.RingBufferDispatchStrategy.ProducerType;
 import net.exacode.eventbus.dispatch.concurrent.SingleThreadedAsyncDispatchStrategy;
 import net.exacode.eventbus.dispatch.concurrent.SyncDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.VirtualThreadDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.WaitStrategy;
 import net.exacode.eventbus.exception.ExceptionHandler;
 import net.exacode.eventbus.exception.ExceptionLoggingHandler;
 import net.exacode.eventbus.handler.AnnotatedMethodHandlerFinder;
+import net.exacode.eventbus.handler.DispatcherMethodHandlerFinder;
+import net.exacode.eventbus.handler.IndexedMethodHandlerFinder;
 import net.exacode.eventbus.handler.MethodHandlerFinder;
+import net.exacode.eventbus.metrics.EventBusMetrics;
+import net.exacode.eventbus.metrics.HandlerWatchdog;
+import net.exacode.eventbus.metrics.InstrumentedMethodHandlerFinder;
+import net.exacode.eventbus.metrics.MetricsExceptionHandler;
 
 /**
  * {@link EventBus} builder.
@@ -48,9 +67,23 @@ public class EventBusBuilder {
 
 	private ExceptionHandler exceptionHandler;
 
+	private boolean indexedMethodHandlerFinder;
+
+	private boolean dispatcherMethodHandlerFinder;
+
+	private boolean metricsEnabled;
+
+	private boolean mbeanRegistered;
+
+	private HandlerWatchdog handlerWatchdog;
+
+	/** default timeout of handlers, -1 if strategy is not blocking async */
+	private long blockingAsyncTimeoutNanos = -1;
+
 	public EventBusBuilder eventDispatchStrategy(
 			DispatchStrategy eventDispatchStrategy) {
 		this.eventDispatchStrategy = eventDispatchStrategy;
+		this.blockingAsyncTimeoutNanos = -1;
 		return this;
 	}
 
@@ -93,10 +126,150 @@ public class EventBusBuilder {
 		return this.eventDispatchStrategy(new AsyncDispatchStrategy(executor));
 	}
 
+	/**
+	 * Events are dispatched by {@link BlockingAsyncDispatchStrategy}. Handler
+	 * methods that overrun their timeout are reported to the exception
+	 * handler of the event bus, fail the future of
+	 * {@link EventBus#postAsync(Object)} and are counted as errors in
+	 * {@link EventBus#getMetrics()}.
+	 * 
+	 * @param defaultTimeout
+	 *            timeout of handler methods without
+	 *            {@link EventHandler#timeoutMillis()}, 0 means no timeout
+	 */
+	public EventBusBuilder withBlockingAsyncDispatchStrategy(
+			long defaultTimeout, TimeUnit unit) {
+		if (defaultTimeout < 0) {
+			throw new IllegalArgumentException(
+					"Default timeout must not be negative, but was: "
+							+ defaultTimeout);
+		}
+		this.eventDispatchStrategy = null;
+		this.blockingAsyncTimeoutNanos = unit.toNanos(defaultTimeout);
+		return this;
+	}
+
+	public EventBusBuilder withBoundedAsyncDispatchStrategy(int capacity,
+			OverflowPolicy overflowPolicy) {
+		return this.eventDispatchStrategy(new BoundedAsyncDispatchStrategy(
+				capacity, overflowPolicy));
+	}
+
+	public EventBusBuilder withBoundedAsyncDispatchStrategy(int threadCount,
+			int capacity, OverflowPolicy overflowPolicy, long timeout,
+			TimeUnit unit) {
+		return this.eventDispatchStrategy(new BoundedAsyncDispatchStrategy(
+				threadCount, capacity, overflowPolicy, timeout, unit));
+	}
+
+	public EventBusBuilder withMailboxDispatchStrategy(Executor executor) {
+		return this.eventDispatchStrategy(new MailboxDispatchStrategy(executor));
+	}
+
+	public EventBusBuilder withConflatingDispatchStrategy(Executor executor,
+			KeyExtractor keyExtractor) {
+		return this.eventDispatchStrategy(new ConflatingDispatchStrategy(
+				executor, keyExtractor));
+	}
+
+	public EventBusBuilder withPartitionedDispatchStrategy(int laneCount,
+			KeyExtractor keyExtractor) {
+		return this.eventDispatchStrategy(new PartitionedDispatchStrategy(
+				laneCount, keyExtractor));
+	}
+
+	public EventBusBuilder withRingBufferDispatchStrategy() {
+		return this.eventDispatchStrategy(new RingBufferDispatchStrategy());
+	}
+
+	public EventBusBuilder withRingBufferDispatchStrategy(int bufferSize,
+			ProducerType producerType, WaitStrategy waitStrategy) {
+		return this.eventDispatchStrategy(new RingBufferDispatchStrategy(
+				bufferSize, producerType, waitStrategy));
+	}
+
+	public EventBusBuilder withVirtualThreadDispatchStrategy() {
+		return this.eventDispatchStrategy(new VirtualThreadDispatchStrategy());
+	}
+
+	public EventBusBuilder withVirtualThreadDispatchStrategy(int maxConcurrency) {
+		return this.eventDispatchStrategy(new VirtualThreadDispatchStrategy(
+				maxConcurrency));
+	}
+
+	/**
+	 * Handler methods are found in indexes generated at compile time by
+	 * flexibus-processor. Classes without index are scanned by reflection.
+	 */
+	public EventBusBuilder withIndexedMethodHandlerFindingStrategy() {
+		this.indexedMethodHandlerFinder = true;
+		return this;
+	}
+
+	/**
+	 * Each listener is registered as a single handler that dispatches events
+	 * to all its handler methods. Cannot be combined with metrics, which are
+	 * recorded per handler method.
+	 */
+	public EventBusBuilder withDispatcherMethodHandlerFindingStrategy() {
+		this.dispatcherMethodHandlerFinder = true;
+		return this;
+	}
+
+	/**
+	 * Handler invocations are recorded in {@link EventBus#getMetrics()}.
+	 * Exceptions are counted only for handler methods found by the default
+	 * finding strategies.
+	 * <p>
+	 * Metrics are disabled by default. Every handler invocation passes
+	 * through an instrumenting wrapper, which costs roughly as much as a
+	 * whole synchronous dispatch to one handler.
+	 */
+	public EventBusBuilder metricsEnabled(boolean metricsEnabled) {
+		this.metricsEnabled = metricsEnabled;
+		return this;
+	}
+
+	/**
+	 * Enables handler metrics, see {@link #metricsEnabled(boolean)}.
+	 */
+	public EventBusBuilder withMetrics() {
+		return this.metricsEnabled(true);
+	}
+
+	/**
+	 * Handler invocations are watched by {@code handlerWatchdog}, which is
+	 * started when the event bus is built. Slow invocations are counted in
+	 * {@link EventBus#getMetrics()}, so metrics have to be enabled.
+	 */
+	public EventBusBuilder handlerWatchdog(HandlerWatchdog handlerWatchdog) {
+		this.handlerWatchdog = handlerWatchdog;
+		return this;
+	}
+
+	/**
+	 * Handler invocations running longer than {@code threshold} are logged
+	 * with the stack trace of the handling thread, see
+	 * {@link #handlerWatchdog(HandlerWatchdog)}.
+	 */
+	public EventBusBuilder withHandlerWatchdog(long threshold, TimeUnit unit) {
+		return this.handlerWatchdog(new HandlerWatchdog(threshold, unit));
+	}
+
+	/**
+	 * Built event bus is registered in the platform MBean server, see
+	 * {@link EventBus#registerMBean()}.
+	 */
+	public EventBusBuilder withMBean() {
+		this.mbeanRegistered = true;
+		return this;
+	}
+
 	public <A extends Annotation> EventBusBuilder annotatedMethodHandlerFindingStrategy(
 			Class<A> annotationType) {
 		this.methodHandlerFindingStrategy = new AnnotatedMethodHandlerFinder<A>(
-				annotationType);
+				annotationType, new CompletionExceptionHandler(
+						new ExceptionLoggingHandler()));
 		return this;
 	}
 
@@ -106,29 +279,68 @@ public class EventBusBuilder {
 	 * @return new instance of {@link EventBus}
 	 */
 	public EventBus buildEventBus(Object... handlers) {
+		if (handlerWatchdog != null && !metricsEnabled) {
+			throw new IllegalStateException(
+					"Handler watchdog requires enabled metrics");
+		}
+		if (exceptionHandler == null) {
+			exceptionHandler = new ExceptionLoggingHandler();
+		}
+		ExceptionHandler busExceptionHandler = new CompletionExceptionHandler(
+				exceptionHandler);
+		if (metricsEnabled) {
+			busExceptionHandler = new MetricsExceptionHandler(
+					busExceptionHandler);
+		}
 		if (methodHandlerFindingStrategy == null) {
-			if (exceptionHandler != null) {
-				methodHandlerFindingStrategy = new AnnotatedMethodHandlerFinder<EventHandler>(
-						EventHandler.class, exceptionHandler);
+			if (dispatcherMethodHandlerFinder) {
+				methodHandlerFindingStrategy = new DispatcherMethodHandlerFinder<EventHandler>(
+						EventHandler.class, busExceptionHandler);
+			} else if (indexedMethodHandlerFinder) {
+				methodHandlerFindingStrategy = new IndexedMethodHandlerFinder<EventHandler>(
+						EventHandler.class, busExceptionHandler);
 			} else {
 				methodHandlerFindingStrategy = new AnnotatedMethodHandlerFinder<EventHandler>(
-						EventHandler.class);
+						EventHandler.class, busExceptionHandler);
 			}
 		}
+		if (metricsEnabled
+				&& methodHandlerFindingStrategy instanceof DispatcherMethodHandlerFinder) {
+			throw new IllegalStateException(
+					"Dispatcher method handler finder does not support metrics");
+		}
+		if (eventDispatchStrategy == null && blockingAsyncTimeoutNanos >= 0) {
+			eventDispatchStrategy = new BlockingAsyncDispatchStrategy(
+					blockingAsyncTimeoutNanos, TimeUnit.NANOSECONDS,
+					busExceptionHandler);
+		}
 		if (eventDispatchStrategy == null) {
 			eventDispatchStrategy = new SingleThreadedAsyncDispatchStrategy();
 		}
 		if (logId == null) {
 			logId = "EventBus";
 		}
-		EventBus eventBus = new EventBus(logId, methodHandlerFindingStrategy,
-				eventDispatchStrategy);
+		MethodHandlerFinder finder = methodHandlerFindingStrategy;
+		EventBusMetrics metrics = EventBusMetrics.disabled();
+		if (metricsEnabled) {
+			metrics = new EventBusMetrics();
+			finder = new InstrumentedMethodHandlerFinder(finder, metrics,
+					handlerWatchdog);
+		}
+		EventBus eventBus = new EventBus(logId, finder, eventDispatchStrategy,
+				metrics);
 		if (deadEventLogHandler != null) {
 			eventBus.register(deadEventLogHandler);
 		}
 		for (Object handler : handlers) {
 			eventBus.register(handler);
 		}
+		if (handlerWatchdog != null) {
+			handlerWatchdog.start();
+		}
+		if (mbeanRegistered) {
+			eventBus.registerMBean();
+		}
 		return eventBus;
 	}
 }
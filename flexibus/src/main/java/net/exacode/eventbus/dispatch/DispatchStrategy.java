@@ -17,6 +17,7 @@
 package net.exacode.eventbus.dispatch;
 
 import java.util.Collection;
+import java.util.List;
 
 import net.exacode.eventbus.handler.MethodHandler;
 
@@ -39,4 +40,67 @@ public interface DispatchStrategy {
 	 *            - source eventBus
 	 */
 	void dispatchEvent(Object event, Collection<MethodHandler> handlerMethods);
+
+	/**
+	 * Dispatches {@code int} event. By default the event is boxed and passed
+	 * to {@link #dispatchEvent(Object, Collection)}.
+	 * 
+	 * @param event
+	 *            - event to be dispatched
+	 * @param handlerMethods
+	 *            - handlerMethods connected with event
+	 */
+	default void dispatchEvent(int event,
+			Collection<MethodHandler> handlerMethods) {
+		dispatchEvent(Integer.valueOf(event), handlerMethods);
+	}
+
+	/**
+	 * Dispatches {@code long} event. By default the event is boxed and passed
+	 * to {@link #dispatchEvent(Object, Collection)}.
+	 * 
+	 * @param event
+	 *            - event to be dispatched
+	 * @param handlerMethods
+	 *            - handlerMethods connected with event
+	 */
+	default void dispatchEvent(long event,
+			Collection<MethodHandler> handlerMethods) {
+		dispatchEvent(Long.valueOf(event), handlerMethods);
+	}
+
+	/**
+	 * Dispatches {@code double} event. By default the event is boxed and
+	 * passed to {@link #dispatchEvent(Object, Collection)}.
+	 * 
+	 * @param event
+	 *            - event to be dispatched
+	 * @param handlerMethods
+	 *            - handlerMethods connected with event
+	 */
+	default void dispatchEvent(double event,
+			Collection<MethodHandler> handlerMethods) {
+		dispatchEvent(Double.valueOf(event), handlerMethods);
+	}
+
+	/**
+	 * Dispatches a batch of events posted together. Event at index {@code i}
+	 * is handled by handler methods at the same index. By default events are
+	 * passed one by one to {@link #dispatchEvent(Object, Collection)}.
+	 * <p>
+	 * Lists are not modified after the call, so asynchronous strategies can
+	 * hand them over to worker threads.
+	 * 
+	 * @param events
+	 *            - events to be dispatched, in posting order
+	 * @param handlerMethods
+	 *            - handlerMethods connected with events
+	 */
+	default void dispatchEvents(List<Object> events,
+			List<Collection<MethodHandler>> handlerMethods) {
+		for (int i = 0; i < events.size(); ++i) {
+			dispatchEvent(events.get(i), handlerMethods.get(i));
+		}
+	}
+
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.dispatch;
+
+import net.exacode.eventbus.EventBus;
+
+/**
+ * {@link DispatchStrategy} that needs a reference to the {@link EventBus} it
+ * dispatches events for, e.g. to post notifications. The reference is set when
+ * the {@link EventBus} is created.
+ * 
+ * @author mendlik
+ * 
+ */
+public interface EventBusAware {
+
+	/**
+	 * @param eventBus
+	 *            event bus that uses this strategy
+	 */
+	void setEventBus(EventBus eventBus);
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.dispatch;
+
+/**
+ * Extracts a key from an event. Events with equal keys are related, e.g.
+ * concern the same entity.
+ * 
+ * @author mendlik
+ * 
+ */
+public interface KeyExtractor {
+
+	/**
+	 * @param event
+	 *            posted event
+	 * @return key of the event, may be {@code null}
+	 */
+	Object getKey(Object event);
+
+}
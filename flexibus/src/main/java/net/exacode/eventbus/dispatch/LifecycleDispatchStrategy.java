@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.dispatch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DispatchStrategy} that owns worker threads and has to be shut down
+ * to release them.
+ * 
+ * @author mendlik
+ * 
+ */
+public interface LifecycleDispatchStrategy extends DispatchStrategy {
+
+	/**
+	 * Starts worker threads. Strategies start lazily on the first dispatched
+	 * event, so calling this method is optional. Subsequent calls have no
+	 * effect.
+	 */
+	void start();
+
+	/**
+	 * Stops accepting new events. Events that were already dispatched are
+	 * still delivered.
+	 */
+	void shutdown();
+
+	/**
+	 * Blocks until all dispatched events are delivered after
+	 * {@link #shutdown()}, or the timeout occurs.
+	 * 
+	 * @param timeout
+	 *            the maximum time to wait
+	 * @param unit
+	 *            the time unit of the timeout argument
+	 * @return {@code true} if the strategy terminated, {@code false} if the
+	 *         timeout elapsed before termination
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	boolean awaitTermination(long timeout, TimeUnit unit)
+			throws InterruptedException;
+
+}
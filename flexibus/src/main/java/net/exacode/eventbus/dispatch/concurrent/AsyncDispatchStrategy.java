@@ -26,7 +26,8 @@ import net.exacode.eventbus.handler.MethodHandler;
  * Responsible for asynchronous event dispatching.
  * <p>
  * All events are executed in separate threads. You can customize thread pool by
- * providing your own {@link Executor}.
+ * providing your own {@link Executor}. Events posted as a batch are
+ * dispatched one by one as well, every handler invocation is a separate task.
  * 
  * @author mendlik
  * 
@@ -43,7 +44,8 @@ public class AsyncDispatchStrategy implements DispatchStrategy {
 	public void dispatchEvent(final Object event,
 			Collection<MethodHandler> handlerMethods) {
 		for (final MethodHandler methodHandler : handlerMethods) {
-			Runnable eventTask = new EventTask(event, methodHandler);
+			Runnable eventTask = new EventTask(event, methodHandler,
+					getClass());
 			executor.execute(eventTask);
 		}
 	}
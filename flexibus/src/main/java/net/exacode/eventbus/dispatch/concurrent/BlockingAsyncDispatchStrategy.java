@@ -19,12 +19,20 @@ package net.exacode.eventbus.dispatch.concurrent;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import net.exacode.eventbus.EventHandler;
 import net.exacode.eventbus.dispatch.DispatchStrategy;
+import net.exacode.eventbus.exception.ExceptionHandler;
+import net.exacode.eventbus.exception.ExceptionLoggingHandler;
+import net.exacode.eventbus.exception.HandlerTimeoutException;
 import net.exacode.eventbus.handler.MethodHandler;
+import net.exacode.eventbus.handler.TrackedMethodHandler;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +45,21 @@ import org.slf4j.LoggerFactory;
  * <p>
  * {@link #dispatchEvent(Object, Collection)} returns after all events are
  * dispatched and their threads stops.
+ * <p>
+ * Handler methods can be given a timeout, counted from the moment the event
+ * is dispatched. A handler method that overruns its timeout is interrupted,
+ * or abandoned if it did not start yet, and reported to the
+ * {@link ExceptionHandler} as {@link HandlerTimeoutException}. A
+ * {@link TrackedMethodHandler} that timed out is discarded with the
+ * exception, a later result of the handler method is ignored. Dispatching
+ * then returns within the longest timeout of the handler methods. The
+ * timeout of a handler method is {@link MethodHandler#getTimeoutMillis()},
+ * i.e. {@link EventHandler#timeoutMillis()}, or the default timeout of the
+ * strategy.
+ * <p>
+ * If the dispatching thread is interrupted, handler methods that did not
+ * finish yet are abandoned like after a timeout and the interrupt status of
+ * the thread is restored.
  * 
  * @author mendlik
  * 
@@ -47,28 +70,148 @@ public class BlockingAsyncDispatchStrategy implements DispatchStrategy {
 
 	private final ExecutorService executorService;
 
+	private final long defaultTimeoutNanos;
+
+	private final ExceptionHandler exceptionHandler;
+
 	public BlockingAsyncDispatchStrategy(ExecutorService executorService) {
-		this.executorService = executorService;
+		this(executorService, 0, TimeUnit.NANOSECONDS,
+				new ExceptionLoggingHandler());
 	}
 
 	public BlockingAsyncDispatchStrategy() {
+		this(0, TimeUnit.NANOSECONDS, new ExceptionLoggingHandler());
+	}
+
+	/**
+	 * @param defaultTimeout
+	 *            timeout of handler methods without own timeout, 0 means no
+	 *            timeout
+	 * @param unit
+	 *            the time unit of the timeout
+	 * @param exceptionHandler
+	 *            receives {@link HandlerTimeoutException}s
+	 */
+	public BlockingAsyncDispatchStrategy(long defaultTimeout, TimeUnit unit,
+			ExceptionHandler exceptionHandler) {
+		this(createExecutorService(), defaultTimeout, unit, exceptionHandler);
+	}
+
+	/**
+	 * @param defaultTimeout
+	 *            timeout of handler methods without own timeout, 0 means no
+	 *            timeout
+	 * @param unit
+	 *            the time unit of the timeout
+	 * @param exceptionHandler
+	 *            receives {@link HandlerTimeoutException}s
+	 */
+	public BlockingAsyncDispatchStrategy(ExecutorService executorService,
+			long defaultTimeout, TimeUnit unit,
+			ExceptionHandler exceptionHandler) {
+		if (defaultTimeout < 0) {
+			throw new IllegalArgumentException(
+					"Default timeout must not be negative, but was: "
+							+ defaultTimeout);
+		}
+		this.executorService = executorService;
+		this.defaultTimeoutNanos = unit.toNanos(defaultTimeout);
+		this.exceptionHandler = exceptionHandler;
+	}
+
+	private static ExecutorService createExecutorService() {
 		int threads = EventTask.threadNumberByLoadFactor(0.5);
-		logger.debug("Creating thread pool of size: {}", threads);
-		this.executorService = Executors.newFixedThreadPool(threads);
+		LoggerFactory.getLogger(BlockingAsyncDispatchStrategy.class).debug(
+				"Creating thread pool of size: {}", threads);
+		return Executors.newFixedThreadPool(threads);
 	}
 
 	@Override
 	public void dispatchEvent(final Object event,
 			Collection<MethodHandler> handlerMethods) {
-		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		long dispatchTime = System.nanoTime();
+		List<Future<?>> futures = new ArrayList<Future<?>>(
+				handlerMethods.size());
 		for (final MethodHandler methodHandler : handlerMethods) {
-			Runnable eventTask = new EventTask(event, methodHandler);
-			tasks.add(Executors.callable(eventTask));
+			Runnable eventTask = new EventTask(event, methodHandler,
+					getClass());
+			futures.add(executorService.submit(eventTask));
 		}
+		int i = 0;
 		try {
-			executorService.invokeAll(tasks);
+			for (MethodHandler methodHandler : handlerMethods) {
+				Future<?> future = futures.get(i++);
+				long timeoutNanos = timeoutOf(methodHandler);
+				if (timeoutNanos == 0) {
+					await(future);
+					continue;
+				}
+				long remainingNanos = dispatchTime + timeoutNanos
+						- System.nanoTime();
+				try {
+					await(future, Math.max(remainingNanos, 0));
+				} catch (TimeoutException e) {
+					HandlerTimeoutException timeout = new HandlerTimeoutException(
+							methodHandler, event, timeoutNanos,
+							TimeUnit.NANOSECONDS);
+					if (methodHandler instanceof TrackedMethodHandler) {
+						((TrackedMethodHandler) methodHandler).discard(timeout);
+					}
+					future.cancel(true);
+					exceptionHandler.handle(timeout);
+				}
+			}
 		} catch (InterruptedException e) {
-			logger.error("Could not dispatch events", e);
+			Thread.currentThread().interrupt();
+			logger.error("Could not dispatch event: {}", event, e);
+			abandon(handlerMethods, futures, i - 1, e);
 		}
 	}
+
+	/**
+	 * Cancels tasks of handler methods starting from {@code fromIndex},
+	 * tracked handler methods are discarded with the {@code failure} first.
+	 */
+	private static void abandon(Collection<MethodHandler> handlerMethods,
+			List<Future<?>> futures, int fromIndex, Throwable failure) {
+		int i = 0;
+		for (MethodHandler methodHandler : handlerMethods) {
+			Future<?> future = futures.get(i++);
+			if (i <= fromIndex || future.isDone()) {
+				continue;
+			}
+			if (methodHandler instanceof TrackedMethodHandler) {
+				((TrackedMethodHandler) methodHandler).discard(failure);
+			}
+			future.cancel(true);
+		}
+	}
+
+	private void await(Future<?> future) throws InterruptedException {
+		try {
+			future.get();
+		} catch (ExecutionException e) {
+			logger.error("Could not dispatch event", e.getCause());
+		}
+	}
+
+	private void await(Future<?> future, long timeoutNanos)
+			throws InterruptedException, TimeoutException {
+		try {
+			future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+		} catch (ExecutionException e) {
+			logger.error("Could not dispatch event", e.getCause());
+		}
+	}
+
+	/**
+	 * @return timeout of the handler method in nanoseconds, 0 means no
+	 *         timeout
+	 */
+	private long timeoutOf(MethodHandler methodHandler) {
+		long timeoutMillis = methodHandler.getTimeoutMillis();
+		return timeoutMillis < 0 ? defaultTimeoutNanos : TimeUnit.MILLISECONDS
+				.toNanos(timeoutMillis);
+	}
+
 }
@@ -0,0 +1,500 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.dispatch.concurrent;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.exacode.eventbus.DeadEvent;
+import net.exacode.eventbus.DroppedEvent;
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.dispatch.EventBusAware;
+import net.exacode.eventbus.dispatch.LifecycleDispatchStrategy;
+import net.exacode.eventbus.dispatch.MonitoredDispatchStrategy;
+import net.exacode.eventbus.handler.MethodHandler;
+import net.exacode.eventbus.handler.TrackedMethodHandler;
+import net.exacode.eventbus.jfr.FlightRecording;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Responsible for asynchronous event dispatching through a bounded queue.
+ * <p>
+ * Events are delivered by a fixed number of daemon worker threads, started
+ * with the first dispatched event. When the queue is full the
+ * {@link OverflowPolicy} decides what happens with the posted event. Dropped
+ * events are wrapped in {@link DroppedEvent} and posted to the event bus. A
+ * {@link DroppedEvent} that does not fit into the queue is delivered
+ * synchronously, so notifications are never lost. A batch of events is
+ * queued as a single task and the policy applies to the whole batch. Tracked deliveries of
+ * dropped events are discarded with {@link RejectedExecutionException}, see
+ * {@link TrackedMethodHandler}. If the posting thread is interrupted while it
+ * waits for free space, the event is not queued and its tracked deliveries
+ * are discarded with {@link InterruptedException}.
+ * <p>
+ * After {@link #shutdown()} workers deliver events that are already queued
+ * and posting is rejected with {@link RejectedExecutionException}, also for
+ * posting threads that wait for free space.
+ * <p>
+ * Events posted by handlers, from worker threads, are never blocked. They are
+ * delivered synchronously if the queue is full and the policy would block.
+ * Otherwise workers could wait for each other forever.
+ * 
+ * @author mendlik
+ * 
+ */
+public class BoundedAsyncDispatchStrategy implements
+		LifecycleDispatchStrategy, MonitoredDispatchStrategy, EventBusAware {
+
+	/**
+	 * Defines what happens with an event posted to a full queue.
+	 */
+	public enum OverflowPolicy {
+		/** Posting thread waits for free space. */
+		BLOCK,
+		/** Posting thread waits for free space, then the event is dropped. */
+		BLOCK_WITH_TIMEOUT,
+		/** Posted event is dropped. */
+		DROP_NEWEST,
+		/** The oldest queued event is dropped to make space. */
+		DROP_OLDEST,
+		/** Posted event is delivered synchronously by the posting thread. */
+		CALLER_RUNS
+	}
+
+	private static final long POLL_MILLIS = 100;
+
+	private static class DispatchTask implements Runnable {
+
+		private final Object event;
+
+		private final Collection<MethodHandler> handlerMethods;
+
+		private final Object queueWait = FlightRecording.beginQueueWait();
+
+		DispatchTask(Object event, Collection<MethodHandler> handlerMethods) {
+			this.event = event;
+			this.handlerMethods = handlerMethods;
+		}
+
+		int size() {
+			return 1;
+		}
+
+		Object getEvent(int index) {
+			return event;
+		}
+
+		Collection<MethodHandler> getHandlerMethods(int index) {
+			return handlerMethods;
+		}
+
+		boolean containsDroppedEvent() {
+			return event instanceof DroppedEvent;
+		}
+
+		void endQueueWait() {
+			FlightRecording.endQueueWait(queueWait,
+					BoundedAsyncDispatchStrategy.class, event);
+		}
+
+		void run(int index) {
+			Object event = getEvent(index);
+			for (MethodHandler methodHandler : getHandlerMethods(index)) {
+				methodHandler.handleEvent(event);
+			}
+		}
+
+		@Override
+		public void run() {
+			endQueueWait();
+			for (int i = 0; i < size(); ++i) {
+				run(i);
+			}
+		}
+
+	}
+
+	private static class BatchDispatchTask extends DispatchTask {
+
+		private final List<Object> events;
+
+		private final List<Collection<MethodHandler>> handlerMethods;
+
+		BatchDispatchTask(List<Object> events,
+				List<Collection<MethodHandler>> handlerMethods) {
+			super(events.get(0), handlerMethods.get(0));
+			this.events = events;
+			this.handlerMethods = handlerMethods;
+		}
+
+		@Override
+		int size() {
+			return events.size();
+		}
+
+		@Override
+		Object getEvent(int index) {
+			return events.get(index);
+		}
+
+		@Override
+		Collection<MethodHandler> getHandlerMethods(int index) {
+			return handlerMethods.get(index);
+		}
+
+		@Override
+		boolean containsDroppedEvent() {
+			for (Object event : events) {
+				if (event instanceof DroppedEvent) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+	}
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final BlockingQueue<DispatchTask> queue;
+
+	private final OverflowPolicy overflowPolicy;
+
+	private final long timeoutNanos;
+
+	private final Thread[] workers;
+
+	private final CountDownLatch terminated;
+
+	private final AtomicInteger activeCount = new AtomicInteger();
+
+	private final ThreadLocal<Boolean> insideWorker = new ThreadLocal<Boolean>();
+
+	private volatile boolean started;
+
+	private volatile boolean running = true;
+
+	private volatile EventBus eventBus;
+
+	/**
+	 * Creates strategy with one worker thread.
+	 * 
+	 * @param capacity
+	 *            maximal number of queued events, a batch of events takes one
+	 *            place
+	 * @param overflowPolicy
+	 *            defines what happens with events posted to a full queue
+	 */
+	public BoundedAsyncDispatchStrategy(int capacity,
+			OverflowPolicy overflowPolicy) {
+		this(1, capacity, overflowPolicy, 0, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @param threadCount
+	 *            number of worker threads
+	 * @param capacity
+	 *            maximal number of queued events, a batch of events takes one
+	 *            place
+	 * @param overflowPolicy
+	 *            defines what happens with events posted to a full queue
+	 * @param timeout
+	 *            maximal time of waiting for free space, used by
+	 *            {@link OverflowPolicy#BLOCK_WITH_TIMEOUT}
+	 * @param unit
+	 *            the time unit of the timeout argument
+	 */
+	public BoundedAsyncDispatchStrategy(int threadCount, int capacity,
+			OverflowPolicy overflowPolicy, long timeout, TimeUnit unit) {
+		if (threadCount < 1) {
+			throw new IllegalArgumentException(
+					"Thread count must be positive, but was: " + threadCount);
+		}
+		this.queue = new ArrayBlockingQueue<DispatchTask>(capacity);
+		this.overflowPolicy = overflowPolicy;
+		this.timeoutNanos = unit.toNanos(timeout);
+		this.terminated = new CountDownLatch(threadCount);
+		DaemonThreadFactory threadFactory = new DaemonThreadFactory(getClass()
+				.getSimpleName());
+		this.workers = new Thread[threadCount];
+		for (int i = 0; i < threadCount; ++i) {
+			workers[i] = threadFactory.newThread(new Runnable() {
+				@Override
+				public void run() {
+					consume();
+				}
+			});
+		}
+	}
+
+	@Override
+	public void setEventBus(EventBus eventBus) {
+		this.eventBus = eventBus;
+	}
+
+	@Override
+	public void dispatchEvent(Object event,
+			Collection<MethodHandler> handlerMethods) {
+		if (!started) {
+			start();
+		}
+		if (!running) {
+			throw new RejectedExecutionException(this + " was shut down");
+		}
+		dispatch(new DispatchTask(event, handlerMethods));
+	}
+
+	/**
+	 * Queues the whole batch as a single task, so it takes one place in the
+	 * queue.
+	 */
+	@Override
+	public void dispatchEvents(List<Object> events,
+			List<Collection<MethodHandler>> handlerMethods) {
+		if (events.isEmpty()) {
+			return;
+		}
+		if (!started) {
+			start();
+		}
+		if (!running) {
+			throw new RejectedExecutionException(this + " was shut down");
+		}
+		dispatch(new BatchDispatchTask(events, handlerMethods));
+	}
+
+	private void dispatch(DispatchTask task) {
+		if (queue.offer(task)) {
+			rejectIfShutDown(task);
+			return;
+		}
+		OverflowPolicy policy = overflowPolicy;
+		if (task.containsDroppedEvent()) {
+			policy = OverflowPolicy.CALLER_RUNS;
+		} else if (insideWorker.get() != null
+				&& (policy == OverflowPolicy.BLOCK || policy == OverflowPolicy.BLOCK_WITH_TIMEOUT)) {
+			policy = OverflowPolicy.CALLER_RUNS;
+		}
+		try {
+			switch (policy) {
+			case BLOCK:
+				if (!offer(task, Long.MAX_VALUE)) {
+					throw new RejectedExecutionException(this
+							+ " was shut down");
+				}
+				rejectIfShutDown(task);
+				break;
+			case BLOCK_WITH_TIMEOUT:
+				if (offer(task, timeoutNanos)) {
+					rejectIfShutDown(task);
+				} else if (!running) {
+					throw new RejectedExecutionException(this
+							+ " was shut down");
+				} else {
+					drop(task);
+				}
+				break;
+			case DROP_NEWEST:
+				drop(task);
+				break;
+			case DROP_OLDEST:
+				while (!queue.offer(task)) {
+					DispatchTask oldest = queue.poll();
+					if (oldest != null) {
+						drop(oldest);
+					}
+				}
+				rejectIfShutDown(task);
+				break;
+			case CALLER_RUNS:
+				task.run();
+				break;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			for (int i = 0; i < task.size(); ++i) {
+				logger.error("Could not dispatch event: {}", task.getEvent(i),
+						e);
+				discard(task.getHandlerMethods(i), e);
+			}
+		}
+	}
+
+	/**
+	 * Waits for free space in the queue, but not after shutdown, when
+	 * workers may not take queued tasks anymore.
+	 * 
+	 * @return {@code false} if the timeout elapsed or the strategy was shut
+	 *         down
+	 */
+	private boolean offer(DispatchTask task, long timeoutNanos)
+			throws InterruptedException {
+		long deadline = System.nanoTime() + timeoutNanos;
+		long remainingNanos = timeoutNanos;
+		long pollNanos = TimeUnit.MILLISECONDS.toNanos(POLL_MILLIS);
+		while (running) {
+			if (queue.offer(task, Math.min(remainingNanos, pollNanos),
+					TimeUnit.NANOSECONDS)) {
+				return true;
+			}
+			if (timeoutNanos != Long.MAX_VALUE) {
+				remainingNanos = deadline - System.nanoTime();
+				if (remainingNanos <= 0) {
+					return false;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Takes back a task queued after shutdown, unless a worker, draining the
+	 * queue, already took it.
+	 */
+	private void rejectIfShutDown(DispatchTask task) {
+		if (!running && queue.remove(task)) {
+			throw new RejectedExecutionException(this + " was shut down");
+		}
+	}
+
+	@Override
+	public synchronized void start() {
+		if (!started && running) {
+			for (Thread worker : workers) {
+				worker.start();
+			}
+			started = true;
+		}
+	}
+
+	@Override
+	public synchronized void shutdown() {
+		running = false;
+		if (!started) {
+			for (int i = 0; i < workers.length; ++i) {
+				terminated.countDown();
+			}
+		}
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit)
+			throws InterruptedException {
+		return terminated.await(timeout, unit);
+	}
+
+	/**
+	 * @return number of events waiting for delivery, a batch of events is
+	 *         counted once
+	 */
+	@Override
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	@Override
+	public int getActiveCount() {
+		return activeCount.get();
+	}
+
+	private void drop(DispatchTask task) {
+		for (int i = 0; i < task.size(); ++i) {
+			drop(task.getEvent(i), task.getHandlerMethods(i));
+		}
+	}
+
+	private void drop(Object event, Collection<MethodHandler> handlerMethods) {
+		discard(handlerMethods, new RejectedExecutionException(
+				"Dropped event: " + event));
+		EventBus bus = eventBus;
+		if (bus == null || event instanceof DroppedEvent
+				|| event instanceof DeadEvent) {
+			logger.warn("Dropped event: {}", event);
+		} else {
+			bus.post(new DroppedEvent(event));
+		}
+	}
+
+	private static void discard(Collection<MethodHandler> handlerMethods,
+			Throwable failure) {
+		for (MethodHandler methodHandler : handlerMethods) {
+			if (methodHandler instanceof TrackedMethodHandler) {
+				((TrackedMethodHandler) methodHandler).discard(failure);
+			}
+		}
+	}
+
+	/**
+	 * Delivers tasks queued before posters noticed the shutdown.
+	 */
+	private void drain() {
+		DispatchTask task;
+		while ((task = queue.poll()) != null) {
+			deliver(task);
+		}
+	}
+
+	/**
+	 * Delivers events of the task one by one, so a failing event does not
+	 * abort the rest of a batch.
+	 */
+	private void deliver(DispatchTask task) {
+		activeCount.incrementAndGet();
+		try {
+			task.endQueueWait();
+			for (int i = 0; i < task.size(); ++i) {
+				try {
+					task.run(i);
+				} catch (RuntimeException e) {
+					logger.error("Could not deliver event: {}",
+							task.getEvent(i), e);
+				}
+			}
+		} finally {
+			activeCount.decrementAndGet();
+		}
+	}
+
+	private void consume() {
+		insideWorker.set(Boolean.TRUE);
+		try {
+			while (true) {
+				DispatchTask task = queue.poll(POLL_MILLIS,
+						TimeUnit.MILLISECONDS);
+				if (task != null) {
+					deliver(task);
+				} else if (!running) {
+					drain();
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			logger.error("Worker thread was interrupted", e);
+		} finally {
+			terminated.countDown();
+		}
+	}
+
+}
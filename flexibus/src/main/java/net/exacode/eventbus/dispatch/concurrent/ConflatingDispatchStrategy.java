@@ -0,0 +1,311 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.dispatch.concurrent;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.exacode.eventbus.dispatch.DispatchStrategy;
+import net.exacode.eventbus.dispatch.KeyExtractor;
+import net.exacode.eventbus.handler.MethodHandler;
+import net.exacode.eventbus.handler.TrackedMethodHandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Responsible for asynchronous event dispatching with conflation.
+ * <p>
+ * Every handler method keeps at most one pending event per key returned from
+ * {@link KeyExtractor}. An event dispatched while an older event with the
+ * same key still waits for the handler replaces the older one, so slow
+ * handlers receive only the latest values instead of growing backlog. Events
+ * of a (handler method, key) pair are delivered one at a time, by threads of
+ * the {@link Executor}. Events with {@code null} key are never conflated.
+ * <p>
+ * A slot of a (handler method, key) pair exists only while it has a pending
+ * event or delivers one. A drained slot is removed, so the strategy does not
+ * retain keys or unregistered handler methods, but every burst of events of
+ * a key allocates a new slot.
+ * <p>
+ * A thread delivers at most {@code throughput} events from a slot and then
+ * resubmits the slot, so keys that are updated continuously do not
+ * monopolize the pool.
+ * <p>
+ * Tracked deliveries of conflated events are discarded as not needed, see
+ * {@link TrackedMethodHandler}.
+ * 
+ * @author mendlik
+ * 
+ */
+public class ConflatingDispatchStrategy implements DispatchStrategy {
+
+	public static final int DEFAULT_THROUGHPUT = 16;
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private static final class SlotKey {
+
+		private final MethodHandler handler;
+
+		private final Object key;
+
+		SlotKey(MethodHandler handler, Object key) {
+			this.handler = handler;
+			this.key = key;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * handler.hashCode() + key.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof SlotKey))
+				return false;
+			SlotKey other = (SlotKey) obj;
+			return handler.equals(other.handler) && key.equals(other.key);
+		}
+
+	}
+
+	/**
+	 * Pending event with the handler that tracks its delivery.
+	 */
+	private static final class TrackedEvent {
+
+		private final Object event;
+
+		private final TrackedMethodHandler handler;
+
+		TrackedEvent(Object event, TrackedMethodHandler handler) {
+			this.event = event;
+			this.handler = handler;
+		}
+
+	}
+
+	/**
+	 * Pending value of a drained slot that was removed from {@link #slots}.
+	 */
+	private static final Object RETIRED = new Object();
+
+	private final class Slot implements Runnable {
+
+		private final SlotKey key;
+
+		private final MethodHandler handler;
+
+		private final AtomicReference<Object> pending = new AtomicReference<Object>();
+
+		/**
+		 * Set when the slot is submitted to the executor, the slot runs once
+		 * and retires when drained.
+		 */
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		Slot(SlotKey key) {
+			this.key = key;
+			this.handler = key.handler;
+		}
+
+		/**
+		 * @return {@code false} if the slot is retired and the event has to
+		 *         be offered to a new slot
+		 */
+		boolean offer(Object event) {
+			Object replaced;
+			do {
+				replaced = pending.get();
+				if (replaced == RETIRED) {
+					return false;
+				}
+			} while (!pending.compareAndSet(replaced, event));
+			if (replaced != null) {
+				conflatedCount.increment();
+				if (replaced instanceof TrackedEvent) {
+					((TrackedEvent) replaced).handler.discard(null);
+				}
+			} else if (scheduled.compareAndSet(false, true)) {
+				try {
+					executor.execute(this);
+				} catch (RejectedExecutionException e) {
+					retire();
+					Object lost = pending.getAndSet(RETIRED);
+					if (lost != event && lost instanceof TrackedEvent) {
+						((TrackedEvent) lost).handler.discard(e);
+					}
+					throw e;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public void run() {
+			for (int i = 0; i < throughput; ++i) {
+				Object event = pending.getAndSet(null);
+				if (event == null) {
+					// fails if an event was offered after the last one
+					if (pending.compareAndSet(null, RETIRED)) {
+						retire();
+						return;
+					}
+					continue;
+				}
+				try {
+					if (event instanceof TrackedEvent) {
+						TrackedEvent trackedEvent = (TrackedEvent) event;
+						trackedEvent.handler.handleEvent(trackedEvent.event);
+					} else {
+						handler.handleEvent(event);
+					}
+				} catch (Throwable e) {
+					// an escaping error would leave the slot scheduled, so
+					// the key would never be delivered again
+					logger.error("Could not deliver event to: {}",
+							handler.getTarget(), e);
+				}
+			}
+			reschedule();
+		}
+
+		private void reschedule() {
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				retire();
+				Object lost = pending.getAndSet(RETIRED);
+				if (lost instanceof TrackedEvent) {
+					((TrackedEvent) lost).handler.discard(e);
+				}
+				if (lost != null) {
+					logger.error("Could not deliver event to: {}",
+							handler.getTarget(), e);
+				}
+			}
+		}
+
+		void retire() {
+			slots.remove(key, this);
+		}
+
+	}
+
+	private final ConcurrentMap<SlotKey, Slot> slots = new ConcurrentHashMap<SlotKey, Slot>();
+
+	private final LongAdder conflatedCount = new LongAdder();
+
+	private final Executor executor;
+
+	private final KeyExtractor keyExtractor;
+
+	private final int throughput;
+
+	/**
+	 * @param executor
+	 *            executor that delivers events
+	 * @param keyExtractor
+	 *            extracts conflation keys from events
+	 */
+	public ConflatingDispatchStrategy(Executor executor,
+			KeyExtractor keyExtractor) {
+		this(executor, keyExtractor, DEFAULT_THROUGHPUT);
+	}
+
+	/**
+	 * @param executor
+	 *            executor that delivers events
+	 * @param keyExtractor
+	 *            extracts conflation keys from events
+	 * @param throughput
+	 *            maximal number of events delivered from a slot before the
+	 *            thread is released to other slots
+	 */
+	public ConflatingDispatchStrategy(Executor executor,
+			KeyExtractor keyExtractor, int throughput) {
+		if (throughput < 1) {
+			throw new IllegalArgumentException(
+					"Throughput must be positive, but was: " + throughput);
+		}
+		this.executor = executor;
+		this.keyExtractor = keyExtractor;
+		this.throughput = throughput;
+	}
+
+	@Override
+	public void dispatchEvent(Object event,
+			Collection<MethodHandler> handlerMethods) {
+		Object key = keyExtractor.getKey(event);
+		for (MethodHandler methodHandler : handlerMethods) {
+			if (key == null) {
+				executor.execute(new EventTask(event, methodHandler,
+						getClass()));
+				continue;
+			}
+			// slots outlive the dispatch, so they keep the tracked handler
+			MethodHandler slotHandler = methodHandler;
+			Object pendingEvent = event;
+			if (methodHandler instanceof TrackedMethodHandler) {
+				TrackedMethodHandler trackedHandler = (TrackedMethodHandler) methodHandler;
+				slotHandler = trackedHandler.getDelegate();
+				pendingEvent = new TrackedEvent(event, trackedHandler);
+			}
+			SlotKey slotKey = new SlotKey(slotHandler, key);
+			for (;;) {
+				Slot slot = slots.get(slotKey);
+				if (slot == null) {
+					Slot created = new Slot(slotKey);
+					slot = slots.putIfAbsent(slotKey, created);
+					if (slot == null) {
+						slot = created;
+					}
+				}
+				if (slot.offer(pendingEvent)) {
+					break;
+				}
+				// drained meanwhile, the worker may not have removed it yet
+				slot.retire();
+			}
+		}
+	}
+
+	/**
+	 * @return number of events replaced by newer events before delivery
+	 */
+	public long getConflatedCount() {
+		return conflatedCount.sum();
+	}
+
+	/**
+	 * @return number of (handler method, key) pairs with a pending or
+	 *         delivered event
+	 */
+	public int getSlotCount() {
+		return slots.size();
+	}
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.dispatch.concurrent;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates named daemon threads for dispatch strategies, so an event bus that
+ * was not shut down does not prevent JVM from exiting. Strategies that must
+ * deliver queued events before JVM exits may ask for non daemon threads.
+ * 
+ * @author mendlik
+ * 
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+
+	private final String namePrefix;
+
+	private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+	private final boolean daemon;
+
+	public DaemonThreadFactory(String namePrefix) {
+		this(namePrefix, true);
+	}
+
+	/**
+	 * @param namePrefix
+	 *            prefix of thread names, followed by the thread number
+	 * @param daemon
+	 *            whether created threads are daemon threads
+	 */
+	public DaemonThreadFactory(String namePrefix, boolean daemon) {
+		this.namePrefix = namePrefix;
+		this.daemon = daemon;
+	}
+
+	@Override
+	public Thread newThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, namePrefix + "-"
+				+ threadNumber.getAndIncrement());
+		thread.setDaemon(daemon);
+		return thread;
+	}
+
+}
@@ -1,6 +1,8 @@
 package net.exacode.eventbus.dispatch.concurrent;
 
 import net.exacode.eventbus.handler.MethodHandler;
+import net.exacode.eventbus.jfr.FlightRecording;
+import net.exacode.eventbus.jfr.QueueWaitEvent;
 
 public class EventTask implements Runnable {
 
@@ -14,13 +16,33 @@ public class EventTask implements Runnable {
 
 	private final MethodHandler handler;
 
+	private final Class<?> strategy;
+
+	private final Object queueWait;
+
+	/**
+	 * Creates task that is recorded in {@link QueueWaitEvent} as queued by
+	 * {@link EventTask}, for callers that do not pass the dispatch strategy.
+	 */
 	public EventTask(Object event, MethodHandler handler) {
+		this(event, handler, EventTask.class);
+	}
+
+	/**
+	 * @param strategy
+	 *            class of the dispatch strategy that queues the task, recorded
+	 *            in {@link QueueWaitEvent}
+	 */
+	public EventTask(Object event, MethodHandler handler, Class<?> strategy) {
 		this.event = event;
 		this.handler = handler;
+		this.strategy = strategy;
+		this.queueWait = FlightRecording.beginQueueWait();
 	}
 
 	@Override
 	public void run() {
+		FlightRecording.endQueueWait(queueWait, strategy, event);
 		handler.handleEvent(event);
 	}
 
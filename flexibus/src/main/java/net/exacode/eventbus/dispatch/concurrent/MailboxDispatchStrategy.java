@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.dispatch.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.exacode.eventbus.dispatch.DispatchStrategy;
+import net.exacode.eventbus.handler.MethodHandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Responsible for asynchronous event dispatching.
+ * <p>
+ * Every handler object ({@link MethodHandler#getTarget()}) has its own
+ * mailbox. Mailbox is drained by at most one thread of the {@link Executor}
+ * at a time, so handler methods of one object are invoked serially, in the
+ * order events were dispatched by a posting thread. Different handler objects
+ * are served in parallel. Handler objects are distinguished by
+ * {@link Object#equals(Object)}.
+ * <p>
+ * A thread drains at most {@code throughput} events from a mailbox and then
+ * resubmits the mailbox, so busy handler objects do not monopolize the pool.
+ * Empty mailboxes are discarded.
+ * 
+ * @author mendlik
+ * 
+ */
+public class MailboxDispatchStrategy implements DispatchStrategy {
+
+	public static final int DEFAULT_THROUGHPUT = 16;
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final class Mailbox implements Runnable {
+
+		private final Object target;
+
+		private final Queue<EventTask> queue = new ConcurrentLinkedQueue<EventTask>();
+
+		/**
+		 * Number of enqueued and not yet delivered events. Negative value
+		 * means that the mailbox was discarded.
+		 */
+		private final AtomicInteger pending = new AtomicInteger();
+
+		Mailbox(Object target) {
+			this.target = target;
+		}
+
+		@Override
+		public void run() {
+			for (int i = 0; i < throughput; ++i) {
+				EventTask eventTask = queue.poll();
+				if (eventTask == null) {
+					// poster counted the event, but did not enqueue it yet
+					break;
+				}
+				try {
+					eventTask.run();
+				} catch (Throwable e) {
+					// an escaping error would leave the mailbox counted, but
+					// never scheduled again
+					logger.error("Could not deliver event to: {}", target, e);
+				}
+				if (pending.decrementAndGet() == 0) {
+					if (pending.compareAndSet(0, -1)) {
+						mailboxes.remove(target, this);
+					}
+					return;
+				}
+			}
+			schedule();
+		}
+
+		/**
+		 * Counts {@code count} events before they are enqueued.
+		 * 
+		 * @return previous number of pending events, or -1 if the mailbox
+		 *         was discarded
+		 */
+		int reserve(int count) {
+			for (;;) {
+				int current = pending.get();
+				if (current < 0) {
+					return -1;
+				}
+				if (pending.compareAndSet(current, current + count)) {
+					return current;
+				}
+			}
+		}
+
+		void schedule() {
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				pending.set(-1);
+				mailboxes.remove(target, this);
+				throw e;
+			}
+		}
+
+	}
+
+	private final ConcurrentMap<Object, Mailbox> mailboxes = new ConcurrentHashMap<Object, Mailbox>();
+
+	private final Executor executor;
+
+	private final int throughput;
+
+	public MailboxDispatchStrategy(Executor executor) {
+		this(executor, DEFAULT_THROUGHPUT);
+	}
+
+	/**
+	 * @param executor
+	 *            executor that drains mailboxes
+	 * @param throughput
+	 *            maximal number of events delivered from a mailbox before
+	 *            the thread is released to other mailboxes
+	 */
+	public MailboxDispatchStrategy(Executor executor, int throughput) {
+		if (throughput < 1) {
+			throw new IllegalArgumentException(
+					"Throughput must be positive, but was: " + throughput);
+		}
+		this.executor = executor;
+		this.throughput = throughput;
+	}
+
+	@Override
+	public void dispatchEvent(Object event,
+			Collection<MethodHandler> handlerMethods) {
+		for (MethodHandler methodHandler : handlerMethods) {
+			enqueue(methodHandler.getTarget(), new EventTask(event,
+					methodHandler, getClass()));
+		}
+	}
+
+	/**
+	 * Groups the batch by handler objects, so every mailbox is counted and
+	 * scheduled once per batch.
+	 */
+	@Override
+	public void dispatchEvents(List<Object> events,
+			List<Collection<MethodHandler>> handlerMethods) {
+		Map<Object, List<EventTask>> eventTasks = new LinkedHashMap<Object, List<EventTask>>();
+		for (int i = 0; i < events.size(); ++i) {
+			Object event = events.get(i);
+			for (MethodHandler methodHandler : handlerMethods.get(i)) {
+				List<EventTask> targetTasks = eventTasks.get(methodHandler
+						.getTarget());
+				if (targetTasks == null) {
+					targetTasks = new ArrayList<EventTask>();
+					eventTasks.put(methodHandler.getTarget(), targetTasks);
+				}
+				targetTasks.add(new EventTask(event, methodHandler, getClass()));
+			}
+		}
+		for (Map.Entry<Object, List<EventTask>> entry : eventTasks.entrySet()) {
+			enqueue(entry.getKey(), entry.getValue());
+		}
+	}
+
+	private void enqueue(Object target, EventTask eventTask) {
+		for (;;) {
+			Mailbox mailbox = getMailbox(target);
+			int pending = mailbox.reserve(1);
+			if (pending < 0) {
+				mailboxes.remove(target, mailbox);
+			} else {
+				mailbox.queue.offer(eventTask);
+				if (pending == 0) {
+					mailbox.schedule();
+				}
+				return;
+			}
+		}
+	}
+
+	private void enqueue(Object target, List<EventTask> eventTasks) {
+		for (;;) {
+			Mailbox mailbox = getMailbox(target);
+			int pending = mailbox.reserve(eventTasks.size());
+			if (pending < 0) {
+				mailboxes.remove(target, mailbox);
+			} else {
+				mailbox.queue.addAll(eventTasks);
+				if (pending == 0) {
+					mailbox.schedule();
+				}
+				return;
+			}
+		}
+	}
+
+	private Mailbox getMailbox(Object target) {
+		Mailbox mailbox = mailboxes.get(target);
+		if (mailbox == null) {
+			Mailbox created = new Mailbox(target);
+			mailbox = mailboxes.putIfAbsent(target, created);
+			if (mailbox == null) {
+				mailbox = created;
+			}
+		}
+		return mailbox;
+	}
+
+	/**
+	 * @return number of handler objects with events waiting for delivery
+	 */
+	public int getMailboxCount() {
+		return mailboxes.size();
+	}
+
+}
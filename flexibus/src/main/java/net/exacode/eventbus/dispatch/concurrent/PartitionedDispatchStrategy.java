@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.dispatch.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.exacode.eventbus.dispatch.KeyExtractor;
+import net.exacode.eventbus.dispatch.LifecycleDispatchStrategy;
+import net.exacode.eventbus.dispatch.MonitoredDispatchStrategy;
+import net.exacode.eventbus.handler.MethodHandler;
+
+/**
+ * Responsible for asynchronous event dispatching.
+ * <p>
+ * Events are partitioned by keys returned from {@link KeyExtractor}. Each key
+ * is hashed to one of single-threaded lanes, so events with equal keys are
+ * delivered in the order they were dispatched, while events with different
+ * keys may be delivered in parallel. Events with {@code null} key go to the
+ * first lane.
+ * <p>
+ * Use {@link #getQueueSizes()} to find lanes overloaded by hot keys.
+ * 
+ * @author mendlik
+ * 
+ */
+public class PartitionedDispatchStrategy implements
+		LifecycleDispatchStrategy, MonitoredDispatchStrategy {
+
+	private final KeyExtractor keyExtractor;
+
+	private final SingleThreadedAsyncDispatchStrategy[] lanes;
+
+	public PartitionedDispatchStrategy(KeyExtractor keyExtractor) {
+		this(EventTask.threadNumberByLoadFactor(1), keyExtractor);
+	}
+
+	/**
+	 * @param laneCount
+	 *            number of lanes, each served by one thread
+	 * @param keyExtractor
+	 *            extracts partitioning keys from events
+	 */
+	public PartitionedDispatchStrategy(int laneCount,
+			KeyExtractor keyExtractor) {
+		if (laneCount < 1) {
+			throw new IllegalArgumentException(
+					"Lane count must be positive, but was: " + laneCount);
+		}
+		this.keyExtractor = keyExtractor;
+		this.lanes = new SingleThreadedAsyncDispatchStrategy[laneCount];
+		for (int i = 0; i < laneCount; ++i) {
+			lanes[i] = new SingleThreadedAsyncDispatchStrategy(getClass()
+					.getSimpleName() + "-" + i);
+		}
+	}
+
+	@Override
+	public void dispatchEvent(Object event,
+			Collection<MethodHandler> handlerMethods) {
+		lanes[laneOf(event)].dispatchEvent(event, handlerMethods);
+	}
+
+	/**
+	 * Splits the batch by lanes, so every lane queues its part of the batch
+	 * at once.
+	 */
+	@Override
+	public void dispatchEvents(List<Object> events,
+			List<Collection<MethodHandler>> handlerMethods) {
+		List<List<Object>> laneEvents = new ArrayList<List<Object>>(
+				lanes.length);
+		List<List<Collection<MethodHandler>>> laneHandlerMethods = new ArrayList<List<Collection<MethodHandler>>>(
+				lanes.length);
+		for (int i = 0; i < lanes.length; ++i) {
+			laneEvents.add(null);
+			laneHandlerMethods.add(null);
+		}
+		for (int i = 0; i < events.size(); ++i) {
+			Object event = events.get(i);
+			int lane = laneOf(event);
+			if (laneEvents.get(lane) == null) {
+				laneEvents.set(lane, new ArrayList<Object>());
+				laneHandlerMethods.set(lane,
+						new ArrayList<Collection<MethodHandler>>());
+			}
+			laneEvents.get(lane).add(event);
+			laneHandlerMethods.get(lane).add(handlerMethods.get(i));
+		}
+		for (int i = 0; i < lanes.length; ++i) {
+			if (laneEvents.get(i) != null) {
+				lanes[i].dispatchEvents(laneEvents.get(i),
+						laneHandlerMethods.get(i));
+			}
+		}
+	}
+
+	@Override
+	public void start() {
+		for (SingleThreadedAsyncDispatchStrategy lane : lanes) {
+			lane.start();
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		for (SingleThreadedAsyncDispatchStrategy lane : lanes) {
+			lane.shutdown();
+		}
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit)
+			throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (SingleThreadedAsyncDispatchStrategy lane : lanes) {
+			long remaining = deadline - System.nanoTime();
+			if (!lane.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return number of lanes
+	 */
+	public int getLaneCount() {
+		return lanes.length;
+	}
+
+	/**
+	 * @param event
+	 *            posted event
+	 * @return index of the lane that delivers the event
+	 */
+	public int laneOf(Object event) {
+		Object key = keyExtractor.getKey(event);
+		if (key == null) {
+			return 0;
+		}
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return (hash & Integer.MAX_VALUE) % lanes.length;
+	}
+
+	/**
+	 * @return number of events waiting for delivery in each lane
+	 */
+	public int[] getQueueSizes() {
+		int[] sizes = new int[lanes.length];
+		for (int i = 0; i < lanes.length; ++i) {
+			sizes[i] = lanes[i].getQueueSize();
+		}
+		return sizes;
+	}
+
+	/**
+	 * @return number of events waiting for delivery in all lanes
+	 */
+	@Override
+	public int getQueueSize() {
+		int size = 0;
+		for (SingleThreadedAsyncDispatchStrategy lane : lanes) {
+			size += lane.getQueueSize();
+		}
+		return size;
+	}
+
+	@Override
+	public int getActiveCount() {
+		int count = 0;
+		for (SingleThreadedAsyncDispatchStrategy lane : lanes) {
+			count += lane.getActiveCount();
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.dispatch.concurrent;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import net.exacode.eventbus.dispatch.LifecycleDispatchStrategy;
+import net.exacode.eventbus.dispatch.MonitoredDispatchStrategy;
+import net.exacode.eventbus.handler.MethodHandler;
+import net.exacode.eventbus.jfr.FlightRecording;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Responsible for asynchronous event dispatching through a preallocated ring
+ * buffer (see <a href="https://lmax-exchange.github.io/disruptor/">LMAX
+ * Disruptor</a>).
+ * <p>
+ * Posting threads claim slots by sequence numbers, fill them and publish them.
+ * One long-lived worker thread consumes the slots in order and delivers
+ * events. Slots are reused, so dispatching an event allocates nothing. When
+ * the buffer is full posting threads wait for the worker according to the
+ * {@link WaitStrategy}.
+ * <p>
+ * {@link ProducerType#SINGLE} may be used only if events are posted by one
+ * thread at a time. It avoids atomic claim of slots.
+ * <p>
+ * Events posted by handlers, from the worker thread, are delivered
+ * synchronously. Otherwise the worker could wait for a free slot forever.
+ * 
+ * @author mendlik
+ * 
+ */
+public class RingBufferDispatchStrategy implements
+		LifecycleDispatchStrategy, MonitoredDispatchStrategy {
+
+	/**
+	 * Number of threads that post events.
+	 */
+	public enum ProducerType {
+		/** Events are posted by one thread at a time. */
+		SINGLE,
+		/** Events are posted by many threads concurrently. */
+		MULTI
+	}
+
+	public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+	private static final class Slot {
+		Object event;
+		Collection<MethodHandler> handlerMethods;
+		Object queueWait;
+	}
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final Slot[] slots;
+
+	private final int mask;
+
+	private final int indexShift;
+
+	private final ProducerType producerType;
+
+	private final WaitStrategy waitStrategy;
+
+	/**
+	 * Last claimed sequence in {@link ProducerType#SINGLE} mode. Volatile, so
+	 * that a producer that passed the running check after claiming is seen
+	 * by the consumer draining the buffer after shutdown.
+	 */
+	private volatile long singleProducerSequence = -1;
+
+	/** last claimed sequence in {@link ProducerType#MULTI} mode */
+	private final AtomicLong claimSequence = new AtomicLong(-1);
+
+	/** last published sequence in {@link ProducerType#SINGLE} mode */
+	private final AtomicLong cursor = new AtomicLong(-1);
+
+	/**
+	 * Round of the last sequence published into a slot, in
+	 * {@link ProducerType#MULTI} mode.
+	 */
+	private final AtomicIntegerArray availableRounds;
+
+	/** last consumed sequence */
+	private final AtomicLong consumerSequence = new AtomicLong(-1);
+
+	/** 1 while the consumer delivers an event, written with lazySet */
+	private final AtomicInteger activeCount = new AtomicInteger();
+
+	private final DaemonThreadFactory threadFactory;
+
+	private final CountDownLatch terminated = new CountDownLatch(1);
+
+	private volatile Thread worker;
+
+	private volatile boolean running = true;
+
+	private volatile boolean consumerParked;
+
+	public RingBufferDispatchStrategy() {
+		this(DEFAULT_BUFFER_SIZE, ProducerType.MULTI, WaitStrategy.PARK);
+	}
+
+	/**
+	 * @param bufferSize
+	 *            number of slots, must be a power of two
+	 * @param producerType
+	 *            number of posting threads
+	 * @param waitStrategy
+	 *            defines how threads wait for slots and events
+	 */
+	public RingBufferDispatchStrategy(int bufferSize,
+			ProducerType producerType, WaitStrategy waitStrategy) {
+		if (bufferSize < 1 || Integer.bitCount(bufferSize) != 1) {
+			throw new IllegalArgumentException(
+					"Buffer size must be a power of two, but was: "
+							+ bufferSize);
+		}
+		this.slots = new Slot[bufferSize];
+		for (int i = 0; i < bufferSize; ++i) {
+			slots[i] = new Slot();
+		}
+		this.mask = bufferSize - 1;
+		this.indexShift = Integer.numberOfTrailingZeros(bufferSize);
+		this.producerType = producerType;
+		this.waitStrategy = waitStrategy;
+		this.availableRounds = new AtomicIntegerArray(bufferSize);
+		for (int i = 0; i < bufferSize; ++i) {
+			availableRounds.set(i, -1);
+		}
+		this.threadFactory = new DaemonThreadFactory(getClass()
+				.getSimpleName());
+	}
+
+	@Override
+	public void dispatchEvent(Object event,
+			Collection<MethodHandler> handlerMethods) {
+		Thread consumer = worker;
+		if (consumer == null) {
+			start();
+		} else if (consumer == Thread.currentThread()) {
+			deliver(event, handlerMethods);
+			return;
+		}
+		if (!running) {
+			throw new RejectedExecutionException(this + " was shut down");
+		}
+		long sequence = claim(1);
+		Slot slot = slots[(int) sequence & mask];
+		if (!running) {
+			// consumer may have already drained the buffer, the claimed slot
+			// is published empty so it does not stall the sequence
+			slot.event = event;
+			slot.handlerMethods = Collections.emptyList();
+			publish(sequence, sequence);
+			throw new RejectedExecutionException(this + " was shut down");
+		}
+		slot.event = event;
+		slot.handlerMethods = handlerMethods;
+		slot.queueWait = FlightRecording.beginQueueWait();
+		publish(sequence, sequence);
+	}
+
+	/**
+	 * Claims a range of slots for the whole batch, or for each buffer-sized
+	 * part of a larger batch, and publishes it at once.
+	 */
+	@Override
+	public void dispatchEvents(List<Object> events,
+			List<Collection<MethodHandler>> handlerMethods) {
+		Thread consumer = worker;
+		if (consumer == null) {
+			start();
+		} else if (consumer == Thread.currentThread()) {
+			for (int i = 0; i < events.size(); ++i) {
+				deliver(events.get(i), handlerMethods.get(i));
+			}
+			return;
+		}
+		for (int from = 0; from < events.size(); from += slots.length) {
+			if (!running) {
+				throw new RejectedExecutionException(this + " was shut down");
+			}
+			int count = Math.min(events.size() - from, slots.length);
+			long last = claim(count);
+			long first = last - count + 1;
+			// after shutdown the claimed slots are published empty, see
+			// dispatchEvent
+			boolean rejected = !running;
+			for (int i = 0; i < count; ++i) {
+				Slot slot = slots[(int) (first + i) & mask];
+				slot.event = events.get(from + i);
+				if (rejected) {
+					slot.handlerMethods = Collections.emptyList();
+				} else {
+					slot.handlerMethods = handlerMethods.get(from + i);
+					slot.queueWait = FlightRecording.beginQueueWait();
+				}
+			}
+			publish(first, last);
+			if (rejected) {
+				throw new RejectedExecutionException(this + " was shut down");
+			}
+		}
+	}
+
+	@Override
+	public synchronized void start() {
+		if (worker == null && running) {
+			Thread thread = threadFactory.newThread(new Runnable() {
+				@Override
+				public void run() {
+					consume();
+				}
+			});
+			worker = thread;
+			thread.start();
+		}
+	}
+
+	@Override
+	public synchronized void shutdown() {
+		running = false;
+		if (worker == null) {
+			terminated.countDown();
+		} else {
+			LockSupport.unpark(worker);
+		}
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit)
+			throws InterruptedException {
+		return terminated.await(timeout, unit);
+	}
+
+	/**
+	 * @return number of events waiting for delivery
+	 */
+	@Override
+	public int getQueueSize() {
+		return (int) (highestClaimedSequence() - consumerSequence.get());
+	}
+
+	@Override
+	public int getActiveCount() {
+		return activeCount.get();
+	}
+
+	/**
+	 * Claims {@code count} consecutive slots, at most the buffer size.
+	 * 
+	 * @return the last claimed sequence
+	 */
+	private long claim(int count) {
+		long sequence;
+		if (producerType == ProducerType.SINGLE) {
+			sequence = singleProducerSequence + count;
+			singleProducerSequence = sequence;
+		} else {
+			sequence = claimSequence.addAndGet(count);
+		}
+		long wrapPoint = sequence - slots.length;
+		int counter = 0;
+		while (wrapPoint > consumerSequence.get()) {
+			waitStrategy.idle(counter++);
+		}
+		return sequence;
+	}
+
+	private void publish(long first, long last) {
+		if (producerType == ProducerType.SINGLE) {
+			cursor.set(last);
+		} else {
+			for (long sequence = first; sequence <= last; ++sequence) {
+				availableRounds.set((int) sequence & mask,
+						(int) (sequence >>> indexShift));
+			}
+		}
+		if (consumerParked) {
+			LockSupport.unpark(worker);
+		}
+	}
+
+	private boolean isPublished(long sequence) {
+		if (producerType == ProducerType.SINGLE) {
+			return sequence <= cursor.get();
+		}
+		return availableRounds.get((int) sequence & mask) == (int) (sequence >>> indexShift);
+	}
+
+	private long highestClaimedSequence() {
+		if (producerType == ProducerType.SINGLE) {
+			return singleProducerSequence;
+		}
+		return claimSequence.get();
+	}
+
+	private void consume() {
+		try {
+			long next = consumerSequence.get() + 1;
+			int counter = 0;
+			while (running || next <= highestClaimedSequence()) {
+				if (isPublished(next)) {
+					Slot slot = slots[(int) next & mask];
+					Object event = slot.event;
+					Collection<MethodHandler> handlerMethods = slot.handlerMethods;
+					Object queueWait = slot.queueWait;
+					slot.event = null;
+					slot.handlerMethods = null;
+					slot.queueWait = null;
+					consumerSequence.lazySet(next);
+					activeCount.lazySet(1);
+					FlightRecording.endQueueWait(queueWait,
+							RingBufferDispatchStrategy.class, event);
+					deliver(event, handlerMethods);
+					activeCount.lazySet(0);
+					++next;
+					counter = 0;
+				} else if (waitStrategy.parks(counter)) {
+					consumerParked = true;
+					if (running && !isPublished(next)) {
+						LockSupport.parkNanos(this, WaitStrategy.PARK_NANOS
+								* WaitStrategy.SPIN_TRIES);
+					}
+					consumerParked = false;
+				} else {
+					waitStrategy.idle(counter++);
+				}
+			}
+		} finally {
+			terminated.countDown();
+		}
+	}
+
+	/**
+	 * Invokes handlers one by one. Nothing may escape, an error thrown by a
+	 * handler would stop the only consumer and block posting threads forever.
+	 */
+	private void deliver(Object event, Collection<MethodHandler> handlerMethods) {
+		for (MethodHandler methodHandler : handlerMethods) {
+			try {
+				methodHandler.handleEvent(event);
+			} catch (Throwable e) {
+				logger.error("Could not deliver event: {} to handler: {}",
+						event, methodHandler, e);
+			}
+		}
+	}
+
+}
@@ -17,32 +17,155 @@
 package net.exacode.eventbus.dispatch.concurrent;
 
 import java.util.Collection;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-import net.exacode.eventbus.dispatch.DispatchStrategy;
+import net.exacode.eventbus.dispatch.LifecycleDispatchStrategy;
+import net.exacode.eventbus.dispatch.MonitoredDispatchStrategy;
 import net.exacode.eventbus.handler.MethodHandler;
+import net.exacode.eventbus.jfr.FlightRecording;
 
 /**
  * Responsible for asynchronous event dispatching.
  * <p>
- * All events are executed in separate threads. You can customize thread pool by
- * providing your own {@link ExecutorService}.
+ * All events are delivered by one long-lived worker thread, in the same order
+ * they were dispatched. Handlers of an event are invoked one after another.
+ * A batch of events is queued as a single task.
+ * <p>
+ * Worker thread is started with the first dispatched event. It is not a
+ * daemon thread, so queued events are still delivered when the application
+ * leaves {@code main}, just like with the former thread per event delivery.
+ * The worker stops after being idle for {@value #KEEP_ALIVE_MILLIS}
+ * milliseconds and is started again by the next event, so an event bus that
+ * was never shut down does not keep JVM running. Call {@link #shutdown()}
+ * and {@link #awaitTermination(long, TimeUnit)} to release the worker
+ * immediately.
  * 
  * @author mendlik
  * 
  */
-public class SingleThreadedAsyncDispatchStrategy implements DispatchStrategy {
+public class SingleThreadedAsyncDispatchStrategy implements
+		LifecycleDispatchStrategy, MonitoredDispatchStrategy {
+
+	private static class DispatchTask implements Runnable {
+
+		private final Object event;
+
+		private final Collection<MethodHandler> handlerMethods;
+
+		private final Object queueWait = FlightRecording.beginQueueWait();
+
+		DispatchTask(Object event, Collection<MethodHandler> handlerMethods) {
+			this.event = event;
+			this.handlerMethods = handlerMethods;
+		}
+
+		@Override
+		public void run() {
+			FlightRecording.endQueueWait(queueWait,
+					SingleThreadedAsyncDispatchStrategy.class, event);
+			for (MethodHandler methodHandler : handlerMethods) {
+				methodHandler.handleEvent(event);
+			}
+		}
+
+	}
+
+	private static class BatchDispatchTask implements Runnable {
+
+		private final List<Object> events;
+
+		private final List<Collection<MethodHandler>> handlerMethods;
+
+		private final Object queueWait = FlightRecording.beginQueueWait();
+
+		BatchDispatchTask(List<Object> events,
+				List<Collection<MethodHandler>> handlerMethods) {
+			this.events = events;
+			this.handlerMethods = handlerMethods;
+		}
+
+		@Override
+		public void run() {
+			if (!events.isEmpty()) {
+				FlightRecording.endQueueWait(queueWait,
+						SingleThreadedAsyncDispatchStrategy.class,
+						events.get(0));
+			}
+			for (int i = 0; i < events.size(); ++i) {
+				Object event = events.get(i);
+				for (MethodHandler methodHandler : handlerMethods.get(i)) {
+					methodHandler.handleEvent(event);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Time after which idle worker thread terminates.
+	 */
+	public static final long KEEP_ALIVE_MILLIS = 1000;
+
+	private final ThreadPoolExecutor executor;
+
+	public SingleThreadedAsyncDispatchStrategy() {
+		this(SingleThreadedAsyncDispatchStrategy.class.getSimpleName());
+	}
+
+	/**
+	 * @param threadName
+	 *            name prefix of the worker thread
+	 */
+	public SingleThreadedAsyncDispatchStrategy(String threadName) {
+		this.executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_MILLIS,
+				TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+				new DaemonThreadFactory(threadName, false));
+		this.executor.allowCoreThreadTimeOut(true);
+	}
 
 	@Override
-	public void dispatchEvent(final Object event,
+	public void dispatchEvent(Object event,
 			Collection<MethodHandler> handlerMethods) {
-		ExecutorService executorService = Executors.newSingleThreadExecutor();
-		for (final MethodHandler methodHandler : handlerMethods) {
-			Runnable eventTask = new EventTask(event, methodHandler);
-			executorService.submit(eventTask);
-		}
-		executorService.shutdown();
+		executor.execute(new DispatchTask(event, handlerMethods));
+	}
+
+	@Override
+	public void dispatchEvents(List<Object> events,
+			List<Collection<MethodHandler>> handlerMethods) {
+		executor.execute(new BatchDispatchTask(events, handlerMethods));
+	}
+
+	@Override
+	public void start() {
+		executor.prestartCoreThread();
+	}
+
+	@Override
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit)
+			throws InterruptedException {
+		return executor.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * @return number of events waiting for delivery, a batch of events is
+	 *         counted once
+	 */
+	@Override
+	public int getQueueSize() {
+		return executor.getQueue().size();
+	}
+
+	@Override
+	public int getActiveCount() {
+		return executor.getActiveCount();
 	}
 
 }
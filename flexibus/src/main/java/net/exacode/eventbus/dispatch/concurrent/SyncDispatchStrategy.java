@@ -22,7 +22,8 @@ import net.exacode.eventbus.dispatch.DispatchStrategy;
 import net.exacode.eventbus.handler.MethodHandler;
 
 /**
- * Dispatches events in synchronous way.
+ * Dispatches events in synchronous way. Primitive events are passed to
+ * handlers without boxing.
  * 
  * @author mendlik
  * 
@@ -37,4 +38,28 @@ public class SyncDispatchStrategy implements DispatchStrategy {
 		}
 	}
 
+	@Override
+	public void dispatchEvent(int event,
+			Collection<MethodHandler> handlerMethods) {
+		for (MethodHandler wrapper : handlerMethods) {
+			wrapper.handleEvent(event);
+		}
+	}
+
+	@Override
+	public void dispatchEvent(long event,
+			Collection<MethodHandler> handlerMethods) {
+		for (MethodHandler wrapper : handlerMethods) {
+			wrapper.handleEvent(event);
+		}
+	}
+
+	@Override
+	public void dispatchEvent(double event,
+			Collection<MethodHandler> handlerMethods) {
+		for (MethodHandler wrapper : handlerMethods) {
+			wrapper.handleEvent(event);
+		}
+	}
+
 }
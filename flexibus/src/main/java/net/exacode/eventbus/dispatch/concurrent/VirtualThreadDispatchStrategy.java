@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.dispatch.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import net.exacode.eventbus.dispatch.LifecycleDispatchStrategy;
+import net.exacode.eventbus.dispatch.MonitoredDispatchStrategy;
+import net.exacode.eventbus.handler.MethodHandler;
+import net.exacode.eventbus.handler.TrackedMethodHandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Responsible for asynchronous event dispatching.
+ * <p>
+ * Every handler invocation runs on its own virtual thread, so handlers that
+ * block on I/O do not starve each other and no pool has to be sized. The
+ * number of concurrent invocations is bounded. When the limit is reached
+ * posting threads block until one of the running invocations completes.
+ * Events posted by handlers are delivered synchronously if no permit is
+ * available, otherwise handlers could wait for each other forever.
+ * <p>
+ * Virtual threads are available since Java 21. On older runtimes invocations
+ * run on a pool of at most {@value #MAX_PLATFORM_THREADS} daemon threads and
+ * the limit of concurrent invocations is lowered to the pool size.
+ * <p>
+ * A posting thread interrupted while waiting for a permit stops dispatching
+ * the event. Remaining deliveries are reported as failed, see
+ * {@link TrackedMethodHandler#discard(Throwable)}.
+ * 
+ * @author mendlik
+ * 
+ */
+public class VirtualThreadDispatchStrategy implements
+		LifecycleDispatchStrategy, MonitoredDispatchStrategy {
+
+	public static final int DEFAULT_MAX_CONCURRENCY = 10000;
+
+	/**
+	 * Maximal number of platform threads used when virtual threads are not
+	 * available.
+	 */
+	public static final int MAX_PLATFORM_THREADS = 256;
+
+	private static final long KEEP_ALIVE_SECONDS = 60;
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(VirtualThreadDispatchStrategy.class);
+
+	private class InvocationTask implements Runnable {
+
+		private final Object event;
+
+		private final MethodHandler methodHandler;
+
+		InvocationTask(Object event, MethodHandler methodHandler) {
+			this.event = event;
+			this.methodHandler = methodHandler;
+		}
+
+		@Override
+		public void run() {
+			insideHandler.set(Boolean.TRUE);
+			try {
+				methodHandler.handleEvent(event);
+			} finally {
+				insideHandler.remove();
+				permits.release();
+			}
+		}
+
+	}
+
+	private final ExecutorService executorService;
+
+	private final Semaphore permits;
+
+	private final int maxConcurrency;
+
+	private final ThreadLocal<Boolean> insideHandler = new ThreadLocal<Boolean>();
+
+	public VirtualThreadDispatchStrategy() {
+		this(DEFAULT_MAX_CONCURRENCY);
+	}
+
+	/**
+	 * @param maxConcurrency
+	 *            maximal number of concurrently running handler invocations
+	 */
+	public VirtualThreadDispatchStrategy(int maxConcurrency) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException(
+					"Concurrency limit must be positive, but was: "
+							+ maxConcurrency);
+		}
+		ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+		if (virtualThreads != null) {
+			this.maxConcurrency = maxConcurrency;
+			this.executorService = virtualThreads;
+		} else {
+			this.maxConcurrency = Math.min(maxConcurrency,
+					MAX_PLATFORM_THREADS);
+			this.executorService = newPlatformThreadPool(this.maxConcurrency);
+			logger.info(
+					"Virtual threads are not available, using up to {} daemon threads",
+					this.maxConcurrency);
+		}
+		this.permits = new Semaphore(this.maxConcurrency);
+	}
+
+	@Override
+	public void dispatchEvent(Object event,
+			Collection<MethodHandler> handlerMethods) {
+		Iterator<MethodHandler> iterator = handlerMethods.iterator();
+		while (iterator.hasNext()) {
+			MethodHandler methodHandler = iterator.next();
+			if (insideHandler.get() != null) {
+				if (!permits.tryAcquire()) {
+					methodHandler.handleEvent(event);
+					continue;
+				}
+			} else {
+				try {
+					permits.acquire();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					logger.error("Could not dispatch event: {}", event, e);
+					discard(methodHandler, e);
+					while (iterator.hasNext()) {
+						discard(iterator.next(), e);
+					}
+					return;
+				}
+			}
+			try {
+				executorService.execute(new InvocationTask(event,
+						methodHandler));
+			} catch (RejectedExecutionException e) {
+				permits.release();
+				throw e;
+			}
+		}
+	}
+
+	@Override
+	public void start() {
+		// threads are started per invocation
+	}
+
+	@Override
+	public void shutdown() {
+		executorService.shutdown();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit)
+			throws InterruptedException {
+		return executorService.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * @return always 0, posting threads wait for permits instead of queueing
+	 *         events
+	 */
+	@Override
+	public int getQueueSize() {
+		return 0;
+	}
+
+	/**
+	 * @return number of handler invocations that are currently running
+	 */
+	@Override
+	public int getActiveCount() {
+		return maxConcurrency - permits.availablePermits();
+	}
+
+	/**
+	 * @return maximal number of concurrently running handler invocations
+	 */
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	/**
+	 * @return {@code true} if handlers run on virtual threads
+	 */
+	public boolean isVirtual() {
+		return !(executorService instanceof ThreadPoolExecutor);
+	}
+
+	private static void discard(MethodHandler methodHandler, Throwable failure) {
+		if (methodHandler instanceof TrackedMethodHandler) {
+			((TrackedMethodHandler) methodHandler).discard(failure);
+		}
+	}
+
+	/**
+	 * @return executor starting virtual thread per task, or {@code null} if
+	 *         virtual threads are not available
+	 */
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			Method factory = Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (Exception e) {
+			logger.debug("Virtual threads are not available", e);
+			return null;
+		}
+	}
+
+	private static ExecutorService newPlatformThreadPool(int threads) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads,
+				threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory(
+						VirtualThreadDispatchStrategy.class.getSimpleName()));
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+}
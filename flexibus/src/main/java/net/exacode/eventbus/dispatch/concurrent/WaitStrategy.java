@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.dispatch.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Defines how {@link RingBufferDispatchStrategy} threads wait for free slots
+ * or published events. Strategies trade latency for CPU usage.
+ * 
+ * @author mendlik
+ * 
+ */
+public enum WaitStrategy {
+
+	/**
+	 * Spins on CPU. Lowest latency, but keeps one core busy per waiting
+	 * thread.
+	 */
+	BUSY_SPIN {
+		@Override
+		void idle(int counter) {
+			Thread.onSpinWait();
+		}
+	},
+
+	/**
+	 * Spins for a while and then yields CPU to other threads.
+	 */
+	YIELD {
+		@Override
+		void idle(int counter) {
+			if (counter < SPIN_TRIES) {
+				Thread.onSpinWait();
+			} else {
+				Thread.yield();
+			}
+		}
+	},
+
+	/**
+	 * Spins, yields and finally parks the waiting thread. Consumer is unparked
+	 * as soon as an event is published, producers poll for free slots.
+	 */
+	PARK {
+		@Override
+		void idle(int counter) {
+			if (counter < SPIN_TRIES) {
+				Thread.onSpinWait();
+			} else if (counter < PARK_THRESHOLD) {
+				Thread.yield();
+			} else {
+				LockSupport.parkNanos(PARK_NANOS);
+			}
+		}
+
+		@Override
+		boolean parks(int counter) {
+			return counter >= PARK_THRESHOLD;
+		}
+	};
+
+	static final int SPIN_TRIES = 100;
+
+	static final int PARK_THRESHOLD = 2 * SPIN_TRIES;
+
+	static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	/**
+	 * Waits once.
+	 * 
+	 * @param counter
+	 *            number of waits that already happened in a row
+	 */
+	abstract void idle(int counter);
+
+	/**
+	 * @param counter
+	 *            number of waits that already happened in a row
+	 * @return {@code true} if the next wait parks the thread
+	 */
+	boolean parks(int counter) {
+		return false;
+	}
+
+}
@@ -21,6 +21,7 @@ import java.util.Collection;
 
 import net.exacode.eventbus.dispatch.DispatchStrategy;
 import net.exacode.eventbus.handler.MethodHandler;
+import net.exacode.eventbus.handler.TrackedMethodHandler;
 
 /**
  * Filters event handlers so only one registered handler will receive published
@@ -41,9 +42,15 @@ public class EventUniqueDispatchStrategy implements DispatchStrategy {
 	@Override
 	public void dispatchEvent(Object event,
 			Collection<MethodHandler> handlerMethods) {
+		boolean dispatched = false;
 		for (MethodHandler methodHandler : handlerMethods) {
-			dispatchStrategy.dispatchEvent(event, Arrays.asList(methodHandler));
-			break;
+			if (!dispatched) {
+				dispatchStrategy.dispatchEvent(event,
+						Arrays.asList(methodHandler));
+				dispatched = true;
+			} else if (methodHandler instanceof TrackedMethodHandler) {
+				((TrackedMethodHandler) methodHandler).discard(null);
+			}
 		}
 	}
 }
@@ -25,6 +25,7 @@ import java.util.Set;
 import net.exacode.eventbus.dispatch.DispatchStrategy;
 import net.exacode.eventbus.dispatch.concurrent.SyncDispatchStrategy;
 import net.exacode.eventbus.handler.MethodHandler;
+import net.exacode.eventbus.handler.TrackedMethodHandler;
 
 /**
  * Filters event handling methods in one handler object so only one registered
@@ -57,6 +58,8 @@ public class HandlerObjectUniqueDispatchStrategy implements DispatchStrategy {
 			if (!handlerObjects.contains(methodHandler.getTarget())) {
 				handlerObjects.add(methodHandler.getTarget());
 				filteredHandlers.add(methodHandler);
+			} else if (methodHandler instanceof TrackedMethodHandler) {
+				((TrackedMethodHandler) methodHandler).discard(null);
 			}
 		}
 		dispatchStrategy.dispatchEvent(event, filteredHandlers);
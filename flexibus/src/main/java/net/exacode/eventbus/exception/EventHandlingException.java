@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.exception;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Failures of handler methods that handled an event posted by
+ * {@link net.exacode.eventbus.EventBus#postAsync(Object)}. The first failure
+ * is the cause, others are suppressed exceptions.
+ * 
+ * @author mendlik
+ * 
+ */
+public class EventHandlingException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient Object event;
+
+	public EventHandlingException(Object event, List<Throwable> failures) {
+		super(failures.size() + " handler(s) failed to handle event: "
+				+ event, failures.get(0));
+		this.event = event;
+		for (Throwable failure : failures.subList(1, failures.size())) {
+			addSuppressed(failure);
+		}
+	}
+
+	/**
+	 * @return event that was not handled
+	 */
+	public Object getEvent() {
+		return event;
+	}
+
+	/**
+	 * @return all failures of handler methods
+	 */
+	public List<Throwable> getFailures() {
+		Throwable[] suppressed = getSuppressed();
+		Throwable[] failures = new Throwable[suppressed.length + 1];
+		failures[0] = getCause();
+		System.arraycopy(suppressed, 0, failures, 1, suppressed.length);
+		return Arrays.asList(failures);
+	}
+
+}
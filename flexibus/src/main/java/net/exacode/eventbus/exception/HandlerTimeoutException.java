@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.exception;
+
+import java.util.concurrent.TimeUnit;
+
+import net.exacode.eventbus.handler.MethodHandler;
+
+/**
+ * Reported to {@link ExceptionHandler} when a handler method does not handle
+ * an event within its timeout. The handler method is interrupted, or not
+ * invoked at all if it did not start yet.
+ * 
+ * @author mendlik
+ * 
+ */
+public class HandlerTimeoutException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final transient MethodHandler handler;
+
+	private final transient Object event;
+
+	private final long timeoutMillis;
+
+	public HandlerTimeoutException(MethodHandler handler, Object event,
+			long timeout, TimeUnit unit) {
+		super("Handler did not handle event within "
+				+ unit.toMillis(timeout) + " ms. Handler: " + handler
+				+ ", event: " + event);
+		this.handler = handler;
+		this.event = event;
+		this.timeoutMillis = unit.toMillis(timeout);
+	}
+
+	/**
+	 * @return handler method that timed out
+	 */
+	public MethodHandler getHandler() {
+		return handler;
+	}
+
+	/**
+	 * @return event that was not handled in time
+	 */
+	public Object getEvent() {
+		return event;
+	}
+
+	/**
+	 * @param unit
+	 *            unit of the result
+	 * @return exceeded timeout
+	 */
+	public long getTimeout(TimeUnit unit) {
+		return unit.convert(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+}
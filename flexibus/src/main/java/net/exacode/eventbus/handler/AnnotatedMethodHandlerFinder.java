@@ -18,8 +18,10 @@ package net.exacode.eventbus.handler;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -32,6 +34,20 @@ import org.slf4j.LoggerFactory;
 /**
  * A {@link MethodHandlerFinder} for collecting all event handler methods that
  * are marked with an appropriate annotation.
+ * <p>
+ * Found methods are wrapped in {@link InvokerHandlerMethod}s. Methods that
+ * cannot be bound by {@link HandlerInvokers} are invoked by reflection with
+ * {@link SimpleHandlerMethod}.
+ * <p>
+ * Methods annotated with an annotation that is itself annotated with the
+ * annotation type are handler methods too. Methods annotated with
+ * {@link net.exacode.eventbus.BatchEventHandler} are wrapped in
+ * {@link BatchHandlerMethod}s.
+ * <p>
+ * Handler methods are looked up once per listener class. Finding handlers of
+ * another instance of the same class only binds descriptors to the instance.
+ * Descriptors are kept in a {@link ClassValue}, so they do not prevent
+ * listener classes from being unloaded.
  * 
  * @author Paweł Mendelski
  */
@@ -44,6 +60,13 @@ public class AnnotatedMethodHandlerFinder<A extends Annotation> implements
 
 	private final ExceptionHandler exceptionHandler;
 
+	private final ClassValue<HandlerMethodDescriptor[]> descriptors = new ClassValue<HandlerMethodDescriptor[]>() {
+		@Override
+		protected HandlerMethodDescriptor[] computeValue(Class<?> clazz) {
+			return findDescriptors(clazz);
+		}
+	};
+
 	public AnnotatedMethodHandlerFinder(Class<A> annotationType) {
 		this(annotationType, new ExceptionLoggingHandler());
 	}
@@ -56,12 +79,60 @@ public class AnnotatedMethodHandlerFinder<A extends Annotation> implements
 
 	@Override
 	public Map<Class<?>, Set<MethodHandler>> findHandlerMethods(Object listener) {
+		return bind(listener, descriptors.get(listener.getClass()));
+	}
+
+	/**
+	 * @return handler methods of the listener class
+	 */
+	HandlerMethodDescriptor[] getDescriptors(Class<?> clazz) {
+		return descriptors.get(clazz);
+	}
+
+	/**
+	 * Binds handler methods to {@code listener} and groups them by event type.
+	 */
+	Map<Class<?>, Set<MethodHandler>> bind(Object listener,
+			HandlerMethodDescriptor[] listenerDescriptors) {
 		Map<Class<?>, Set<MethodHandler>> methodsInListener = new HashMap<Class<?>, Set<MethodHandler>>();
-		Class<?> clazz = listener.getClass();
+		for (HandlerMethodDescriptor descriptor : listenerDescriptors) {
+			MethodHandler handler = descriptor.bind(listener, exceptionHandler);
+			Class<?> eventType = descriptor.getEventType();
+			Set<MethodHandler> handlers = methodsInListener.get(eventType);
+			if (handlers == null) {
+				handlers = new LinkedHashSet<MethodHandler>();
+				methodsInListener.put(eventType, handlers);
+			}
+			handlers.add(handler);
+			logger.trace(
+					"Connected handler with event.\nHandler: {}\nEvent: {}",
+					handler, eventType);
+		}
+		return methodsInListener;
+	}
 
+	/**
+	 * @param method
+	 *            public method of a listener
+	 * @return {@code true} if the method is annotated with the annotation
+	 *         type or with an annotation that is annotated with it
+	 */
+	boolean isHandlerMethod(Method method) {
+		if (method.isAnnotationPresent(annotationType)) {
+			return true;
+		}
+		for (Annotation annotation : method.getAnnotations()) {
+			if (annotation.annotationType().isAnnotationPresent(annotationType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private HandlerMethodDescriptor[] findDescriptors(Class<?> clazz) {
+		List<HandlerMethodDescriptor> found = new ArrayList<HandlerMethodDescriptor>();
 		for (Method method : clazz.getMethods()) {
-			A eventHandlerAnnotation = method.getAnnotation(annotationType);
-			if (eventHandlerAnnotation != null) {
+			if (isHandlerMethod(method)) {
 				Class<?>[] parameterTypes = method.getParameterTypes();
 				if (parameterTypes.length != 1) {
 					throw new IllegalArgumentException(
@@ -71,25 +142,11 @@ public class AnnotatedMethodHandlerFinder<A extends Annotation> implements
 									+ parameterTypes.length
 									+ " arguments.  Event handler methods must require a single argument.");
 				}
-				Class<?> eventType = parameterTypes[0];
-				if (eventType.isPrimitive()) {
-					eventType = Primitives.wrap(eventType);
-				}
-				MethodHandler handler = new SimpleHandlerMethod(listener,
-						method, exceptionHandler);
-
-				Set<MethodHandler> handlers = methodsInListener.get(eventType);
-				if (handlers == null) {
-					handlers = new LinkedHashSet<MethodHandler>();
-					methodsInListener.put(eventType, handlers);
-				}
-				handlers.add(handler);
-				logger.trace(
-						"Connected handler with event.\nHandler: {}\nEvent: {}",
-						handler, eventType);
+				found.add(HandlerMethodDescriptor.describe(method,
+						HandlerInvokers.getInvoker(method)));
 			}
 		}
-		return methodsInListener;
+		return found.toArray(new HandlerMethodDescriptor[found.size()]);
 	}
 
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.handler;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import net.exacode.eventbus.BatchEventHandler;
+import net.exacode.eventbus.dispatch.concurrent.DaemonThreadFactory;
+
+/**
+ * Represents handler method annotated with {@link BatchEventHandler}.
+ * <p>
+ * Collects events and passes them as an unmodifiable {@link List} to the
+ * wrapped {@link MethodHandler}. A batch is delivered when it reaches maximal
+ * size or when maximal linger time elapses since its first event.
+ * <p>
+ * Batches are delivered by a single daemon thread shared by all batch
+ * handlers, so batches of a handler object keep posting order and a slow
+ * batch handler delays other batch handlers.
+ * 
+ * @author mendlik
+ * 
+ */
+public class BatchHandlerMethod implements MethodHandler {
+
+	/**
+	 * Lazily started thread delivering batches.
+	 */
+	private static final class Worker {
+
+		static final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(
+				1, new DaemonThreadFactory(BatchEventHandler.class
+						.getSimpleName()));
+
+	}
+
+	private final MethodHandler delegate;
+
+	private final int maxSize;
+
+	private final long maxLingerMillis;
+
+	private final Object lock = new Object();
+
+	/**
+	 * Events of the current batch. Guarded by {@link #lock}.
+	 */
+	private List<Object> batch;
+
+	/**
+	 * Incremented whenever a batch is delivered, so linger timers of
+	 * delivered batches are ignored. Guarded by {@link #lock}.
+	 */
+	private long generation;
+
+	/**
+	 * @param delegate
+	 *            handler method with {@link List} parameter
+	 * @param maxSize
+	 *            maximal number of events in a batch
+	 * @param maxLingerMillis
+	 *            maximal time in milliseconds an event waits for delivery
+	 */
+	public BatchHandlerMethod(MethodHandler delegate, int maxSize,
+			long maxLingerMillis) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException(
+					"Batch size must be positive, but was: " + maxSize
+							+ ". Method: " + delegate.getMethod());
+		}
+		if (maxLingerMillis < 0) {
+			throw new IllegalArgumentException(
+					"Linger time cannot be negative, but was: "
+							+ maxLingerMillis + ". Method: "
+							+ delegate.getMethod());
+		}
+		this.delegate = delegate;
+		this.maxSize = maxSize;
+		this.maxLingerMillis = maxLingerMillis;
+	}
+
+	/**
+	 * 
+	 * @return handler object
+	 */
+	@Override
+	public Object getTarget() {
+		return delegate.getTarget();
+	}
+
+	/**
+	 * 
+	 * @return handler method
+	 */
+	@Override
+	public Method getMethod() {
+		return delegate.getMethod();
+	}
+
+	@Override
+	public long getTimeoutMillis() {
+		return delegate.getTimeoutMillis();
+	}
+
+	/**
+	 * Adds {@code event} to the current batch.
+	 * 
+	 * @param event
+	 *            event to handle
+	 */
+	@Override
+	public void handleEvent(Object event) {
+		synchronized (lock) {
+			if (batch == null) {
+				batch = new ArrayList<Object>(Math.min(maxSize, 64));
+				if (maxSize > 1) {
+					scheduleLinger(generation);
+				}
+			}
+			batch.add(event);
+			if (batch.size() >= maxSize) {
+				// executed under the lock to keep order of batches
+				Worker.executor.execute(new Delivery(takeBatch()));
+			}
+		}
+	}
+
+	/**
+	 * Delivers events collected so far without waiting for the batch to fill
+	 * up.
+	 */
+	public void flush() {
+		synchronized (lock) {
+			if (batch != null) {
+				Worker.executor.execute(new Delivery(takeBatch()));
+			}
+		}
+	}
+
+	private void scheduleLinger(final long batchGeneration) {
+		Worker.executor.schedule(new Runnable() {
+			@Override
+			public void run() {
+				List<Object> events;
+				synchronized (lock) {
+					if (batchGeneration != generation || batch == null) {
+						return;
+					}
+					events = takeBatch();
+				}
+				deliver(events);
+			}
+		}, maxLingerMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private List<Object> takeBatch() {
+		List<Object> events = Collections.unmodifiableList(batch);
+		batch = null;
+		++generation;
+		return events;
+	}
+
+	private void deliver(List<Object> events) {
+		delegate.handleEvent(events);
+	}
+
+	private final class Delivery implements Runnable {
+
+		private final List<Object> events;
+
+		Delivery(List<Object> events) {
+			this.events = events;
+		}
+
+		@Override
+		public void run() {
+			deliver(events);
+		}
+
+	}
+
+	@Override
+	public int hashCode() {
+		return delegate.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		BatchHandlerMethod other = (BatchHandlerMethod) obj;
+		return delegate.equals(other.delegate);
+	}
+
+	@Override
+	public String toString() {
+		return "BatchHandlerMethod [delegate=" + delegate + ", maxSize="
+				+ maxSize + ", maxLingerMillis=" + maxLingerMillis + "]";
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.handler;
+
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import net.exacode.eventbus.exception.ExceptionHandler;
+import net.exacode.eventbus.exception.ExceptionLoggingHandler;
+
+/**
+ * A {@link MethodHandlerFinder} that registers each listener as a single
+ * {@link ListenerDispatcher}, instead of one {@link MethodHandler} per handler
+ * method.
+ * <p>
+ * Handler methods are found the same way as by
+ * {@link AnnotatedMethodHandlerFinder}. The dispatcher is registered for all
+ * event types handled by the listener, so dispatch strategies iterate over
+ * one handler per listener and make one call per event. Listeners with
+ * methods that cannot be invoked through method handles, with batch handler
+ * methods, with methods that return a result or with methods that have own
+ * timeout, are registered with one {@link MethodHandler} per method.
+ * 
+ * @author mendlik
+ * 
+ */
+public class DispatcherMethodHandlerFinder<A extends Annotation> implements
+		MethodHandlerFinder {
+
+	private final AnnotatedMethodHandlerFinder<A> annotatedFinder;
+
+	private final ExceptionHandler exceptionHandler;
+
+	private final ClassValue<ListenerDispatcher.Plan> plans = new ClassValue<ListenerDispatcher.Plan>() {
+		@Override
+		protected ListenerDispatcher.Plan computeValue(Class<?> clazz) {
+			return ListenerDispatcher.Plan.create(annotatedFinder
+					.getDescriptors(clazz));
+		}
+	};
+
+	public DispatcherMethodHandlerFinder(Class<A> annotationType) {
+		this(annotationType, new ExceptionLoggingHandler());
+	}
+
+	public DispatcherMethodHandlerFinder(Class<A> annotationType,
+			ExceptionHandler exceptionHandler) {
+		this.annotatedFinder = new AnnotatedMethodHandlerFinder<A>(
+				annotationType, exceptionHandler);
+		this.exceptionHandler = exceptionHandler;
+	}
+
+	@Override
+	public Map<Class<?>, Set<MethodHandler>> findHandlerMethods(Object listener) {
+		ListenerDispatcher.Plan plan = plans.get(listener.getClass());
+		if (plan == null) {
+			return annotatedFinder.findHandlerMethods(listener);
+		}
+		Map<Class<?>, Set<MethodHandler>> methodsInListener = new HashMap<Class<?>, Set<MethodHandler>>();
+		Set<MethodHandler> dispatcher = Collections
+				.<MethodHandler> singleton(new ListenerDispatcher(listener,
+						plan, exceptionHandler));
+		for (Class<?> eventType : plan.getEventTypes()) {
+			methodsInListener.put(eventType, dispatcher);
+		}
+		return methodsInListener;
+	}
+
+}
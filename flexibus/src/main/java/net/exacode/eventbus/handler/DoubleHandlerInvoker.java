@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.handler;
+
+/**
+ * Invokes handler method with {@code double} parameter on given target object,
+ * without boxing the event.
+ * 
+ * @author mendlik
+ * 
+ * @see HandlerInvokers#getDoubleInvoker(java.lang.reflect.Method)
+ */
+public interface DoubleHandlerInvoker {
+
+	/**
+	 * Invokes handler method.
+	 * 
+	 * @param target
+	 *            object on which the method is invoked
+	 * @param event
+	 *            event passed as the only argument
+	 * @throws Throwable
+	 *             exception thrown by the handler method
+	 */
+	void invoke(Object target, double event) throws Throwable;
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.handler;
+
+/**
+ * Compile-time index of handler methods of a listener class.
+ * <p>
+ * Implementations are generated by flexibus annotation processor. An index of
+ * class {@code com.example.Listener} is named
+ * {@code com.example.Listener$$FlexibusIndex}.
+ * 
+ * @author mendlik
+ * 
+ * @see IndexedMethodHandlerFinder
+ */
+public interface HandlerIndex {
+
+	/**
+	 * @return handler methods of the listener class, including inherited ones
+	 */
+	HandlerIndexEntry[] getEntries();
+
+}
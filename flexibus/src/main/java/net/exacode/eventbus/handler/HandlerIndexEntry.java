@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.handler;
+
+import java.lang.annotation.Annotation;
+
+/**
+ * Handler method recorded in a {@link HandlerIndex}.
+ * 
+ * @author mendlik
+ * 
+ */
+public final class HandlerIndexEntry {
+
+	private final Class<? extends Annotation> annotationType;
+
+	private final String methodName;
+
+	private final Class<?> parameterType;
+
+	private final HandlerInvoker invoker;
+
+	/**
+	 * @param annotationType
+	 *            annotation that marks the method as a handler method
+	 * @param methodName
+	 *            name of the public handler method
+	 * @param parameterType
+	 *            type of the only parameter of the method
+	 * @param invoker
+	 *            invokes the method directly
+	 */
+	public HandlerIndexEntry(Class<? extends Annotation> annotationType,
+			String methodName, Class<?> parameterType, HandlerInvoker invoker) {
+		this.annotationType = annotationType;
+		this.methodName = methodName;
+		this.parameterType = parameterType;
+		this.invoker = invoker;
+	}
+
+	public Class<? extends Annotation> getAnnotationType() {
+		return annotationType;
+	}
+
+	public String getMethodName() {
+		return methodName;
+	}
+
+	public Class<?> getParameterType() {
+		return parameterType;
+	}
+
+	public HandlerInvoker getInvoker() {
+		return invoker;
+	}
+
+}
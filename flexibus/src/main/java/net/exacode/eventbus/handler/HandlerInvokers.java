@@ -0,0 +1,342 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.handler;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates {@link HandlerInvoker}s for handler methods.
+ * <p>
+ * Instance methods are bound with {@link LambdaMetafactory}, which produces a
+ * class that calls the handler method directly and can be inlined by JIT.
+ * Static methods, and methods that cannot be bound that way, are invoked
+ * through a {@link MethodHandle}. Invokers are cached per handler method.
+ * <p>
+ * Handler methods with {@code int}, {@code long} or {@code double} parameter
+ * have also primitive-specialized invokers, that pass events without boxing.
+ * 
+ * @author mendlik
+ * 
+ */
+public final class HandlerInvokers {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(HandlerInvokers.class);
+
+	private static final MethodType INVOKER_FACTORY_TYPE = MethodType
+			.methodType(HandlerInvoker.class);
+
+	private static final MethodType INVOKE_TYPE = MethodType.methodType(
+			void.class, Object.class, Object.class);
+
+	private static final MethodType REQUEST_TYPE = MethodType.methodType(
+			Object.class, Object.class, Object.class);
+
+	private static final MethodType INT_INVOKE_TYPE = MethodType.methodType(
+			void.class, Object.class, int.class);
+
+	private static final MethodType LONG_INVOKE_TYPE = MethodType.methodType(
+			void.class, Object.class, long.class);
+
+	private static final MethodType DOUBLE_INVOKE_TYPE = MethodType
+			.methodType(void.class, Object.class, double.class);
+
+	/**
+	 * Invokers of handler methods grouped by declaring class. Values are
+	 * stored within classes themselves, so the cache does not pin class
+	 * loaders.
+	 */
+	private static final ClassValue<ConcurrentMap<Method, HandlerInvoker>> invokers = new ClassValue<ConcurrentMap<Method, HandlerInvoker>>() {
+		@Override
+		protected ConcurrentMap<Method, HandlerInvoker> computeValue(
+				Class<?> type) {
+			return new ConcurrentHashMap<Method, HandlerInvoker>();
+		}
+	};
+
+	/**
+	 * Primitive-specialized invokers of handler methods grouped by declaring
+	 * class.
+	 */
+	private static final ClassValue<ConcurrentMap<Method, Object>> primitiveInvokers = new ClassValue<ConcurrentMap<Method, Object>>() {
+		@Override
+		protected ConcurrentMap<Method, Object> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<Method, Object>();
+		}
+	};
+
+	private HandlerInvokers() {
+	}
+
+	/**
+	 * Returns invoker for the handler {@code method}.
+	 * 
+	 * @param method
+	 *            handler method with exactly one parameter
+	 * @return invoker or {@code null} if the method cannot be invoked other
+	 *         than by reflection
+	 */
+	public static HandlerInvoker getInvoker(Method method) {
+		ConcurrentMap<Method, HandlerInvoker> classInvokers = invokers
+				.get(method.getDeclaringClass());
+		HandlerInvoker invoker = classInvokers.get(method);
+		if (invoker == null) {
+			invoker = createInvoker(method);
+			if (invoker == null) {
+				return null;
+			}
+			HandlerInvoker previous = classInvokers.putIfAbsent(method,
+					invoker);
+			if (previous != null) {
+				invoker = previous;
+			}
+		}
+		return invoker;
+	}
+
+	/**
+	 * Returns invoker for the handler {@code method} with {@code int}
+	 * parameter.
+	 * 
+	 * @param method
+	 *            handler method with exactly one parameter
+	 * @return invoker or {@code null} if the method parameter is not
+	 *         {@code int} or the method cannot be invoked other than by
+	 *         reflection
+	 */
+	public static IntHandlerInvoker getIntInvoker(Method method) {
+		return (IntHandlerInvoker) getPrimitiveInvoker(method, int.class);
+	}
+
+	/**
+	 * Returns invoker for the handler {@code method} with {@code long}
+	 * parameter.
+	 * 
+	 * @param method
+	 *            handler method with exactly one parameter
+	 * @return invoker or {@code null} if the method parameter is not
+	 *         {@code long} or the method cannot be invoked other than by
+	 *         reflection
+	 */
+	public static LongHandlerInvoker getLongInvoker(Method method) {
+		return (LongHandlerInvoker) getPrimitiveInvoker(method, long.class);
+	}
+
+	/**
+	 * Returns invoker for the handler {@code method} with {@code double}
+	 * parameter.
+	 * 
+	 * @param method
+	 *            handler method with exactly one parameter
+	 * @return invoker or {@code null} if the method parameter is not
+	 *         {@code double} or the method cannot be invoked other than by
+	 *         reflection
+	 */
+	public static DoubleHandlerInvoker getDoubleInvoker(Method method) {
+		return (DoubleHandlerInvoker) getPrimitiveInvoker(method,
+				double.class);
+	}
+
+	private static Object getPrimitiveInvoker(Method method,
+			Class<?> parameterType) {
+		if (method.getParameterTypes()[0] != parameterType) {
+			return null;
+		}
+		ConcurrentMap<Method, Object> classInvokers = primitiveInvokers
+				.get(method.getDeclaringClass());
+		Object invoker = classInvokers.get(method);
+		if (invoker == null) {
+			invoker = createPrimitiveInvoker(method, parameterType);
+			if (invoker == null) {
+				return null;
+			}
+			Object previous = classInvokers.putIfAbsent(method, invoker);
+			if (previous != null) {
+				invoker = previous;
+			}
+		}
+		return invoker;
+	}
+
+	/**
+	 * Returns method handle of the handler {@code method}, adapted to
+	 * {@code (Object target, Object event)void} type. Target is ignored for
+	 * static methods.
+	 * 
+	 * @param method
+	 *            handler method with exactly one parameter
+	 * @return method handle or {@code null} if the method cannot be invoked
+	 *         other than by reflection
+	 */
+	static MethodHandle getMethodHandle(Method method) {
+		MethodHandle methodHandle = unreflect(method);
+		if (methodHandle == null) {
+			return null;
+		}
+		return adapt(methodHandle, method, INVOKE_TYPE);
+	}
+
+	/**
+	 * Returns method handle of the handler {@code method} that returns a
+	 * result, adapted to {@code (Object target, Object event)Object} type.
+	 * Target is ignored for static methods.
+	 * 
+	 * @param method
+	 *            non-void handler method with exactly one parameter
+	 * @return method handle or {@code null} if the method cannot be invoked
+	 *         other than by reflection
+	 */
+	public static MethodHandle getRequestMethodHandle(Method method) {
+		MethodHandle methodHandle = unreflect(method);
+		if (methodHandle == null) {
+			return null;
+		}
+		return adapt(methodHandle, method, REQUEST_TYPE);
+	}
+
+	private static MethodHandle unreflect(Method method) {
+		try {
+			return lookup(method).unreflect(method);
+		} catch (IllegalAccessException e) {
+			logger.debug("Could not access handler method: {}", method, e);
+			return null;
+		}
+	}
+
+	private static MethodHandles.Lookup lookup(Method method)
+			throws IllegalAccessException {
+		return MethodHandles.privateLookupIn(method.getDeclaringClass(),
+				MethodHandles.lookup());
+	}
+
+	private static MethodHandle adapt(MethodHandle methodHandle,
+			Method method, MethodType invokeType) {
+		if (Modifier.isStatic(method.getModifiers())) {
+			methodHandle = MethodHandles.dropArguments(methodHandle, 0,
+					Object.class);
+		}
+		return methodHandle.asType(invokeType);
+	}
+
+	private static HandlerInvoker createInvoker(Method method) {
+		MethodHandle methodHandle = unreflect(method);
+		if (methodHandle == null) {
+			return null;
+		}
+		if (!Modifier.isStatic(method.getModifiers())) {
+			try {
+				return createLambdaInvoker(lookup(method), method,
+						methodHandle);
+			} catch (VirtualMachineError e) {
+				throw e;
+			} catch (Throwable e) {
+				logger.debug(
+						"Could not bind handler method: {}. Falling back to method handle.",
+						method, e);
+			}
+		}
+		final MethodHandle handle = adapt(methodHandle, method, INVOKE_TYPE);
+		return new HandlerInvoker() {
+			@Override
+			public void invoke(Object target, Object event) throws Throwable {
+				handle.invokeExact(target, event);
+			}
+		};
+	}
+
+	private static HandlerInvoker createLambdaInvoker(
+			MethodHandles.Lookup lookup, Method method,
+			MethodHandle methodHandle) throws Throwable {
+		MethodType instantiatedType = MethodType.methodType(void.class,
+				method.getDeclaringClass(),
+				Primitives.wrap(method.getParameterTypes()[0]));
+		CallSite callSite = LambdaMetafactory.metafactory(lookup, "invoke",
+				INVOKER_FACTORY_TYPE, INVOKE_TYPE, methodHandle,
+				instantiatedType);
+		return (HandlerInvoker) callSite.getTarget().invokeExact();
+	}
+
+	private static Object createPrimitiveInvoker(Method method,
+			Class<?> parameterType) {
+		MethodHandle methodHandle = unreflect(method);
+		if (methodHandle == null) {
+			return null;
+		}
+		MethodType invokeType;
+		Class<?> invokerType;
+		if (parameterType == int.class) {
+			invokeType = INT_INVOKE_TYPE;
+			invokerType = IntHandlerInvoker.class;
+		} else if (parameterType == long.class) {
+			invokeType = LONG_INVOKE_TYPE;
+			invokerType = LongHandlerInvoker.class;
+		} else {
+			invokeType = DOUBLE_INVOKE_TYPE;
+			invokerType = DoubleHandlerInvoker.class;
+		}
+		if (!Modifier.isStatic(method.getModifiers())) {
+			try {
+				CallSite callSite = LambdaMetafactory.metafactory(
+						lookup(method), "invoke",
+						MethodType.methodType(invokerType), invokeType,
+						methodHandle, MethodType.methodType(void.class,
+								method.getDeclaringClass(), parameterType));
+				return callSite.getTarget().invoke();
+			} catch (VirtualMachineError e) {
+				throw e;
+			} catch (Throwable e) {
+				logger.debug(
+						"Could not bind handler method: {}. Falling back to method handle.",
+						method, e);
+			}
+		}
+		final MethodHandle handle = adapt(methodHandle, method, invokeType);
+		if (parameterType == int.class) {
+			return new IntHandlerInvoker() {
+				@Override
+				public void invoke(Object target, int event) throws Throwable {
+					handle.invokeExact(target, event);
+				}
+			};
+		} else if (parameterType == long.class) {
+			return new LongHandlerInvoker() {
+				@Override
+				public void invoke(Object target, long event) throws Throwable {
+					handle.invokeExact(target, event);
+				}
+			};
+		}
+		return new DoubleHandlerInvoker() {
+			@Override
+			public void invoke(Object target, double event) throws Throwable {
+				handle.invokeExact(target, event);
+			}
+		};
+	}
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.handler;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.List;
+
+import net.exacode.eventbus.BatchEventHandler;
+import net.exacode.eventbus.EventHandler;
+import net.exacode.eventbus.exception.ExceptionHandler;
+
+/**
+ * Handler method of a listener class, ready to be bound to listener
+ * instances.
+ * <p>
+ * Everything that requires reflection, i.e. invokers, request handle, timeout
+ * and access checks, is resolved once when the descriptor is created, so binding
+ * a listener instance only allocates the handler object.
+ * 
+ * @author mendlik
+ * 
+ */
+final class HandlerMethodDescriptor {
+
+	private final Method method;
+
+	private final Class<?> eventType;
+
+	private final HandlerInvoker invoker;
+
+	private final IntHandlerInvoker intInvoker;
+
+	private final LongHandlerInvoker longInvoker;
+
+	private final DoubleHandlerInvoker doubleInvoker;
+
+	/**
+	 * Handle that returns result of a non-void handler method, {@code null}
+	 * for void methods and methods invoked by reflection.
+	 */
+	private final MethodHandle requestHandle;
+
+	private final BatchEventHandler batch;
+
+	/**
+	 * Timeout in milliseconds, see {@link MethodHandler#getTimeoutMillis()}.
+	 */
+	private final long timeoutMillis;
+
+	/**
+	 * @param method
+	 *            handler method
+	 * @param eventType
+	 *            type of handled events, primitive types are wrapped
+	 * @param invoker
+	 *            invoker of the method, {@code null} if the method has to be
+	 *            invoked by reflection
+	 */
+	HandlerMethodDescriptor(Method method, Class<?> eventType,
+			HandlerInvoker invoker) {
+		this(method, eventType, invoker, null);
+	}
+
+	/**
+	 * @param method
+	 *            handler method
+	 * @param eventType
+	 *            type of handled events, primitive types are wrapped
+	 * @param invoker
+	 *            invoker of the method, {@code null} if the method has to be
+	 *            invoked by reflection
+	 * @param batch
+	 *            batch settings, {@code null} if the method handles single
+	 *            events
+	 */
+	HandlerMethodDescriptor(Method method, Class<?> eventType,
+			HandlerInvoker invoker, BatchEventHandler batch) {
+		this.method = method;
+		this.eventType = eventType;
+		this.invoker = invoker;
+		this.batch = batch;
+		this.timeoutMillis = timeoutMillisOf(method);
+		if (invoker == null) {
+			method.setAccessible(true);
+			this.intInvoker = null;
+			this.longInvoker = null;
+			this.doubleInvoker = null;
+			this.requestHandle = null;
+		} else {
+			this.intInvoker = HandlerInvokers.getIntInvoker(method);
+			this.longInvoker = HandlerInvokers.getLongInvoker(method);
+			this.doubleInvoker = HandlerInvokers.getDoubleInvoker(method);
+			this.requestHandle = method.getReturnType() == void.class ? null
+					: HandlerInvokers.getRequestMethodHandle(method);
+		}
+	}
+
+	/**
+	 * Creates descriptor of handler {@code method}. Type of handled events is
+	 * the parameter type or, for methods annotated with
+	 * {@link BatchEventHandler}, the element type of the {@link List}
+	 * parameter. The element type has to be a class or a wildcard with a
+	 * class as upper bound.
+	 * 
+	 * @param method
+	 *            handler method with exactly one parameter
+	 * @param invoker
+	 *            invoker of the method, {@code null} if the method has to be
+	 *            invoked by reflection
+	 * @return descriptor of the method
+	 */
+	static HandlerMethodDescriptor describe(Method method,
+			HandlerInvoker invoker) {
+		BatchEventHandler batch = method.getAnnotation(BatchEventHandler.class);
+		if (batch != null) {
+			return new HandlerMethodDescriptor(method,
+					getBatchEventType(method), invoker, batch);
+		}
+		Class<?> eventType = method.getParameterTypes()[0];
+		if (eventType.isPrimitive()) {
+			eventType = Primitives.wrap(eventType);
+		}
+		return new HandlerMethodDescriptor(method, eventType, invoker);
+	}
+
+	private static Class<?> getBatchEventType(Method method) {
+		if (method.getParameterTypes()[0] != List.class) {
+			throw new IllegalArgumentException("Method " + method
+					+ " has @BatchEventHandler annotation, but accepts "
+					+ method.getParameterTypes()[0]
+					+ ". Batch handler methods must accept a List.");
+		}
+		Type parameterType = method.getGenericParameterTypes()[0];
+		if (parameterType instanceof ParameterizedType) {
+			Type elementType = ((ParameterizedType) parameterType)
+					.getActualTypeArguments()[0];
+			if (elementType instanceof WildcardType) {
+				elementType = ((WildcardType) elementType).getUpperBounds()[0];
+				if (elementType == Object.class) {
+					elementType = null;
+				}
+			}
+			if (elementType instanceof ParameterizedType) {
+				elementType = ((ParameterizedType) elementType).getRawType();
+			}
+			if (elementType instanceof Class) {
+				return (Class<?>) elementType;
+			}
+		}
+		throw new IllegalArgumentException("Method " + method
+				+ " has @BatchEventHandler annotation, but accepts "
+				+ parameterType
+				+ ". Batch handler methods must accept a List of a class,"
+				+ " e.g. List<MyEvent>.");
+	}
+
+	/**
+	 * Reads {@link EventHandler#timeoutMillis()} of the {@code method} or of
+	 * the annotation that makes it an event handler method.
+	 * 
+	 * @return timeout in milliseconds, see
+	 *         {@link MethodHandler#getTimeoutMillis()}
+	 */
+	static long timeoutMillisOf(Method method) {
+		EventHandler eventHandler = method.getAnnotation(EventHandler.class);
+		if (eventHandler != null) {
+			return eventHandler.timeoutMillis();
+		}
+		for (Annotation annotation : method.getAnnotations()) {
+			eventHandler = annotation.annotationType().getAnnotation(
+					EventHandler.class);
+			if (eventHandler != null) {
+				return eventHandler.timeoutMillis();
+			}
+		}
+		return -1;
+	}
+
+	Method getMethod() {
+		return method;
+	}
+
+	Class<?> getEventType() {
+		return eventType;
+	}
+
+	HandlerInvoker getInvoker() {
+		return invoker;
+	}
+
+	IntHandlerInvoker getIntInvoker() {
+		return intInvoker;
+	}
+
+	LongHandlerInvoker getLongInvoker() {
+		return longInvoker;
+	}
+
+	DoubleHandlerInvoker getDoubleInvoker() {
+		return doubleInvoker;
+	}
+
+	MethodHandle getRequestHandle() {
+		return requestHandle;
+	}
+
+	long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	/**
+	 * @return {@code true} if the method receives events in batches
+	 */
+	boolean isBatch() {
+		return batch != null;
+	}
+
+	/**
+	 * Binds handler method to {@code listener}.
+	 * 
+	 * @param listener
+	 *            object whose method handles events
+	 * @param exceptionHandler
+	 *            handles exceptions thrown by the method
+	 * @return handler method bound to {@code listener}
+	 */
+	MethodHandler bind(Object listener, ExceptionHandler exceptionHandler) {
+		MethodHandler handler;
+		if (invoker == null) {
+			handler = new SimpleHandlerMethod(listener, this,
+					exceptionHandler);
+		} else {
+			handler = new InvokerHandlerMethod(listener, this,
+					exceptionHandler);
+		}
+		if (batch != null) {
+			return new BatchHandlerMethod(handler, batch.maxSize(),
+					batch.maxLingerMillis());
+		}
+		return handler;
+	}
+
+}
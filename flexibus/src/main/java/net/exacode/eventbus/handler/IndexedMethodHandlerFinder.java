@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.handler;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.exacode.eventbus.EventHandler;
+import net.exacode.eventbus.exception.ExceptionHandler;
+import net.exacode.eventbus.exception.ExceptionLoggingHandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link MethodHandlerFinder} that finds handler methods in compile-time
+ * {@link HandlerIndex}es generated by flexibus annotation processor.
+ * <p>
+ * Indexed handler methods are called by generated invokers, so registering a
+ * listener of an indexed class requires almost no reflection. Listeners of
+ * classes without an index are scanned by {@link AnnotatedMethodHandlerFinder}.
+ * <p>
+ * Indexes contain methods annotated with {@link EventHandler} or with
+ * annotations annotated with {@link EventHandler}. For other annotation types
+ * indexes are not used.
+ * 
+ * @author mendlik
+ * 
+ */
+public class IndexedMethodHandlerFinder<A extends Annotation> implements
+		MethodHandlerFinder {
+
+	/** suffix of the index class name, appended to the listener class name */
+	public static final String INDEX_SUFFIX = "$$FlexibusIndex";
+
+	private static final HandlerMethodDescriptor[] NOT_INDEXED = new HandlerMethodDescriptor[0];
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final Class<A> annotationType;
+
+	private final boolean indexable;
+
+	private final AnnotatedMethodHandlerFinder<A> reflectiveFinder;
+
+	private final ClassValue<HandlerMethodDescriptor[]> descriptors = new ClassValue<HandlerMethodDescriptor[]>() {
+		@Override
+		protected HandlerMethodDescriptor[] computeValue(Class<?> clazz) {
+			return loadIndex(clazz);
+		}
+	};
+
+	public IndexedMethodHandlerFinder(Class<A> annotationType) {
+		this(annotationType, new ExceptionLoggingHandler());
+	}
+
+	public IndexedMethodHandlerFinder(Class<A> annotationType,
+			ExceptionHandler exceptionHandler) {
+		this.annotationType = annotationType;
+		this.indexable = annotationType == EventHandler.class
+				|| annotationType.isAnnotationPresent(EventHandler.class);
+		this.reflectiveFinder = new AnnotatedMethodHandlerFinder<A>(
+				annotationType, exceptionHandler);
+	}
+
+	@Override
+	public Map<Class<?>, Set<MethodHandler>> findHandlerMethods(Object listener) {
+		HandlerMethodDescriptor[] listenerDescriptors = descriptors
+				.get(listener.getClass());
+		if (listenerDescriptors == NOT_INDEXED) {
+			return reflectiveFinder.findHandlerMethods(listener);
+		}
+		return reflectiveFinder.bind(listener, listenerDescriptors);
+	}
+
+	/**
+	 * @param listenerClass
+	 *            class of a listener
+	 * @return {@code true} if handler methods of the class are found in a
+	 *         generated index
+	 */
+	public boolean isIndexed(Class<?> listenerClass) {
+		return descriptors.get(listenerClass) != NOT_INDEXED;
+	}
+
+	private HandlerMethodDescriptor[] loadIndex(Class<?> clazz) {
+		if (!indexable) {
+			return NOT_INDEXED;
+		}
+		HandlerIndex index;
+		try {
+			Class<?> indexClass = Class.forName(clazz.getName()
+					+ INDEX_SUFFIX, true, clazz.getClassLoader());
+			index = (HandlerIndex) indexClass.getDeclaredConstructor()
+					.newInstance();
+		} catch (ClassNotFoundException e) {
+			return NOT_INDEXED;
+		} catch (ReflectiveOperationException e) {
+			logger.warn("Could not load handler index of: {}", clazz, e);
+			return NOT_INDEXED;
+		}
+		List<HandlerMethodDescriptor> found = new ArrayList<HandlerMethodDescriptor>();
+		for (HandlerIndexEntry entry : index.getEntries()) {
+			if (!isHandlerAnnotation(entry.getAnnotationType())) {
+				continue;
+			}
+			Method method;
+			try {
+				method = clazz.getMethod(entry.getMethodName(),
+						entry.getParameterType());
+			} catch (NoSuchMethodException e) {
+				logger.warn("Handler index of {} is out of date", clazz, e);
+				return NOT_INDEXED;
+			}
+			found.add(HandlerMethodDescriptor.describe(method,
+					entry.getInvoker()));
+		}
+		return found.toArray(new HandlerMethodDescriptor[found.size()]);
+	}
+
+	private boolean isHandlerAnnotation(Class<? extends Annotation> type) {
+		return type == annotationType
+				|| type.isAnnotationPresent(annotationType);
+	}
+
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.handler;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+
+import net.exacode.eventbus.exception.ExceptionHandler;
+import net.exacode.eventbus.jfr.FlightRecording;
+import net.exacode.eventbus.jfr.HandlerInvocationEvent;
+
+/**
+ * Represents handler method invoked through {@link HandlerInvoker}.
+ * <p>
+ * Unlike {@link SimpleHandlerMethod} it does not use reflection, so an event
+ * delivery allocates no argument array and performs no access checks. Methods
+ * with {@code int}, {@code long} or {@code double} parameter receive primitive
+ * events without boxing.
+ * 
+ * @author mendlik
+ * 
+ */
+public class InvokerHandlerMethod implements MethodHandler {
+
+	/**
+	 * Handler object.
+	 */
+	private final Object target;
+
+	/**
+	 * Handler method.
+	 */
+	private final Method method;
+
+	private final HandlerInvoker invoker;
+
+	private final IntHandlerInvoker intInvoker;
+
+	private final LongHandlerInvoker longInvoker;
+
+	private final DoubleHandlerInvoker doubleInvoker;
+
+	/**
+	 * Handle that returns result of a non-void handler method, {@code null}
+	 * for void methods.
+	 */
+	private final MethodHandle requestHandle;
+
+	private final ExceptionHandler exceptionHandler;
+
+	private final long timeoutMillis;
+
+	/**
+	 * Creates a new EventHandler to wrap {@code method} on @{code target}.
+	 * 
+	 * @param target
+	 *            object to which the method applies.
+	 * @param method
+	 *            handler method.
+	 * @param invoker
+	 *            invoker of the handler method.
+	 */
+	public InvokerHandlerMethod(Object target, Method method,
+			HandlerInvoker invoker, ExceptionHandler exceptionHandler) {
+		this(target, method, invoker, HandlerInvokers.getIntInvoker(method),
+				HandlerInvokers.getLongInvoker(method), HandlerInvokers
+						.getDoubleInvoker(method),
+				method.getReturnType() == void.class ? null : HandlerInvokers
+						.getRequestMethodHandle(method), exceptionHandler,
+				HandlerMethodDescriptor.timeoutMillisOf(method));
+	}
+
+	/**
+	 * Creates handler method from invokers already resolved by
+	 * {@code descriptor}.
+	 */
+	InvokerHandlerMethod(Object target, HandlerMethodDescriptor descriptor,
+			ExceptionHandler exceptionHandler) {
+		this(target, descriptor.getMethod(), descriptor.getInvoker(),
+				descriptor.getIntInvoker(), descriptor.getLongInvoker(),
+				descriptor.getDoubleInvoker(), descriptor.getRequestHandle(),
+				exceptionHandler, descriptor.getTimeoutMillis());
+	}
+
+	private InvokerHandlerMethod(Object target, Method method,
+			HandlerInvoker invoker, IntHandlerInvoker intInvoker,
+			LongHandlerInvoker longInvoker,
+			DoubleHandlerInvoker doubleInvoker, MethodHandle requestHandle,
+			ExceptionHandler exceptionHandler, long timeoutMillis) {
+		assert target != null : "EventHandler target cannot be null.";
+		assert method != null : "EventHandler method cannot be null.";
+		assert invoker != null : "EventHandler invoker cannot be null.";
+		assert exceptionHandler != null : "EventHandler exceptionHandler cannot be null.";
+
+		this.target = target;
+		this.method = method;
+		this.invoker = invoker;
+		this.intInvoker = intInvoker;
+		this.longInvoker = longInvoker;
+		this.doubleInvoker = doubleInvoker;
+		this.requestHandle = requestHandle;
+		this.exceptionHandler = exceptionHandler;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * 
+	 * @return handler object
+	 */
+	@Override
+	public Object getTarget() {
+		return target;
+	}
+
+	/**
+	 * 
+	 * @return handler method
+	 */
+	@Override
+	public Method getMethod() {
+		return method;
+	}
+
+	@Override
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	/**
+	 * Invokes the wrapped handler method to handle an {@code event}.
+	 * 
+	 * @param event
+	 *            event to handle
+	 */
+	@Override
+	public void handleEvent(Object event) {
+		if (FlightRecording.isActive()) {
+			handleRecordedEvent(event);
+			return;
+		}
+		try {
+			invoker.invoke(target, event);
+		} catch (Throwable e) {
+			exceptionHandler.handle(e);
+		}
+	}
+
+	@Override
+	public void handleEvent(int event) {
+		if (intInvoker == null || FlightRecording.isActive()) {
+			handleEvent(Integer.valueOf(event));
+			return;
+		}
+		try {
+			intInvoker.invoke(target, event);
+		} catch (Throwable e) {
+			exceptionHandler.handle(e);
+		}
+	}
+
+	@Override
+	public void handleEvent(long event) {
+		if (longInvoker == null || FlightRecording.isActive()) {
+			handleEvent(Long.valueOf(event));
+			return;
+		}
+		try {
+			longInvoker.invoke(target, event);
+		} catch (Throwable e) {
+			exceptionHandler.handle(e);
+		}
+	}
+
+	@Override
+	public void handleEvent(double event) {
+		if (doubleInvoker == null || FlightRecording.isActive()) {
+			handleEvent(Double.valueOf(event));
+			return;
+		}
+		try {
+			doubleInvoker.invoke(target, event);
+		} catch (Throwable e) {
+			exceptionHandler.handle(e);
+		}
+	}
+
+	@Override
+	public Object handleRequest(Object event) {
+		if (requestHandle == null) {
+			handleEvent(event);
+			return null;
+		}
+		if (FlightRecording.isActive()) {
+			return handleRecordedEvent(event);
+		}
+		try {
+			return requestHandle.invokeExact(target, event);
+		} catch (Throwable e) {
+			exceptionHandler.handle(e);
+			return null;
+		}
+	}
+
+	/**
+	 * Invokes the handler method and records {@link HandlerInvocationEvent}.
+	 * 
+	 * @return result of the handler method
+	 */
+	private Object handleRecordedEvent(Object event) {
+		Object invocation = FlightRecording.beginInvocation();
+		Throwable exception = null;
+		try {
+			if (requestHandle == null) {
+				invoker.invoke(target, event);
+				return null;
+			}
+			return requestHandle.invokeExact(target, event);
+		} catch (Throwable e) {
+			exception = e;
+			exceptionHandler.handle(e);
+			return null;
+		} finally {
+			FlightRecording.endInvocation(invocation, target, method,
+					event.getClass(), exception);
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + method.hashCode();
+		result = prime * result + target.hashCode();
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		InvokerHandlerMethod other = (InvokerHandlerMethod) obj;
+		return method.equals(other.method) && target.equals(other.target);
+	}
+
+	@Override
+	public String toString() {
+		return "MethodHandler [target=" + target + ", method=" + method + "]";
+	}
+
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.handler;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.exacode.eventbus.exception.ExceptionHandler;
+import net.exacode.eventbus.jfr.FlightRecording;
+import net.exacode.eventbus.jfr.HandlerInvocationEvent;
+
+/**
+ * Single {@link MethodHandler} of a listener that delivers events to all its
+ * handler methods.
+ * <p>
+ * For every concrete event class a dispatcher {@link MethodHandle} is composed
+ * once per listener class and kept by the listener class, so event classes do
+ * not reference listener classes. It calls, one after another, all handler methods
+ * that accept the event. Exceptions thrown by a handler method are passed to
+ * {@link ExceptionHandler} and do not stop delivery to other methods.
+ * <p>
+ * Methods are called in the order of the event hierarchy: methods handling
+ * the event class, its interfaces and then superclasses.
+ * <p>
+ * The dispatcher represents handler methods that return nothing and have no
+ * own timeout, so it does not reply to requests and has no
+ * {@link #getMethod()}.
+ * 
+ * @author mendlik
+ * 
+ * @see DispatcherMethodHandlerFinder
+ */
+public class ListenerDispatcher implements MethodHandler {
+
+	private static final MethodType DISPATCH_TYPE = MethodType.methodType(
+			void.class, ExceptionHandler.class, Object.class, Object.class);
+
+	private static final MethodHandle REPORT_EXCEPTION;
+
+	static {
+		try {
+			REPORT_EXCEPTION = MethodHandles.dropArguments(
+					MethodHandles.lookup().findStatic(
+							ListenerDispatcher.class,
+							"reportException",
+							MethodType.methodType(void.class, Throwable.class,
+									ExceptionHandler.class)), 2,
+					Object.class, Object.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * Handler methods of a listener class and dispatchers composed for event
+	 * classes.
+	 */
+	static final class Plan {
+
+		private final HandlerMethodDescriptor[] descriptors;
+
+		private final MethodHandle[] methodHandles;
+
+		private final ConcurrentMap<Class<?>, MethodHandle> dispatchers = new ConcurrentHashMap<Class<?>, MethodHandle>();
+
+		private Plan(HandlerMethodDescriptor[] descriptors,
+				MethodHandle[] methodHandles) {
+			this.descriptors = descriptors;
+			this.methodHandles = methodHandles;
+		}
+
+		/**
+		 * @return plan or {@code null} if any of handler methods cannot be
+		 *         invoked through a method handle, receives events in
+		 *         batches, returns a result or has own timeout
+		 */
+		static Plan create(HandlerMethodDescriptor[] descriptors) {
+			MethodHandle[] methodHandles = new MethodHandle[descriptors.length];
+			for (int i = 0; i < descriptors.length; ++i) {
+				if (descriptors[i].isBatch()
+						|| descriptors[i].getMethod().getReturnType() != void.class
+						|| descriptors[i].getTimeoutMillis() >= 0) {
+					return null;
+				}
+				MethodHandle methodHandle = HandlerInvokers
+						.getMethodHandle(descriptors[i].getMethod());
+				if (methodHandle == null) {
+					return null;
+				}
+				methodHandles[i] = MethodHandles.catchException(
+						MethodHandles.dropArguments(methodHandle, 0,
+								ExceptionHandler.class), Throwable.class,
+						REPORT_EXCEPTION);
+			}
+			return new Plan(descriptors, methodHandles);
+		}
+
+		Set<Class<?>> getEventTypes() {
+			Set<Class<?>> eventTypes = new LinkedHashSet<Class<?>>();
+			for (HandlerMethodDescriptor descriptor : descriptors) {
+				eventTypes.add(descriptor.getEventType());
+			}
+			return eventTypes;
+		}
+
+		MethodHandle getDispatcher(Class<?> eventClass) {
+			MethodHandle dispatcher = dispatchers.get(eventClass);
+			if (dispatcher == null) {
+				dispatcher = composeDispatcher(eventClass);
+				MethodHandle raced = dispatchers.putIfAbsent(eventClass,
+						dispatcher);
+				if (raced != null) {
+					dispatcher = raced;
+				}
+			}
+			return dispatcher;
+		}
+
+		private MethodHandle composeDispatcher(Class<?> eventClass) {
+			MethodHandle dispatcher = null;
+			for (Class<?> eventType : flattenHierarchy(eventClass)) {
+				for (int i = 0; i < descriptors.length; ++i) {
+					if (descriptors[i].getEventType() != eventType) {
+						continue;
+					}
+					if (dispatcher == null) {
+						dispatcher = methodHandles[i];
+					} else {
+						dispatcher = MethodHandles.foldArguments(
+								methodHandles[i], dispatcher);
+					}
+				}
+			}
+			if (dispatcher == null) {
+				return MethodHandles.empty(DISPATCH_TYPE);
+			}
+			return dispatcher;
+		}
+
+		private static Set<Class<?>> flattenHierarchy(Class<?> eventClass) {
+			Set<Class<?>> hierarchy = new LinkedHashSet<Class<?>>();
+			Class<?> currentClass = eventClass;
+			while (currentClass != null) {
+				hierarchy.add(currentClass);
+				hierarchy.addAll(Arrays.asList(currentClass.getInterfaces()));
+				currentClass = currentClass.getSuperclass();
+			}
+			return hierarchy;
+		}
+
+		private List<Method> getMethods() {
+			List<Method> methods = new ArrayList<Method>();
+			for (HandlerMethodDescriptor descriptor : descriptors) {
+				methods.add(descriptor.getMethod());
+			}
+			return methods;
+		}
+
+	}
+
+	/**
+	 * Handler object.
+	 */
+	private final Object target;
+
+	private final Plan plan;
+
+	private final ExceptionHandler exceptionHandler;
+
+	ListenerDispatcher(Object target, Plan plan,
+			ExceptionHandler exceptionHandler) {
+		assert target != null : "EventHandler target cannot be null.";
+		assert plan != null : "EventHandler plan cannot be null.";
+		assert exceptionHandler != null : "EventHandler exceptionHandler cannot be null.";
+
+		this.target = target;
+		this.plan = plan;
+		this.exceptionHandler = exceptionHandler;
+	}
+
+	/**
+	 * 
+	 * @return handler object
+	 */
+	@Override
+	public Object getTarget() {
+		return target;
+	}
+
+	/**
+	 * Dispatcher represents all handler methods of the listener.
+	 * 
+	 * @return {@code null}
+	 */
+	@Override
+	public Method getMethod() {
+		return null;
+	}
+
+	/**
+	 * @return all handler methods of the listener
+	 */
+	public List<Method> getMethods() {
+		return plan.getMethods();
+	}
+
+	/**
+	 * Invokes all handler methods that accept {@code event}.
+	 * 
+	 * @param event
+	 *            event to handle
+	 */
+	@Override
+	public void handleEvent(Object event) {
+		if (FlightRecording.isActive()) {
+			handleRecordedEvent(event);
+			return;
+		}
+		try {
+			plan.getDispatcher(event.getClass()).invokeExact(exceptionHandler,
+					target, event);
+		} catch (Throwable e) {
+			exceptionHandler.handle(e);
+		}
+	}
+
+	/**
+	 * Invokes all handler methods that accept {@code event}. Handler methods
+	 * of the dispatcher return nothing, so there is no result.
+	 * 
+	 * @return {@code null}
+	 */
+	@Override
+	public Object handleRequest(Object event) {
+		handleEvent(event);
+		return null;
+	}
+
+	/**
+	 * Invokes handler methods and records one
+	 * {@link HandlerInvocationEvent} for all of them.
+	 */
+	private void handleRecordedEvent(Object event) {
+		Object invocation = FlightRecording.beginInvocation();
+		Throwable exception = null;
+		try {
+			plan.getDispatcher(event.getClass()).invokeExact(exceptionHandler,
+					target, event);
+		} catch (Throwable e) {
+			exception = e;
+			exceptionHandler.handle(e);
+		} finally {
+			FlightRecording.endInvocation(invocation, target, null,
+					event.getClass(), exception);
+		}
+	}
+
+	@SuppressWarnings("unused")
+	private static void reportException(Throwable e,
+			ExceptionHandler exceptionHandler) {
+		exceptionHandler.handle(e);
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + plan.hashCode();
+		result = prime * result + target.hashCode();
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		ListenerDispatcher other = (ListenerDispatcher) obj;
+		return plan == other.plan && target.equals(other.target);
+	}
+
+	@Override
+	public String toString() {
+		return "ListenerDispatcher [target=" + target + ", methods="
+				+ getMethods() + "]";
+	}
+
+}
@@ -34,6 +34,68 @@ public interface MethodHandler {
 	 */
 	void handleEvent(Object event);
 
+	/**
+	 * Invokes the wrapped handler method to handle an {@code int} event. By
+	 * default the event is boxed and passed to {@link #handleEvent(Object)}.
+	 * 
+	 * @param event
+	 *            event to handle
+	 */
+	default void handleEvent(int event) {
+		handleEvent(Integer.valueOf(event));
+	}
+
+	/**
+	 * Invokes the wrapped handler method to handle a {@code long} event. By
+	 * default the event is boxed and passed to {@link #handleEvent(Object)}.
+	 * 
+	 * @param event
+	 *            event to handle
+	 */
+	default void handleEvent(long event) {
+		handleEvent(Long.valueOf(event));
+	}
+
+	/**
+	 * Invokes the wrapped handler method to handle a {@code double} event. By
+	 * default the event is boxed and passed to {@link #handleEvent(Object)}.
+	 * 
+	 * @param event
+	 *            event to handle
+	 */
+	default void handleEvent(double event) {
+		handleEvent(Double.valueOf(event));
+	}
+
+	/**
+	 * Invokes the wrapped handler method to handle a request {@code event}
+	 * and returns its result, see
+	 * {@link net.exacode.eventbus.EventBus#request(Object)}. Exceptions are
+	 * handled like by {@link #handleEvent(Object)}. By default the event is
+	 * passed to {@link #handleEvent(Object)} and there is no result.
+	 * 
+	 * @param event
+	 *            event to handle
+	 * @return value returned by the handler method, {@code null} if the
+	 *         method is {@code void} or failed
+	 */
+	default Object handleRequest(Object event) {
+		handleEvent(event);
+		return null;
+	}
+
+	/**
+	 * Timeout of the handler method, resolved when the handler method is
+	 * found, see {@link net.exacode.eventbus.EventHandler#timeoutMillis()}.
+	 * By default there is no own timeout.
+	 * 
+	 * @return timeout in milliseconds, negative value means the default
+	 *         timeout of the dispatch strategy, 0 means no timeout
+	 */
+	default long getTimeoutMillis() {
+		return -1;
+	}
+
 	/**
 	 * 
 	 * @return handler object
@@ -20,6 +20,8 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 import net.exacode.eventbus.exception.ExceptionHandler;
+import net.exacode.eventbus.jfr.FlightRecording;
+import net.exacode.eventbus.jfr.HandlerInvocationEvent;
 
 /**
  * Represents simple handler method.
@@ -41,6 +43,8 @@ public class SimpleHandlerMethod implements MethodHandler {
 
 	private final ExceptionHandler exceptionHandler;
 
+	private final long timeoutMillis;
+
 	/**
 	 * Creates a new EventHandler to wrap {@code method} on @{code target}.
 	 * 
@@ -51,6 +55,28 @@ public class SimpleHandlerMethod implements MethodHandler {
 	 */
 	public SimpleHandlerMethod(Object target, Method method,
 			ExceptionHandler exceptionHandler) {
+		this(target, method, exceptionHandler, HandlerMethodDescriptor
+				.timeoutMillisOf(method), false);
+	}
+
+	/**
+	 * Creates handler method from {@code descriptor} that already suppressed
+	 * access checks of the method.
+	 */
+	SimpleHandlerMethod(Object target, HandlerMethodDescriptor descriptor,
+			ExceptionHandler exceptionHandler) {
+		this(target, descriptor.getMethod(), exceptionHandler, descriptor
+				.getTimeoutMillis(), true);
+	}
+
+	/**
+	 * @param accessible
+	 *            {@code true} if access checks of the {@code method} are
+	 *            already suppressed
+	 */
+	private SimpleHandlerMethod(Object target, Method method,
+			ExceptionHandler exceptionHandler, long timeoutMillis,
+			boolean accessible) {
 		assert target != null : "EventHandler target cannot be null.";
 		assert method != null : "EventHandler method cannot be null.";
 		assert exceptionHandler != null : "EventHandler exceptionHandler cannot be null.";
@@ -58,7 +84,10 @@ public class SimpleHandlerMethod implements MethodHandler {
 		this.target = target;
 		this.method = method;
 		this.exceptionHandler = exceptionHandler;
-		method.setAccessible(true);
+		this.timeoutMillis = timeoutMillis;
+		if (!accessible) {
+			method.setAccessible(true);
+		}
 	}
 
 	/**
@@ -79,6 +108,11 @@ public class SimpleHandlerMethod implements MethodHandler {
 		return method;
 	}
 
+	@Override
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
 	/**
 	 * Invokes the wrapped handler method to handle an {@code event}.
 	 * 
@@ -87,6 +121,10 @@ public class SimpleHandlerMethod implements MethodHandler {
 	 */
 	@Override
 	public void handleEvent(Object event) {
+		if (FlightRecording.isActive()) {
+			handleRecordedEvent(event);
+			return;
+		}
 		try {
 			method.invoke(target, new Object[] { event });
 		} catch (IllegalAccessException e) {
@@ -99,6 +137,51 @@ public class SimpleHandlerMethod implements MethodHandler {
 		}
 	}
 
+	@Override
+	public Object handleRequest(Object event) {
+		if (FlightRecording.isActive()) {
+			return handleRecordedEvent(event);
+		}
+		try {
+			return method.invoke(target, new Object[] { event });
+		} catch (IllegalAccessException e) {
+			exceptionHandler.handle(new IllegalArgumentException(
+					"Method became inaccessible: " + event, e));
+		} catch (InvocationTargetException e) {
+			exceptionHandler.handle(e.getCause());
+		} catch (Throwable e) {
+			exceptionHandler.handle(e);
+		}
+		return null;
+	}
+
+	/**
+	 * Invokes the handler method and records {@link HandlerInvocationEvent}.
+	 * 
+	 * @return result of the handler method
+	 */
+	private Object handleRecordedEvent(Object event) {
+		Object invocation = FlightRecording.beginInvocation();
+		Throwable exception = null;
+		try {
+			return method.invoke(target, new Object[] { event });
+		} catch (IllegalAccessException e) {
+			exception = new IllegalArgumentException(
+					"Method became inaccessible: " + event, e);
+			exceptionHandler.handle(exception);
+		} catch (InvocationTargetException e) {
+			exception = e.getCause();
+			exceptionHandler.handle(exception);
+		} catch (Throwable e) {
+			exception = e;
+			exceptionHandler.handle(e);
+		} finally {
+			FlightRecording.endInvocation(invocation, target, method,
+					event.getClass(), exception);
+		}
+		return null;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
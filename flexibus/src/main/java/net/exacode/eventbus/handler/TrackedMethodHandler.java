@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.handler;
+
+/**
+ * {@link MethodHandler} that tracks delivery of one posted event, see
+ * {@link net.exacode.eventbus.EventBus#postAsync(Object)}.
+ * <p>
+ * A dispatch strategy that does not deliver the event to a tracked handler
+ * method, e.g. because the event was dropped, conflated or filtered out, has
+ * to call {@link #discard(Throwable)} instead, otherwise the delivery never
+ * completes. A strategy that keeps handler methods beyond one dispatch should
+ * keep {@link #getDelegate()}.
+ * 
+ * @author mendlik
+ * 
+ */
+public interface TrackedMethodHandler extends MethodHandler {
+
+	/**
+	 * Marks the event as not delivered to this handler method. Ignored if the
+	 * handler method already handled the event, and a delivery that finishes
+	 * after the discard is ignored, e.g. of a handler method abandoned after
+	 * a timeout.
+	 * 
+	 * @param failure
+	 *            reason of the failed delivery, or {@code null} if the event
+	 *            did not need to be delivered, e.g. was superseded by a newer
+	 *            one
+	 */
+	void discard(Throwable failure);
+
+	/**
+	 * @return tracked handler method
+	 */
+	MethodHandler getDelegate();
+
+}
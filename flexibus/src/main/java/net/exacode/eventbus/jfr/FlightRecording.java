@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.jfr;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MutableCallSite;
+import java.lang.reflect.Method;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Emits flexibus flight recorder events: {@link PostEvent},
+ * {@link HandlerInvocationEvent} and {@link QueueWaitEvent}.
+ * <p>
+ * Loading of a flight recorder event class slows down the whole application,
+ * even when no recording is running. Started events are therefore passed
+ * around as opaque tokens and event classes are loaded only while a
+ * recording runs. Otherwise the methods are compiled to no-ops.
+ * <p>
+ * Events are disabled by default. Enable them in a custom {@code .jfc}
+ * settings file or with {@link Recording#enable(String)}.
+ * 
+ * @author mendlik
+ * 
+ */
+public final class FlightRecording {
+
+	/**
+	 * Holds constant {@code true} while a recording runs. Compiled code
+	 * treats the flag as a constant and is deoptimized when it changes.
+	 */
+	private static final MutableCallSite ACTIVE = new MutableCallSite(
+			MethodHandles.constant(boolean.class, false));
+
+	private static final MethodHandle IS_ACTIVE = ACTIVE.dynamicInvoker();
+
+	static {
+		try {
+			FlightRecorder.addListener(new FlightRecorderListener() {
+				@Override
+				public void recorderInitialized(FlightRecorder recorder) {
+					update(recorder);
+				}
+
+				@Override
+				public void recordingStateChanged(Recording recording) {
+					update(FlightRecorder.getFlightRecorder());
+				}
+			});
+		} catch (LinkageError e) {
+			// runtime without flight recorder
+		} catch (SecurityException e) {
+			// flight recorder is not accessible
+		}
+	}
+
+	private FlightRecording() {
+	}
+
+	/**
+	 * @return {@code true} if any flight recording is running
+	 */
+	public static boolean isActive() {
+		try {
+			return (boolean) IS_ACTIVE.invokeExact();
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return started post event or {@code null} if it is not recorded
+	 */
+	public static Object beginPost() {
+		return isActive() ? RecordedEvents.beginPost() : null;
+	}
+
+	/**
+	 * @param post
+	 *            token returned by {@link #beginPost()}
+	 * @param bus
+	 *            id of the event bus
+	 * @param eventClass
+	 *            class of the posted event
+	 * @param handlerCount
+	 *            number of handlers that receive the event
+	 */
+	public static void endPost(Object post, String bus, Class<?> eventClass,
+			int handlerCount) {
+		if (post != null) {
+			RecordedEvents.endPost(post, bus, eventClass, handlerCount);
+		}
+	}
+
+	/**
+	 * @return started handler invocation event or {@code null} if it is not
+	 *         recorded
+	 */
+	public static Object beginInvocation() {
+		return isActive() ? RecordedEvents.beginInvocation() : null;
+	}
+
+	/**
+	 * @param invocation
+	 *            token returned by {@link #beginInvocation()}
+	 * @param target
+	 *            handler object
+	 * @param method
+	 *            handler method, {@code null} if all handler methods of the
+	 *            target were invoked
+	 * @param eventClass
+	 *            class of the delivered event
+	 * @param exception
+	 *            exception thrown by the handler method or {@code null}
+	 */
+	public static void endInvocation(Object invocation, Object target,
+			Method method, Class<?> eventClass, Throwable exception) {
+		if (invocation != null) {
+			RecordedEvents.endInvocation(invocation, target, method,
+					eventClass, exception);
+		}
+	}
+
+	/**
+	 * Starts timing of an event that is about to be queued.
+	 * 
+	 * @return started queue wait event or {@code null} if it is not recorded
+	 */
+	public static Object beginQueueWait() {
+		return isActive() ? RecordedEvents.beginQueueWait() : null;
+	}
+
+	/**
+	 * Ends timing of an event that was taken from the queue.
+	 * 
+	 * @param queueWait
+	 *            token returned by {@link #beginQueueWait()}
+	 * @param strategy
+	 *            class of the dispatch strategy
+	 * @param event
+	 *            dequeued event
+	 */
+	public static void endQueueWait(Object queueWait, Class<?> strategy,
+			Object event) {
+		if (queueWait != null) {
+			RecordedEvents.endQueueWait(queueWait, strategy, event);
+		}
+	}
+
+	private static synchronized void update(FlightRecorder recorder) {
+		boolean running = false;
+		for (Recording recording : recorder.getRecordings()) {
+			if (recording.getState() == RecordingState.RUNNING) {
+				running = true;
+				break;
+			}
+		}
+		if (running != isActive()) {
+			ACTIVE.setTarget(MethodHandles.constant(boolean.class, running));
+			MutableCallSite.syncAll(new MutableCallSite[] { ACTIVE });
+		}
+	}
+
+}
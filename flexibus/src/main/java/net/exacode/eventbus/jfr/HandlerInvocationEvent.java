@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.jfr;
+
+import java.lang.reflect.Method;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of a handler method invocation. Recorded on the
+ * thread that invoked the handler method.
+ * <p>
+ * Disabled by default, see {@link FlightRecording}.
+ * 
+ * @author mendlik
+ * 
+ */
+@Name("net.exacode.eventbus.HandlerInvocation")
+@Label("Event Handler Invocation")
+@Category("Flexibus")
+@Description("Event delivered to a handler method")
+@Enabled(false)
+@StackTrace(false)
+public class HandlerInvocationEvent extends Event {
+
+	@Label("Target Class")
+	Class<?> targetClass;
+
+	@Label("Method")
+	@Description("Handler method name or * for all methods of the target")
+	String method;
+
+	@Label("Event Class")
+	Class<?> eventClass;
+
+	@Label("Exception Class")
+	Class<?> exceptionClass;
+
+	@Label("Exception Message")
+	String exceptionMessage;
+
+	/**
+	 * Commits the event if it passes the recording threshold.
+	 * 
+	 * @param target
+	 *            handler object
+	 * @param method
+	 *            handler method, {@code null} if all handler methods of the
+	 *            target were invoked
+	 * @param eventClass
+	 *            class of the delivered event
+	 * @param exception
+	 *            exception thrown by the handler method or {@code null}
+	 */
+	void end(Object target, Method method, Class<?> eventClass,
+			Throwable exception) {
+		if (shouldCommit()) {
+			this.targetClass = target.getClass();
+			this.method = method == null ? "*" : method.getName();
+			this.eventClass = eventClass;
+			if (exception != null) {
+				this.exceptionClass = exception.getClass();
+				this.exceptionMessage = exception.getMessage();
+			}
+			commit();
+		}
+	}
+
+}
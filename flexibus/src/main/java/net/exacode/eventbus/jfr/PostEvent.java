@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of {@link net.exacode.eventbus.EventBus#post(Object)}.
+ * Duration covers handler lookup and, for synchronous dispatch strategies,
+ * delivery of the event.
+ * <p>
+ * Disabled by default, see {@link FlightRecording}.
+ * 
+ * @author mendlik
+ * 
+ */
+@Name("net.exacode.eventbus.Post")
+@Label("Event Bus Post")
+@Category("Flexibus")
+@Description("Event posted to an event bus")
+@Enabled(false)
+@StackTrace(false)
+public class PostEvent extends Event {
+
+	@Label("Event Bus")
+	String bus;
+
+	@Label("Event Class")
+	Class<?> eventClass;
+
+	@Label("Handler Count")
+	int handlerCount;
+
+	@Label("Dead")
+	@Description("No handler accepts the event")
+	boolean dead;
+
+	/**
+	 * Commits the event if it passes the recording threshold.
+	 * 
+	 * @param bus
+	 *            id of the event bus
+	 * @param eventClass
+	 *            class of the posted event
+	 * @param handlerCount
+	 *            number of handlers that receive the event
+	 */
+	void end(String bus, Class<?> eventClass, int handlerCount) {
+		if (shouldCommit()) {
+			this.bus = bus;
+			this.eventClass = eventClass;
+			this.handlerCount = handlerCount;
+			this.dead = handlerCount == 0;
+			commit();
+		}
+	}
+
+}
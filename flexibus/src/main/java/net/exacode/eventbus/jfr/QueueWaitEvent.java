@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of time that an event spent in a queue of an
+ * asynchronous {@link net.exacode.eventbus.dispatch.DispatchStrategy}.
+ * Recorded on the thread that took the event from the queue.
+ * <p>
+ * Disabled by default, see {@link FlightRecording}.
+ * 
+ * @author mendlik
+ * 
+ */
+@Name("net.exacode.eventbus.QueueWait")
+@Label("Event Bus Queue Wait")
+@Category("Flexibus")
+@Description("Event waiting for delivery in a dispatch strategy queue")
+@Enabled(false)
+@StackTrace(false)
+public class QueueWaitEvent extends Event {
+
+	@Label("Dispatch Strategy")
+	Class<?> strategy;
+
+	@Label("Event Class")
+	Class<?> eventClass;
+
+	/**
+	 * Commits the event if it passes the recording threshold.
+	 * 
+	 * @param strategy
+	 *            class of the dispatch strategy
+	 * @param event
+	 *            dequeued event
+	 */
+	void end(Class<?> strategy, Object event) {
+		if (shouldCommit()) {
+			this.strategy = strategy;
+			this.eventClass = event.getClass();
+			commit();
+		}
+	}
+
+}
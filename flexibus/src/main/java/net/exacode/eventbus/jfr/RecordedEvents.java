@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.jfr;
+
+import java.lang.reflect.Method;
+
+/**
+ * Creates and commits flight recorder events for {@link FlightRecording}.
+ * Loaded only when a recording runs.
+ * 
+ * @author mendlik
+ * 
+ */
+final class RecordedEvents {
+
+	private RecordedEvents() {
+	}
+
+	static Object beginPost() {
+		PostEvent post = new PostEvent();
+		if (!post.isEnabled()) {
+			return null;
+		}
+		post.begin();
+		return post;
+	}
+
+	static void endPost(Object post, String bus, Class<?> eventClass,
+			int handlerCount) {
+		((PostEvent) post).end(bus, eventClass, handlerCount);
+	}
+
+	static Object beginInvocation() {
+		HandlerInvocationEvent invocation = new HandlerInvocationEvent();
+		if (!invocation.isEnabled()) {
+			return null;
+		}
+		invocation.begin();
+		return invocation;
+	}
+
+	static void endInvocation(Object invocation, Object target,
+			Method method, Class<?> eventClass, Throwable exception) {
+		((HandlerInvocationEvent) invocation).end(target, method, eventClass,
+				exception);
+	}
+
+	static Object beginQueueWait() {
+		QueueWaitEvent queueWait = new QueueWaitEvent();
+		if (!queueWait.isEnabled()) {
+			return null;
+		}
+		queueWait.begin();
+		return queueWait;
+	}
+
+	static void endQueueWait(Object queueWait, Class<?> strategy, Object event) {
+		((QueueWaitEvent) queueWait).end(strategy, event);
+	}
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Invocation statistics of handler methods registered in an
+ * {@link net.exacode.eventbus.EventBus}, grouped by handler method and event
+ * type.
+ * <p>
+ * Handler methods are identified by declaring class and signature, so
+ * statistics of all listener instances of a class are aggregated.
+ * <p>
+ * Invocations and errors are counted exactly. Latency is measured for a
+ * random sample of invocations, one in {@link #getLatencySampleInterval()} on
+ * average, because reading the clock costs more than dispatching an event to
+ * a simple handler.
+ * 
+ * @author mendlik
+ * 
+ * @see InstrumentedMethodHandlerFinder
+ */
+public class EventBusMetrics {
+
+	public static final int DEFAULT_LATENCY_SAMPLE_INTERVAL = 16;
+
+	private static final EventBusMetrics DISABLED = new EventBusMetrics(
+			false, 1);
+
+	/**
+	 * Statistics of a handler method grouped by event type.
+	 */
+	final class MethodMetrics {
+
+		private final String handler;
+
+		private final ConcurrentMap<Class<?>, HandlerMetrics> eventTypes = new ConcurrentHashMap<Class<?>, HandlerMetrics>();
+
+		private MethodMetrics(String handler) {
+			this.handler = handler;
+		}
+
+		HandlerMetrics forEventType(Class<?> eventType) {
+			HandlerMetrics metrics = eventTypes.get(eventType);
+			if (metrics == null) {
+				HandlerMetrics created = new HandlerMetrics(handler, eventType);
+				metrics = eventTypes.putIfAbsent(eventType, created);
+				if (metrics == null) {
+					metrics = created;
+				}
+			}
+			return metrics;
+		}
+
+	}
+
+	private final ConcurrentMap<String, MethodMetrics> handlers = new ConcurrentHashMap<String, MethodMetrics>();
+
+	private final boolean enabled;
+
+	private final int latencySampleMask;
+
+	public EventBusMetrics() {
+		this(DEFAULT_LATENCY_SAMPLE_INTERVAL);
+	}
+
+	/**
+	 * @param latencySampleInterval
+	 *            power of two, latency of one in {@code latencySampleInterval}
+	 *            invocations is measured, 1 measures all invocations
+	 */
+	public EventBusMetrics(int latencySampleInterval) {
+		this(true, latencySampleInterval);
+	}
+
+	private EventBusMetrics(boolean enabled, int latencySampleInterval) {
+		if (latencySampleInterval < 1
+				|| Integer.bitCount(latencySampleInterval) != 1) {
+			throw new IllegalArgumentException(
+					"Latency sample interval must be a power of two, but was: "
+							+ latencySampleInterval);
+		}
+		this.enabled = enabled;
+		this.latencySampleMask = latencySampleInterval - 1;
+	}
+
+	/**
+	 * @return metrics of an event bus without instrumentation
+	 */
+	public static EventBusMetrics disabled() {
+		return DISABLED;
+	}
+
+	/**
+	 * @return {@code false} if handler invocations are not recorded
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @return average number of invocations per one latency measurement
+	 */
+	public int getLatencySampleInterval() {
+		return latencySampleMask + 1;
+	}
+
+	int getLatencySampleMask() {
+		return latencySampleMask;
+	}
+
+	/**
+	 * @return statistics of all invoked handler methods
+	 */
+	public List<HandlerMetricsSnapshot> getSnapshots() {
+		List<HandlerMetricsSnapshot> snapshots = new ArrayList<HandlerMetricsSnapshot>();
+		for (MethodMetrics methodMetrics : handlers.values()) {
+			for (HandlerMetrics metrics : methodMetrics.eventTypes.values()) {
+				snapshots.add(metrics.snapshot());
+			}
+		}
+		return Collections.unmodifiableList(snapshots);
+	}
+
+	/**
+	 * @param handler
+	 *            name of the handler method
+	 * @param eventType
+	 *            class of handled events
+	 * @return statistics or {@code null} if the handler method was not
+	 *         invoked with such events
+	 */
+	public HandlerMetricsSnapshot getSnapshot(String handler,
+			Class<?> eventType) {
+		MethodMetrics methodMetrics = handlers.get(handler);
+		if (methodMetrics == null) {
+			return null;
+		}
+		HandlerMetrics metrics = methodMetrics.eventTypes.get(eventType);
+		return metrics == null ? null : metrics.snapshot();
+	}
+
+	/**
+	 * Clears statistics of all handler methods. Invocations that run
+	 * concurrently with the reset may be partially recorded.
+	 */
+	public void reset() {
+		for (MethodMetrics methodMetrics : handlers.values()) {
+			for (HandlerMetrics metrics : methodMetrics.eventTypes.values()) {
+				metrics.reset();
+			}
+		}
+	}
+
+	MethodMetrics forHandler(String handler) {
+		MethodMetrics metrics = handlers.get(handler);
+		if (metrics == null) {
+			MethodMetrics created = new MethodMetrics(handler);
+			metrics = handlers.putIfAbsent(handler, created);
+			if (metrics == null) {
+				metrics = created;
+			}
+		}
+		return metrics;
+	}
+
+}
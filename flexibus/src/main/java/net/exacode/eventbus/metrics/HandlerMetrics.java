@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Invocation statistics of a handler method for one event type.
+ * 
+ * @author mendlik
+ * 
+ */
+public class HandlerMetrics {
+
+	private final String handler;
+
+	private final Class<?> eventType;
+
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	private final LongAdder invocations = new LongAdder();
+
+	private final LongAdder errors = new LongAdder();
+
+	private final LongAdder slowInvocations = new LongAdder();
+
+	HandlerMetrics(String handler, Class<?> eventType) {
+		this.handler = handler;
+		this.eventType = eventType;
+	}
+
+	Class<?> getEventType() {
+		return eventType;
+	}
+
+	/**
+	 * Records a finished invocation.
+	 * 
+	 * @param failed
+	 *            {@code true} if the handler method threw an exception
+	 */
+	void record(boolean failed) {
+		invocations.increment();
+		if (failed) {
+			errors.increment();
+		}
+	}
+
+	/**
+	 * Records a finished invocation with measured duration.
+	 * 
+	 * @param nanos
+	 *            duration of the invocation in nanoseconds
+	 * @param failed
+	 *            {@code true} if the handler method threw an exception
+	 */
+	void record(long nanos, boolean failed) {
+		record(failed);
+		latency.record(nanos);
+	}
+
+	/**
+	 * Records an error of an invocation that is not recorded as finished,
+	 * e.g. abandoned after a timeout.
+	 */
+	void recordError() {
+		errors.increment();
+	}
+
+	/**
+	 * Records an invocation that exceeded the threshold of
+	 * {@link HandlerWatchdog}.
+	 */
+	void recordSlow() {
+		slowInvocations.increment();
+	}
+
+	/**
+	 * Clears recorded statistics.
+	 */
+	void reset() {
+		invocations.reset();
+		errors.reset();
+		slowInvocations.reset();
+		latency.reset();
+	}
+
+	/**
+	 * @return copy of current statistics
+	 */
+	public HandlerMetricsSnapshot snapshot() {
+		return new HandlerMetricsSnapshot(handler, eventType,
+				invocations.sum(), errors.sum(), slowInvocations.sum(),
+				latency.snapshot());
+	}
+
+}
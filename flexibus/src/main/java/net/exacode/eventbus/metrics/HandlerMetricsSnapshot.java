@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.metrics;
+
+/**
+ * Immutable invocation statistics of a handler method for one event type.
+ * 
+ * @author mendlik
+ * 
+ */
+public class HandlerMetricsSnapshot {
+
+	private final String handler;
+
+	private final Class<?> eventType;
+
+	private final long invocationCount;
+
+	private final long errorCount;
+
+	private final long slowInvocationCount;
+
+	private final HistogramSnapshot latency;
+
+	HandlerMetricsSnapshot(String handler, Class<?> eventType,
+			long invocationCount, long errorCount, long slowInvocationCount,
+			HistogramSnapshot latency) {
+		this.handler = handler;
+		this.eventType = eventType;
+		this.invocationCount = invocationCount;
+		this.errorCount = errorCount;
+		this.slowInvocationCount = slowInvocationCount;
+		this.latency = latency;
+	}
+
+	/**
+	 * @return name of the handler method, e.g.
+	 *         {@code com.example.Listener.handle(Order)}
+	 */
+	public String getHandler() {
+		return handler;
+	}
+
+	/**
+	 * @return class of handled events
+	 */
+	public Class<?> getEventType() {
+		return eventType;
+	}
+
+	/**
+	 * @return number of invocations
+	 */
+	public long getInvocationCount() {
+		return invocationCount;
+	}
+
+	/**
+	 * @return number of invocations that threw an exception
+	 */
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * @return number of invocations reported by {@link HandlerWatchdog}
+	 */
+	public long getSlowInvocationCount() {
+		return slowInvocationCount;
+	}
+
+	/**
+	 * @return histogram of sampled invocation durations in nanoseconds
+	 */
+	public HistogramSnapshot getLatency() {
+		return latency;
+	}
+
+	@Override
+	public String toString() {
+		return "HandlerMetricsSnapshot [handler=" + handler + ", eventType="
+				+ eventType.getName() + ", invocations="
+				+ invocationCount + ", errors=" + errorCount
+				+ ", slowInvocations=" + slowInvocationCount
+				+ ", latency=" + latency + "]";
+	}
+
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.metrics;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import net.exacode.eventbus.dispatch.concurrent.DaemonThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds handler invocations that run longer than a threshold, e.g. a handler
+ * that hangs and stalls the posting thread or pins a worker of an
+ * asynchronous dispatch strategy.
+ * <p>
+ * Watched handlers are wrapped in {@link InstrumentedMethodHandler}s that
+ * publish running invocations without reading the clock. A daemon thread
+ * checks them several times per threshold and, when an invocation is still
+ * running after the threshold, captures the stack trace of its thread,
+ * counts it in {@link HandlerMetricsSnapshot#getSlowInvocationCount()} and
+ * reports it to a {@link SlowHandlerListener}. Each slow invocation is
+ * reported once.
+ * 
+ * @author mendlik
+ * 
+ * @see net.exacode.eventbus.builder.EventBusBuilder#handlerWatchdog(HandlerWatchdog)
+ */
+public class HandlerWatchdog {
+
+	private static final int CHECKS_PER_THRESHOLD = 4;
+
+	/**
+	 * Last observed state of a thread that invokes watched handlers.
+	 */
+	private static final class Observation {
+
+		private long sequence = -1;
+
+		private long since;
+
+		private boolean reported;
+
+	}
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final long thresholdNanos;
+
+	private final long checkIntervalNanos;
+
+	private final SlowHandlerListener listener;
+
+	/**
+	 * Contexts of threads that invoked a handler watched by this watchdog.
+	 * Contexts of dead threads are removed by {@link #check(long)}.
+	 */
+	private final Set<InvocationContext> contexts = ConcurrentHashMap
+			.newKeySet();
+
+	private volatile boolean stopped;
+
+	/** accessed only by the watchdog thread */
+	private final Map<InvocationContext, Observation> observations = new IdentityHashMap<InvocationContext, Observation>();
+
+	private Thread thread;
+
+	/**
+	 * Creates watchdog that logs slow invocations.
+	 * 
+	 * @param threshold
+	 *            duration after which an invocation is reported
+	 * @param unit
+	 *            the time unit of the threshold
+	 */
+	public HandlerWatchdog(long threshold, TimeUnit unit) {
+		this(threshold, unit, new SlowHandlerLoggingListener());
+	}
+
+	/**
+	 * @param threshold
+	 *            duration after which an invocation is reported
+	 * @param unit
+	 *            the time unit of the threshold
+	 * @param listener
+	 *            receives slow invocations
+	 */
+	public HandlerWatchdog(long threshold, TimeUnit unit,
+			SlowHandlerListener listener) {
+		if (threshold <= 0) {
+			throw new IllegalArgumentException(
+					"Threshold must be positive, but was: " + threshold);
+		}
+		this.thresholdNanos = unit.toNanos(threshold);
+		this.checkIntervalNanos = Math.max(thresholdNanos
+				/ CHECKS_PER_THRESHOLD, TimeUnit.MILLISECONDS.toNanos(1));
+		this.listener = listener;
+	}
+
+	/**
+	 * Starts the watchdog thread. Subsequent calls have no effect.
+	 */
+	public synchronized void start() {
+		if (thread == null) {
+			thread = new DaemonThreadFactory("flexibus-watchdog")
+					.newThread(new Runnable() {
+						@Override
+						public void run() {
+							watch();
+						}
+					});
+			thread.start();
+		}
+	}
+
+	/**
+	 * Stops the watchdog thread and forgets watched threads. Handlers remain
+	 * instrumented, but slow invocations are no longer reported.
+	 */
+	public synchronized void shutdown() {
+		stopped = true;
+		if (thread != null) {
+			thread.interrupt();
+		}
+		contexts.clear();
+	}
+
+	/**
+	 * @param unit
+	 *            unit of the result
+	 * @return duration after which an invocation is reported
+	 */
+	public long getThreshold(TimeUnit unit) {
+		return unit.convert(thresholdNanos, TimeUnit.NANOSECONDS);
+	}
+
+	private void watch() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				check(System.nanoTime());
+				TimeUnit.NANOSECONDS.sleep(checkIntervalNanos);
+			}
+		} catch (InterruptedException e) {
+			// shut down
+		}
+		observations.clear();
+	}
+
+	/**
+	 * Called by a thread when it invokes a handler watched by this watchdog
+	 * for the first time, or after invoking a handler of another watchdog.
+	 */
+	void register(InvocationContext context) {
+		if (!stopped) {
+			contexts.add(context);
+		}
+	}
+
+	/**
+	 * @return number of threads that invoked a handler watched by this
+	 *         watchdog
+	 */
+	int getWatchedThreadCount() {
+		return contexts.size();
+	}
+
+	/**
+	 * Reports invocations that did not finish for the threshold. An
+	 * invocation is considered running since the first check that found it.
+	 * 
+	 * @param now
+	 *            current value of {@link System#nanoTime()}
+	 */
+	void check(long now) {
+		Iterator<InvocationContext> iterator = contexts.iterator();
+		while (iterator.hasNext()) {
+			InvocationContext context = iterator.next();
+			if (!context.getThread().isAlive()) {
+				iterator.remove();
+				observations.remove(context);
+				continue;
+			}
+			long sequence = context.sequence();
+			Observation observation = observations.get(context);
+			if (observation == null) {
+				observation = new Observation();
+				observations.put(context, observation);
+			}
+			if (observation.sequence != sequence) {
+				observation.sequence = sequence;
+				observation.since = now;
+				observation.reported = false;
+				continue;
+			}
+			if (observation.reported
+					|| now - observation.since < thresholdNanos) {
+				continue;
+			}
+			InstrumentedMethodHandler handler = context.innermostHandler();
+			Class<?> eventType = context.innermostEventType();
+			if (!context.validate(sequence)) {
+				continue;
+			}
+			observation.reported = true;
+			if (handler != null && eventType != null
+					&& handler.getWatchdog() == this) {
+				report(handler, eventType, context.getThread(), now
+						- observation.since);
+			}
+		}
+	}
+
+	private void report(InstrumentedMethodHandler handler,
+			Class<?> eventType, Thread handlingThread, long durationNanos) {
+		handler.recordSlow(eventType);
+		SlowHandlerInvocation invocation = new SlowHandlerInvocation(
+				handler.getName(), eventType, handlingThread, durationNanos,
+				handlingThread.getStackTrace());
+		try {
+			listener.slowHandler(invocation);
+		} catch (RuntimeException e) {
+			logger.error("Slow handler listener failed", e);
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.metrics;
+
+/**
+ * Immutable copy of {@link LatencyHistogram} state.
+ * 
+ * @author mendlik
+ * 
+ */
+public class HistogramSnapshot {
+
+	private final long[] counts;
+
+	private final long totalCount;
+
+	private final long max;
+
+	HistogramSnapshot(long[] counts, long max) {
+		this.counts = counts;
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		this.totalCount = total;
+		this.max = max;
+	}
+
+	/**
+	 * @return number of recorded values
+	 */
+	public long getCount() {
+		return totalCount;
+	}
+
+	/**
+	 * @return the highest recorded value in nanoseconds
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * @return approximate mean of recorded values in nanoseconds
+	 */
+	public double getMean() {
+		if (totalCount == 0) {
+			return 0;
+		}
+		double sum = 0;
+		for (int i = 0; i < counts.length; ++i) {
+			if (counts[i] != 0) {
+				sum += (double) counts[i]
+						* Math.min(LatencyHistogram.highestValueOf(i), max);
+			}
+		}
+		return sum / totalCount;
+	}
+
+	/**
+	 * @param percentile
+	 *            percentile in range {@code [0, 100]}
+	 * @return value in nanoseconds that is greater or equal to the given
+	 *         percentage of recorded values
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException(
+					"Percentile must be in range [0, 100], but was: "
+							+ percentile);
+		}
+		if (totalCount == 0) {
+			return 0;
+		}
+		long countAtPercentile = Math.max(1,
+				(long) Math.ceil(percentile / 100 * totalCount));
+		long counted = 0;
+		for (int i = 0; i < counts.length; ++i) {
+			counted += counts[i];
+			if (counted >= countAtPercentile) {
+				return Math.min(LatencyHistogram.highestValueOf(i), max);
+			}
+		}
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		return "HistogramSnapshot [count=" + totalCount + ", mean="
+				+ (long) getMean() + ", p50=" + getValueAtPercentile(50)
+				+ ", p99=" + getValueAtPercentile(99) + ", max=" + max + "]";
+	}
+
+}
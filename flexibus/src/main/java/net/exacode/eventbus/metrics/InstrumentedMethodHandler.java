@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.metrics;
+
+import java.lang.reflect.Method;
+
+import net.exacode.eventbus.handler.MethodHandler;
+
+/**
+ * Records invocation count, errors and latency of a {@link MethodHandler} in
+ * {@link EventBusMetrics}.
+ * <p>
+ * An invocation is counted as an error when the handler method throws an
+ * exception that reaches {@link MetricsExceptionHandler} or this wrapper.
+ * Latency of sampled invocations is measured with {@link System#nanoTime()}.
+ * <p>
+ * Invocations are optionally published to a {@link HandlerWatchdog}.
+ * 
+ * @author mendlik
+ * 
+ */
+public class InstrumentedMethodHandler implements MethodHandler {
+
+	/**
+	 * Start time of an invocation that is not sampled.
+	 */
+	private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+	private final MethodHandler delegate;
+
+	private final EventBusMetrics eventBusMetrics;
+
+	private final int sampleMask;
+
+	private final HandlerWatchdog watchdog;
+
+	/**
+	 * Name and metrics of the handler method, resolved with the first
+	 * invocation, so binding a handler for unregistration does not build the
+	 * name. Races resolve the same values.
+	 */
+	private String name;
+
+	private EventBusMetrics.MethodMetrics metrics;
+
+	/**
+	 * Metrics of the last handled event type. Handlers usually receive
+	 * events of one type, so it spares most of the map lookups.
+	 */
+	private HandlerMetrics lastMetrics;
+
+	public InstrumentedMethodHandler(MethodHandler delegate,
+			EventBusMetrics metrics) {
+		this(delegate, metrics, null);
+	}
+
+	/**
+	 * @param watchdog
+	 *            watchdog of invocations or {@code null}
+	 */
+	public InstrumentedMethodHandler(MethodHandler delegate,
+			EventBusMetrics metrics, HandlerWatchdog watchdog) {
+		this.delegate = delegate;
+		this.eventBusMetrics = metrics;
+		this.sampleMask = metrics.getLatencySampleMask();
+		this.watchdog = watchdog;
+	}
+
+	/**
+	 * @param handler
+	 *            handler method
+	 * @return name that identifies the handler method in
+	 *         {@link EventBusMetrics}
+	 */
+	public static String nameOf(MethodHandler handler) {
+		Method method = handler.getMethod();
+		if (method == null) {
+			return handler.getTarget().getClass().getName() + ".*";
+		}
+		StringBuilder name = new StringBuilder();
+		name.append(method.getDeclaringClass().getName()).append('.')
+				.append(method.getName()).append('(');
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		for (int i = 0; i < parameterTypes.length; ++i) {
+			if (i > 0) {
+				name.append(", ");
+			}
+			name.append(parameterTypes[i].getSimpleName());
+		}
+		return name.append(')').toString();
+	}
+
+	@Override
+	public void handleEvent(Object event) {
+		InvocationContext context = InvocationContext.current();
+		long start = begin(context, event.getClass());
+		boolean completed = false;
+		try {
+			delegate.handleEvent(event);
+			completed = true;
+		} finally {
+			end(context, event.getClass(), start, completed);
+		}
+	}
+
+	@Override
+	public Object handleRequest(Object event) {
+		InvocationContext context = InvocationContext.current();
+		long start = begin(context, event.getClass());
+		boolean completed = false;
+		try {
+			Object result = delegate.handleRequest(event);
+			completed = true;
+			return result;
+		} finally {
+			end(context, event.getClass(), start, completed);
+		}
+	}
+
+	@Override
+	public void handleEvent(int event) {
+		InvocationContext context = InvocationContext.current();
+		long start = begin(context, Integer.class);
+		boolean completed = false;
+		try {
+			delegate.handleEvent(event);
+			completed = true;
+		} finally {
+			end(context, Integer.class, start, completed);
+		}
+	}
+
+	@Override
+	public void handleEvent(long event) {
+		InvocationContext context = InvocationContext.current();
+		long start = begin(context, Long.class);
+		boolean completed = false;
+		try {
+			delegate.handleEvent(event);
+			completed = true;
+		} finally {
+			end(context, Long.class, start, completed);
+		}
+	}
+
+	@Override
+	public void handleEvent(double event) {
+		InvocationContext context = InvocationContext.current();
+		long start = begin(context, Double.class);
+		boolean completed = false;
+		try {
+			delegate.handleEvent(event);
+			completed = true;
+		} finally {
+			end(context, Double.class, start, completed);
+		}
+	}
+
+	/**
+	 * Starts an invocation: enters the invocation context, publishes the
+	 * invocation to the watchdog and reads the clock if it is sampled.
+	 * 
+	 * @return start time or {@link #NOT_SAMPLED}
+	 */
+	private long begin(InvocationContext context, Class<?> eventType) {
+		context.enter();
+		if (watchdog != null) {
+			context.watch(this, eventType);
+		}
+		return context.sample(sampleMask) ? System.nanoTime() : NOT_SAMPLED;
+	}
+
+	/**
+	 * Finishes an invocation started by {@link #begin(InvocationContext,
+	 * Class)} and records it.
+	 */
+	private void end(InvocationContext context, Class<?> eventType,
+			long start, boolean completed) {
+		if (watchdog != null) {
+			context.unwatch();
+		}
+		boolean failed = context.exit() || !completed;
+		HandlerMetrics eventMetrics = lastMetrics;
+		if (eventMetrics == null || eventMetrics.getEventType() != eventType) {
+			eventMetrics = getMetrics().forEventType(eventType);
+			lastMetrics = eventMetrics;
+		}
+		if (start != NOT_SAMPLED) {
+			eventMetrics.record(System.nanoTime() - start, failed);
+		} else {
+			eventMetrics.record(failed);
+		}
+	}
+
+	private EventBusMetrics.MethodMetrics getMetrics() {
+		EventBusMetrics.MethodMetrics methodMetrics = metrics;
+		if (methodMetrics == null) {
+			methodMetrics = eventBusMetrics.forHandler(getName());
+			metrics = methodMetrics;
+		}
+		return methodMetrics;
+	}
+
+	/**
+	 * Counts an invocation found by {@link HandlerWatchdog}. Called by the
+	 * watchdog thread.
+	 */
+	void recordSlow(Class<?> eventType) {
+		getMetrics().forEventType(eventType).recordSlow();
+	}
+
+	/**
+	 * Counts an invocation abandoned after a timeout as an error. Called by
+	 * the dispatching thread.
+	 */
+	void recordTimeout(Class<?> eventType) {
+		getMetrics().forEventType(eventType).recordError();
+	}
+
+	/**
+	 * @return name of the handler method, see {@link #nameOf(MethodHandler)}
+	 */
+	String getName() {
+		String handlerName = name;
+		if (handlerName == null) {
+			handlerName = nameOf(delegate);
+			name = handlerName;
+		}
+		return handlerName;
+	}
+
+	/**
+	 * @return watchdog of invocations or {@code null}
+	 */
+	HandlerWatchdog getWatchdog() {
+		return watchdog;
+	}
+
+	/**
+	 * 
+	 * @return handler object
+	 */
+	@Override
+	public Object getTarget() {
+		return delegate.getTarget();
+	}
+
+	/**
+	 * 
+	 * @return handler method
+	 */
+	@Override
+	public Method getMethod() {
+		return delegate.getMethod();
+	}
+
+	@Override
+	public long getTimeoutMillis() {
+		return delegate.getTimeoutMillis();
+	}
+
+	/**
+	 * @return instrumented handler method
+	 */
+	public MethodHandler getDelegate() {
+		return delegate;
+	}
+
+	@Override
+	public int hashCode() {
+		return delegate.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		InstrumentedMethodHandler other = (InstrumentedMethodHandler) obj;
+		return delegate.equals(other.delegate);
+	}
+
+	@Override
+	public String toString() {
+		return "InstrumentedMethodHandler [delegate=" + delegate + "]";
+	}
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.metrics;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import net.exacode.eventbus.handler.MethodHandler;
+import net.exacode.eventbus.handler.MethodHandlerFinder;
+
+/**
+ * A {@link MethodHandlerFinder} that wraps handler methods found by another
+ * finder in {@link InstrumentedMethodHandler}s, optionally watched by a
+ * {@link HandlerWatchdog}.
+ * 
+ * @author mendlik
+ * 
+ */
+public class InstrumentedMethodHandlerFinder implements MethodHandlerFinder {
+
+	private final MethodHandlerFinder delegate;
+
+	private final EventBusMetrics metrics;
+
+	private final HandlerWatchdog watchdog;
+
+	public InstrumentedMethodHandlerFinder(MethodHandlerFinder delegate,
+			EventBusMetrics metrics) {
+		this(delegate, metrics, null);
+	}
+
+	/**
+	 * @param watchdog
+	 *            watchdog of handler invocations or {@code null}
+	 */
+	public InstrumentedMethodHandlerFinder(MethodHandlerFinder delegate,
+			EventBusMetrics metrics, HandlerWatchdog watchdog) {
+		this.delegate = delegate;
+		this.metrics = metrics;
+		this.watchdog = watchdog;
+	}
+
+	@Override
+	public Map<Class<?>, Set<MethodHandler>> findHandlerMethods(Object listener) {
+		Map<Class<?>, Set<MethodHandler>> found = delegate
+				.findHandlerMethods(listener);
+		Map<Class<?>, Set<MethodHandler>> instrumented = new HashMap<Class<?>, Set<MethodHandler>>();
+		// a handler may be registered for many event types
+		Map<MethodHandler, MethodHandler> wrappers = new IdentityHashMap<MethodHandler, MethodHandler>();
+		for (Entry<Class<?>, Set<MethodHandler>> entry : found.entrySet()) {
+			Set<MethodHandler> handlers = new LinkedHashSet<MethodHandler>();
+			for (MethodHandler handler : entry.getValue()) {
+				MethodHandler wrapper = wrappers.get(handler);
+				if (wrapper == null) {
+					wrapper = new InstrumentedMethodHandler(handler, metrics,
+							watchdog);
+					wrappers.put(handler, wrapper);
+				}
+				handlers.add(wrapper);
+			}
+			instrumented.put(entry.getKey(), handlers);
+		}
+		return instrumented;
+	}
+
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.metrics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * State of handler invocation on the current thread. Lets
+ * {@link MetricsExceptionHandler} mark the invocation measured by
+ * {@link InstrumentedMethodHandler} as failed.
+ * <p>
+ * Invocations of watched handlers are also published for
+ * {@link HandlerWatchdog}. Publishing does not read the clock, the watchdog
+ * finds stalled invocations by {@link #sequence()} that does not change.
+ * 
+ * @author mendlik
+ * 
+ */
+final class InvocationContext {
+
+	private static final ThreadLocal<InvocationContext> CURRENT = new ThreadLocal<InvocationContext>() {
+		@Override
+		protected InvocationContext initialValue() {
+			return new InvocationContext();
+		}
+	};
+
+	private static final VarHandle SEQUENCE;
+
+	static {
+		try {
+			SEQUENCE = MethodHandles.lookup().findVarHandle(
+					InvocationContext.class, "sequence", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * True if the current invocation reported an exception.
+	 */
+	boolean failed;
+
+	/**
+	 * Values of {@link #failed} of enclosing invocations.
+	 */
+	private boolean[] enclosingFailed = new boolean[4];
+
+	private int invocationDepth;
+
+	private final Thread thread = Thread.currentThread();
+
+	/**
+	 * Stack of watched invocations, read by the watchdog thread after
+	 * {@link #sequence()}.
+	 */
+	private InstrumentedMethodHandler[] handlers = new InstrumentedMethodHandler[4];
+
+	private Class<?>[] eventTypes = new Class<?>[4];
+
+	private int depth;
+
+	/**
+	 * Incremented with release semantics when a watched invocation starts or
+	 * finishes.
+	 */
+	@SuppressWarnings("unused")
+	private long sequence;
+
+	/**
+	 * Watchdog this context was last registered with.
+	 */
+	private HandlerWatchdog watchdog;
+
+	/**
+	 * State of xorshift generator choosing sampled invocations.
+	 */
+	private int seed = (int) System.nanoTime() | 1;
+
+	private InvocationContext() {
+	}
+
+	static InvocationContext current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Starts an invocation. State of the enclosing invocation is restored by
+	 * {@link #exit()}.
+	 */
+	void enter() {
+		if (invocationDepth == enclosingFailed.length) {
+			boolean[] grown = new boolean[invocationDepth * 2];
+			System.arraycopy(enclosingFailed, 0, grown, 0, invocationDepth);
+			enclosingFailed = grown;
+		}
+		enclosingFailed[invocationDepth++] = failed;
+		failed = false;
+	}
+
+	/**
+	 * Decides randomly, so that periodic invocation patterns do not bias
+	 * sampling, if latency of an invocation should be measured.
+	 * 
+	 * @param sampleMask
+	 *            sampling interval minus one, interval is a power of two
+	 * @return {@code true} for one in {@code sampleMask + 1} invocations on
+	 *         average
+	 */
+	boolean sample(int sampleMask) {
+		int x = seed;
+		x ^= x << 13;
+		x ^= x >>> 17;
+		x ^= x << 5;
+		seed = x;
+		return (x & sampleMask) == 0;
+	}
+
+	/**
+	 * Finishes an invocation.
+	 * 
+	 * @return {@code true} if the finished invocation reported an exception
+	 */
+	boolean exit() {
+		boolean invocationFailed = failed;
+		failed = enclosingFailed[--invocationDepth];
+		return invocationFailed;
+	}
+
+	/**
+	 * Publishes start of a watched invocation.
+	 * 
+	 * @param handler
+	 *            invoked handler
+	 * @param eventType
+	 *            class of the handled event
+	 */
+	void watch(InstrumentedMethodHandler handler, Class<?> eventType) {
+		HandlerWatchdog handlerWatchdog = handler.getWatchdog();
+		if (handlerWatchdog != watchdog) {
+			handlerWatchdog.register(this);
+			watchdog = handlerWatchdog;
+		}
+		if (depth == handlers.length) {
+			InstrumentedMethodHandler[] grownHandlers = new InstrumentedMethodHandler[depth * 2];
+			Class<?>[] grownEventTypes = new Class<?>[depth * 2];
+			System.arraycopy(handlers, 0, grownHandlers, 0, depth);
+			System.arraycopy(eventTypes, 0, grownEventTypes, 0, depth);
+			handlers = grownHandlers;
+			eventTypes = grownEventTypes;
+		}
+		handlers[depth] = handler;
+		eventTypes[depth] = eventType;
+		++depth;
+		SEQUENCE.setRelease(this, (long) SEQUENCE.get(this) + 1);
+	}
+
+	/**
+	 * Publishes end of the innermost watched invocation.
+	 */
+	void unwatch() {
+		--depth;
+		handlers[depth] = null;
+		eventTypes[depth] = null;
+		SEQUENCE.setRelease(this, (long) SEQUENCE.get(this) + 1);
+	}
+
+	/**
+	 * Called by the watchdog thread.
+	 * 
+	 * @return number of started and finished watched invocations
+	 */
+	long sequence() {
+		return (long) SEQUENCE.getAcquire(this);
+	}
+
+	/**
+	 * Called by the watchdog thread.
+	 * 
+	 * @return thread of this context
+	 */
+	Thread getThread() {
+		return thread;
+	}
+
+	/**
+	 * Called by the watchdog thread, the result is valid if
+	 * {@link #validate(long)} succeeds afterwards.
+	 * 
+	 * @return handler of the innermost watched invocation or {@code null}
+	 */
+	InstrumentedMethodHandler innermostHandler() {
+		InstrumentedMethodHandler[] currentHandlers = handlers;
+		int currentDepth = depth;
+		if (currentDepth <= 0 || currentDepth > currentHandlers.length) {
+			return null;
+		}
+		return currentHandlers[currentDepth - 1];
+	}
+
+	/**
+	 * Called by the watchdog thread, the result is valid if
+	 * {@link #validate(long)} succeeds afterwards.
+	 * 
+	 * @return event type of the innermost watched invocation or {@code null}
+	 */
+	Class<?> innermostEventType() {
+		Class<?>[] currentEventTypes = eventTypes;
+		int currentDepth = depth;
+		if (currentDepth <= 0 || currentDepth > currentEventTypes.length) {
+			return null;
+		}
+		return currentEventTypes[currentDepth - 1];
+	}
+
+	/**
+	 * Called by the watchdog thread after reading the innermost invocation.
+	 * 
+	 * @param sequence
+	 *            value of {@link #sequence()} read before the innermost
+	 *            invocation
+	 * @return {@code true} if no watched invocation started or finished
+	 *         since
+	 */
+	boolean validate(long sequence) {
+		VarHandle.acquireFence();
+		return sequence() == sequence;
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds.
+ * <p>
+ * Values are counted in log-linear buckets, similar to HdrHistogram: every
+ * power of two range is split into {@value #SUB_BUCKET_COUNT} equal buckets,
+ * so recorded values are reported with relative error below
+ * 1/{@value #SUB_BUCKET_COUNT}. Values above 2^{@value #MAX_EXPONENT}
+ * nanoseconds (about 18 minutes) are counted in the last bucket.
+ * <p>
+ * Recording is a single atomic increment, so the histogram can be shared by
+ * many threads. Use {@link #snapshot()} to read it.
+ * 
+ * @author mendlik
+ * 
+ */
+public class LatencyHistogram {
+
+	static final int SUB_BUCKET_BITS = 5;
+
+	static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	static final int MAX_EXPONENT = 40;
+
+	static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2)
+			* SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a value.
+	 * 
+	 * @param nanos
+	 *            latency in nanoseconds, negative values are recorded as 0
+	 */
+	public void record(long nanos) {
+		long value = Math.max(nanos, 0);
+		counts.incrementAndGet(bucketOf(value));
+		long currentMax;
+		while (value > (currentMax = max.get())
+				&& !max.compareAndSet(currentMax, value)) {
+			// retry until the maximum is updated
+		}
+	}
+
+	/**
+	 * Clears recorded values. Values recorded concurrently with the reset may
+	 * be partially kept.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; ++i) {
+			counts.set(i, 0);
+		}
+		max.set(0);
+	}
+
+	/**
+	 * @return copy of the current histogram state
+	 */
+	public HistogramSnapshot snapshot() {
+		long[] snapshotCounts = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; ++i) {
+			snapshotCounts[i] = counts.get(i);
+		}
+		return new HistogramSnapshot(snapshotCounts, max.get());
+	}
+
+	static int bucketOf(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKET_COUNT - 1;
+		}
+		int shift = exponent - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+		return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	/**
+	 * @return the highest value counted in the bucket
+	 */
+	static long highestValueOf(int bucket) {
+		if (bucket < SUB_BUCKET_COUNT) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKET_COUNT - 1;
+		long mantissa = bucket % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+		return ((mantissa + 1) << shift) - 1;
+	}
+
+}
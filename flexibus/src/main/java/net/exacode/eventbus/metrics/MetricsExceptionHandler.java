@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.metrics;
+
+import net.exacode.eventbus.exception.ExceptionHandler;
+import net.exacode.eventbus.exception.HandlerTimeoutException;
+import net.exacode.eventbus.handler.MethodHandler;
+import net.exacode.eventbus.handler.TrackedMethodHandler;
+
+/**
+ * Counts exceptions of handler methods in {@link EventBusMetrics} and passes
+ * them to another {@link ExceptionHandler}.
+ * <p>
+ * A {@link HandlerTimeoutException} is reported by the dispatching thread, it
+ * is counted as an error of the handler method that timed out.
+ * 
+ * @author mendlik
+ * 
+ */
+public class MetricsExceptionHandler implements ExceptionHandler {
+
+	private final ExceptionHandler delegate;
+
+	public MetricsExceptionHandler(ExceptionHandler delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void handle(Throwable e) {
+		if (e instanceof HandlerTimeoutException) {
+			recordTimeout((HandlerTimeoutException) e);
+		} else {
+			InvocationContext.current().failed = true;
+		}
+		delegate.handle(e);
+	}
+
+	private static void recordTimeout(HandlerTimeoutException timeout) {
+		MethodHandler handler = timeout.getHandler();
+		if (handler instanceof TrackedMethodHandler) {
+			handler = ((TrackedMethodHandler) handler).getDelegate();
+		}
+		if (handler instanceof InstrumentedMethodHandler) {
+			((InstrumentedMethodHandler) handler).recordTimeout(timeout
+					.getEvent().getClass());
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handler invocation that exceeded the threshold of {@link HandlerWatchdog},
+ * with the stack trace of the handling thread at the time of detection.
+ * 
+ * @author mendlik
+ * 
+ */
+public class SlowHandlerInvocation {
+
+	private final String handler;
+
+	private final Class<?> eventType;
+
+	private final Thread thread;
+
+	private final long durationNanos;
+
+	private final StackTraceElement[] stackTrace;
+
+	SlowHandlerInvocation(String handler, Class<?> eventType, Thread thread,
+			long durationNanos, StackTraceElement[] stackTrace) {
+		this.handler = handler;
+		this.eventType = eventType;
+		this.thread = thread;
+		this.durationNanos = durationNanos;
+		this.stackTrace = stackTrace;
+	}
+
+	/**
+	 * @return name of the handler method, see
+	 *         {@link InstrumentedMethodHandler#nameOf(net.exacode.eventbus.handler.MethodHandler)}
+	 */
+	public String getHandler() {
+		return handler;
+	}
+
+	/**
+	 * @return class of the handled event
+	 */
+	public Class<?> getEventType() {
+		return eventType;
+	}
+
+	/**
+	 * @return thread that runs the invocation
+	 */
+	public Thread getThread() {
+		return thread;
+	}
+
+	/**
+	 * Returns how long the invocation was running when it was detected. The
+	 * invocation may have started up to one check interval of the watchdog
+	 * earlier.
+	 * 
+	 * @param unit
+	 *            unit of the result
+	 * @return minimal duration of the invocation
+	 */
+	public long getDuration(TimeUnit unit) {
+		return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @return stack trace of the handling thread
+	 */
+	public StackTraceElement[] getStackTrace() {
+		return stackTrace.clone();
+	}
+
+	@Override
+	public String toString() {
+		return "SlowHandlerInvocation [handler=" + handler + ", eventType="
+				+ eventType.getName() + ", thread=" + thread.getName()
+				+ ", durationMillis="
+				+ getDuration(TimeUnit.MILLISECONDS) + "]";
+	}
+
+}
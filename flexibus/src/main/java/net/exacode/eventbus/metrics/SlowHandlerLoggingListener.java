@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs slow handler invocations with the stack trace of the handling thread.
+ * 
+ * @author mendlik
+ * 
+ */
+public class SlowHandlerLoggingListener implements SlowHandlerListener {
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	@Override
+	public void slowHandler(SlowHandlerInvocation invocation) {
+		Throwable stackTrace = new Throwable("Stack trace of thread "
+				+ invocation.getThread().getName());
+		stackTrace.setStackTrace(invocation.getStackTrace());
+		logger.warn("Handler {} is handling {} for more than {} ms",
+				invocation.getHandler(), invocation.getEventType().getName(),
+				invocation.getDuration(TimeUnit.MILLISECONDS), stackTrace);
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.exacode.eventbus.dispatch.concurrent.SingleThreadedAsyncDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.SyncDispatchStrategy;
+import net.exacode.eventbus.handler.MethodHandler;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+
+public class EventBus_BatchPostTest {
+
+	public static class RecordingHandler {
+
+		protected final List<Object> events = Collections
+				.synchronizedList(new ArrayList<Object>());
+
+		@EventHandler
+		public void handle(String event) {
+			events.add(event);
+		}
+
+		@EventHandler
+		public void handle(Integer event) {
+			events.add(event);
+		}
+
+		@EventHandler
+		public void handle(DeadEvent event) {
+			events.add(event.getEvent());
+		}
+
+	}
+
+	private static class BatchCountingStrategy extends SyncDispatchStrategy {
+
+		private int batches;
+
+		@Override
+		public void dispatchEvents(List<Object> events,
+				List<Collection<MethodHandler>> handlerMethods) {
+			++batches;
+			super.dispatchEvents(events, handlerMethods);
+		}
+
+	}
+
+	@Test
+	public void shouldDeliverEventsInOrderAsOneBatch() {
+		// given
+		BatchCountingStrategy strategy = new BatchCountingStrategy();
+		EventBus bus = EventBus.builder().eventDispatchStrategy(strategy)
+				.buildEventBus();
+		RecordingHandler handler = new RecordingHandler();
+		bus.register(handler);
+		List<Object> events = Arrays.<Object> asList("a", 1, 2, "b", 2.5,
+				null, 3);
+
+		// when
+		bus.postAll(events);
+
+		// then
+		Assertions.assertThat(strategy.batches).isEqualTo(1);
+		Assertions.assertThat(handler.events).isEqualTo(
+				Arrays.<Object> asList("a", 1, 2, "b", 2.5, 3));
+	}
+
+	@Test
+	public void shouldDeliverEventsPostedByHandlersAfterWholeBatch() {
+		// given
+		final EventBus bus = EventBus.builder().withSyncDispatchStrategy()
+				.buildEventBus();
+		RecordingHandler handler = new RecordingHandler() {
+			@Override
+			@EventHandler
+			public void handle(String event) {
+				bus.postAll(Arrays.asList(1, 2));
+				events.add(event);
+			}
+		};
+		bus.register(handler);
+
+		// when
+		bus.postAll(Arrays.asList("a", "b"));
+
+		// then
+		Assertions.assertThat(handler.events).isEqualTo(
+				Arrays.<Object> asList("a", "b", 1, 2, 1, 2));
+	}
+
+	@Test
+	public void shouldDeliverBatchAsynchronouslyInOrder()
+			throws InterruptedException {
+		// given
+		SingleThreadedAsyncDispatchStrategy strategy = new SingleThreadedAsyncDispatchStrategy();
+		EventBus bus = EventBus.builder().eventDispatchStrategy(strategy)
+				.buildEventBus();
+		RecordingHandler handler = new RecordingHandler();
+		bus.register(handler);
+		List<Object> events = new ArrayList<Object>();
+		for (int i = 0; i < 1000; ++i) {
+			events.add(i);
+		}
+
+		// when
+		bus.postAll(events);
+		bus.post("last");
+		strategy.shutdown();
+
+		// then
+		Assertions.assertThat(strategy.awaitTermination(5, TimeUnit.SECONDS))
+				.isTrue();
+		events.add("last");
+		Assertions.assertThat(handler.events).isEqualTo(events);
+	}
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.exacode.eventbus.dispatch.concurrent.SingleThreadedAsyncDispatchStrategy;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+
+public class EventBus_MBeanTest {
+
+	public static class StringHandler {
+
+		@EventHandler
+		public void handle(String event) {
+			if ("fail".equals(event)) {
+				throw new IllegalStateException(event);
+			}
+		}
+
+		@EventHandler
+		public void handleAgain(CharSequence event) {
+		}
+
+	}
+
+	private final MBeanServer server = ManagementFactory
+			.getPlatformMBeanServer();
+
+	private EventBus eventBus;
+
+	@After
+	public void tearDown() {
+		if (eventBus != null) {
+			eventBus.unregisterMBean();
+		}
+	}
+
+	@Test
+	public void shouldRegisterMBeanNamedAfterBusId() throws Exception {
+		// given
+		eventBus = EventBus.builder().logId("mbean-test").withMBean()
+				.withSyncDispatchStrategy().buildEventBus(new StringHandler());
+
+		// when
+		EventBusMXBean mbean = proxy("net.exacode.eventbus:type=EventBus,name=mbean-test");
+
+		// then
+		Assertions.assertThat(mbean.getId()).isEqualTo("mbean-test");
+		Assertions.assertThat(mbean.getHandlerCount()).isEqualTo(2);
+		Assertions.assertThat(
+				mbean.getHandlerCounts().get(String.class.getName()))
+				.isEqualTo(1);
+		Assertions.assertThat(
+				mbean.getHandlerCounts().get(CharSequence.class.getName()))
+				.isEqualTo(1);
+		Assertions.assertThat(mbean.getQueueSize()).isEqualTo(-1);
+	}
+
+	@Test
+	public void shouldCountDeadEventsAndExceptions() throws Exception {
+		// given
+		eventBus = EventBus.builder().logId("mbean-counters").withMBean()
+				.withMetrics().withSyncDispatchStrategy()
+				.buildEventBus(new StringHandler());
+		EventBusMXBean mbean = proxy("net.exacode.eventbus:type=EventBus,name=mbean-counters");
+
+		// when
+		eventBus.post("ok");
+		eventBus.post("fail");
+		eventBus.post(1);
+		eventBus.post(2L);
+
+		// then
+		Assertions.assertThat(mbean.getDeadEventCount()).isEqualTo(2);
+		Assertions.assertThat(mbean.getExceptionCount()).isEqualTo(1);
+		Assertions.assertThat(mbean.getInvocationCount()).isEqualTo(4);
+	}
+
+	@Test
+	public void shouldResetCounters() throws Exception {
+		// given
+		eventBus = EventBus.builder().logId("mbean-reset").withMBean()
+				.withMetrics().withSyncDispatchStrategy()
+				.buildEventBus(new StringHandler());
+		EventBusMXBean mbean = proxy("net.exacode.eventbus:type=EventBus,name=mbean-reset");
+		eventBus.post("fail");
+		eventBus.post(1);
+
+		// when
+		mbean.resetCounters();
+
+		// then
+		Assertions.assertThat(mbean.getDeadEventCount()).isEqualTo(0);
+		Assertions.assertThat(mbean.getExceptionCount()).isEqualTo(0);
+		Assertions.assertThat(mbean.getInvocationCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void shouldDumpDispatchTable() throws Exception {
+		// given
+		eventBus = EventBus.builder().logId("mbean-dump").withMBean()
+				.withSyncDispatchStrategy().buildEventBus(new StringHandler());
+		EventBusMXBean mbean = proxy("net.exacode.eventbus:type=EventBus,name=mbean-dump");
+		eventBus.post("event");
+
+		// when
+		String dump = mbean.dumpDispatchTable();
+
+		// then
+		Assertions.assertThat(dump).contains(
+				"java.lang.String -> [" + StringHandler.class.getName()
+						+ ".handle(String), " + StringHandler.class.getName()
+						+ ".handleAgain(CharSequence)]");
+	}
+
+	@Test
+	public void shouldExposeQueueOfMonitoredDispatchStrategy()
+			throws Exception {
+		// given
+		SingleThreadedAsyncDispatchStrategy strategy = new SingleThreadedAsyncDispatchStrategy();
+		final CountDownLatch release = new CountDownLatch(1);
+		eventBus = EventBus.builder().logId("mbean-queue").withMBean()
+				.eventDispatchStrategy(strategy).buildEventBus(new Object() {
+					@EventHandler
+					public void handle(String event)
+							throws InterruptedException {
+						release.await(5, TimeUnit.SECONDS);
+					}
+				});
+		EventBusMXBean mbean = proxy("net.exacode.eventbus:type=EventBus,name=mbean-queue");
+
+		// when
+		eventBus.post("first");
+		eventBus.post("second");
+		eventBus.post("third");
+
+		// then
+		try {
+			long deadline = System.currentTimeMillis() + 5000;
+			while (mbean.getActiveWorkerCount() == 0
+					&& System.currentTimeMillis() < deadline) {
+				Thread.sleep(1);
+			}
+			Assertions.assertThat(mbean.getActiveWorkerCount()).isEqualTo(1);
+			Assertions.assertThat(mbean.getQueueSize()).isEqualTo(2);
+		} finally {
+			release.countDown();
+			strategy.shutdown();
+			strategy.awaitTermination(5, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldRejectBusWithDuplicatedId() {
+		// given
+		eventBus = EventBus.builder().logId("mbean-duplicate").withMBean()
+				.buildEventBus();
+
+		// when
+		EventBus.builder().logId("mbean-duplicate").withMBean()
+				.buildEventBus();
+	}
+
+	private EventBusMXBean proxy(String name) throws Exception {
+		ObjectName objectName = new ObjectName(name);
+		Assertions.assertThat(server.isRegistered(objectName)).isTrue();
+		return JMX.newMXBeanProxy(server, objectName, EventBusMXBean.class);
+	}
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import net.exacode.eventbus.dispatch.KeyExtractor;
+import net.exacode.eventbus.dispatch.concurrent.BoundedAsyncDispatchStrategy;
+import net.exacode.eventbus.dispatch.concurrent.BoundedAsyncDispatchStrategy.OverflowPolicy;
+import net.exacode.eventbus.dispatch.concurrent.ConflatingDispatchStrategy;
+import net.exacode.eventbus.exception.EventHandlingException;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+
+public class EventBus_PostAsyncTest {
+
+	public static class SlowHandler {
+
+		private final List<Object> events = Collections
+				.synchronizedList(new ArrayList<Object>());
+
+		@EventHandler
+		public void handle(String event) throws InterruptedException {
+			Thread.sleep(20);
+			events.add(event);
+		}
+
+		@EventHandler
+		public void handleAgain(String event) throws InterruptedException {
+			Thread.sleep(20);
+			events.add(event);
+		}
+
+	}
+
+	public static class FailingHandler {
+
+		@EventHandler
+		public void handle(String event) {
+			throw new IllegalStateException("first");
+		}
+
+		@EventHandler
+		public void handleAgain(String event) {
+			throw new IllegalArgumentException("second");
+		}
+
+		@EventHandler
+		public void handle(Integer event) {
+		}
+
+	}
+
+	public static class GatedHandler {
+
+		private final CountDownLatch started = new CountDownLatch(1);
+
+		private final CountDownLatch gate = new CountDownLatch(1);
+
+		@EventHandler
+		public void handle(Integer event) throws InterruptedException {
+			started.countDown();
+			gate.await(5, TimeUnit.SECONDS);
+		}
+
+	}
+
+	@Test
+	public void shouldCompleteWhenAllHandlersFinished() throws Exception {
+		// given
+		SlowHandler handler = new SlowHandler();
+		EventBus bus = EventBus.builder().withAsyncDispatchStrategy()
+				.buildEventBus(handler);
+
+		// when
+		CompletableFuture<Void> future = bus.postAsync("event");
+		future.get(5, TimeUnit.SECONDS);
+
+		// then
+		Assertions.assertThat(handler.events).containsExactly("event",
+				"event");
+	}
+
+	@Test
+	public void shouldCompleteExceptionallyWithAllFailures()
+			throws InterruptedException {
+		// given
+		EventBus bus = EventBus.builder().withSyncDispatchStrategy()
+				.buildEventBus(new FailingHandler());
+
+		// when
+		CompletableFuture<Void> future = bus.postAsync("event");
+
+		// then
+		Assertions.assertThat(future.isCompletedExceptionally()).isTrue();
+		try {
+			future.get();
+			Assertions.fail("Expected failed future");
+		} catch (ExecutionException e) {
+			EventHandlingException failure = (EventHandlingException) e
+					.getCause();
+			Assertions.assertThat(failure.getEvent()).isEqualTo("event");
+			Assertions.assertThat(failure.getFailures()).hasSize(2);
+		}
+		Assertions.assertThat(bus.postAsync(1).isDone()).isTrue();
+		Assertions.assertThat(bus.postAsync(1).isCompletedExceptionally())
+				.isFalse();
+	}
+
+	@Test
+	public void shouldCompleteDeadEvent() {
+		// given
+		EventBus bus = EventBus.builder().withSyncDispatchStrategy()
+				.buildEventBus();
+
+		// when
+		CompletableFuture<Void> future = bus.postAsync("dead");
+
+		// then
+		Assertions.assertThat(future.isDone()).isTrue();
+		Assertions.assertThat(bus.deadEventCount.sum()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldCompleteConflatedEvents() throws Exception {
+		// given
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		GatedHandler handler = new GatedHandler();
+		EventBus bus = EventBus.builder()
+				.eventDispatchStrategy(
+						new ConflatingDispatchStrategy(executor,
+								new KeyExtractor() {
+									@Override
+									public Object getKey(Object event) {
+										return "key";
+									}
+								})).buildEventBus(handler);
+		CompletableFuture<Void> first = bus.postAsync(1);
+		handler.started.await(5, TimeUnit.SECONDS);
+
+		// when
+		CompletableFuture<Void> conflated = bus.postAsync(2);
+		CompletableFuture<Void> latest = bus.postAsync(3);
+
+		// then
+		Assertions.assertThat(conflated.isDone()).isTrue();
+		handler.gate.countDown();
+		CompletableFuture.allOf(first, latest).get(5, TimeUnit.SECONDS);
+		executor.shutdown();
+	}
+
+	@Test
+	public void shouldCompleteDroppedEventExceptionally() throws Exception {
+		// given
+		BoundedAsyncDispatchStrategy strategy = new BoundedAsyncDispatchStrategy(
+				1, 1, OverflowPolicy.DROP_NEWEST, 0, TimeUnit.MILLISECONDS);
+		GatedHandler handler = new GatedHandler();
+		EventBus bus = EventBus.builder().eventDispatchStrategy(strategy)
+				.buildEventBus(handler);
+		CompletableFuture<Void> running = bus.postAsync(1);
+		handler.started.await(5, TimeUnit.SECONDS);
+		CompletableFuture<Void> queued = bus.postAsync(2);
+
+		// when
+		CompletableFuture<Void> dropped = bus.postAsync(3);
+
+		// then
+		try {
+			dropped.get(5, TimeUnit.SECONDS);
+			Assertions.fail("Expected failed future");
+		} catch (ExecutionException e) {
+			Assertions.assertThat(e.getCause().getCause()).isInstanceOf(
+					RejectedExecutionException.class);
+		}
+		handler.gate.countDown();
+		CompletableFuture.allOf(running, queued).get(5, TimeUnit.SECONDS);
+		strategy.shutdown();
+	}
+
+}
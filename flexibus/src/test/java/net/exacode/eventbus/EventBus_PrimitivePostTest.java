@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.exacode.eventbus.dispatch.concurrent.SingleThreadedAsyncDispatchStrategy;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+
+public class EventBus_PrimitivePostTest {
+
+	public static class NumberHandler {
+
+		private final List<Object> events = new ArrayList<Object>();
+
+		@EventHandler
+		public void handleLong(long event) {
+			events.add("long:" + event);
+		}
+
+		@EventHandler
+		public void handleLongObject(Long event) {
+			events.add("Long:" + event);
+		}
+
+		@EventHandler
+		public void handleNumber(Number event) {
+			events.add("Number:" + event);
+		}
+
+		@EventHandler
+		public void handleShort(short event) {
+			events.add("short:" + event);
+		}
+
+		@EventHandler
+		public void handleInt(int event) {
+			events.add("int:" + event);
+		}
+
+		@EventHandler
+		public void handleDouble(double event) {
+			events.add("double:" + event);
+			if (event > 0) {
+				post(event);
+			}
+		}
+
+		protected void post(double event) {
+		}
+
+	}
+
+	@Test
+	public void shouldDeliverPrimitiveEventToCompatibleHandlers() {
+		// given
+		EventBus bus = EventBus.builder().withSyncDispatchStrategy()
+				.buildEventBus();
+		NumberHandler handler = new NumberHandler();
+		bus.register(handler);
+
+		// when
+		bus.post(5L);
+
+		// then
+		Assertions.assertThat(handler.events).containsOnly("long:5", "Long:5",
+				"Number:5");
+	}
+
+	@Test
+	public void shouldNotWidenNarrowPrimitiveEvents() {
+		// given
+		EventBus bus = EventBus.builder().withSyncDispatchStrategy()
+				.buildEventBus();
+		NumberHandler handler = new NumberHandler();
+		bus.register(handler);
+
+		// when
+		bus.post((short) 3);
+
+		// then
+		Assertions.assertThat(handler.events).containsOnly("short:3",
+				"Number:3");
+	}
+
+	@Test
+	public void shouldDispatchPrimitiveEventsPostedByHandlersAfterCurrentEvent() {
+		// given
+		final EventBus bus = EventBus.builder().withSyncDispatchStrategy()
+				.buildEventBus();
+		NumberHandler handler = new NumberHandler() {
+			@Override
+			protected void post(double event) {
+				bus.post(event - 1);
+				bus.post(7);
+			}
+		};
+		bus.register(handler);
+
+		// when
+		bus.post(1.0);
+
+		// then
+		Assertions.assertThat(handler.events).containsExactly("double:1.0",
+				"Number:1.0", "double:0.0", "Number:0.0", "int:7", "Number:7");
+	}
+
+	@Test
+	public void shouldDeliverPrimitiveEventsAsynchronously()
+			throws InterruptedException {
+		// given
+		SingleThreadedAsyncDispatchStrategy strategy = new SingleThreadedAsyncDispatchStrategy();
+		EventBus bus = EventBus.builder().eventDispatchStrategy(strategy)
+				.buildEventBus();
+		NumberHandler handler = new NumberHandler();
+		bus.register(handler);
+
+		// when
+		bus.post(5);
+		strategy.shutdown();
+
+		// then
+		Assertions.assertThat(strategy.awaitTermination(5, TimeUnit.SECONDS))
+				.isTrue();
+		Assertions.assertThat(handler.events).containsOnly("int:5",
+				"Number:5");
+	}
+
+	@Test
+	public void shouldPostDeadEventForPrimitiveEventWithoutHandlers() {
+		// given
+		EventBus bus = EventBus.builder().withSyncDispatchStrategy()
+				.buildEventBus();
+		final List<DeadEvent> deadEvents = new ArrayList<DeadEvent>();
+		bus.register(new Object() {
+			@EventHandler
+			public void handle(DeadEvent event) {
+				deadEvents.add(event);
+			}
+		});
+
+		// when
+		bus.post(5L);
+
+		// then
+		Assertions.assertThat(deadEvents.size()).isEqualTo(1);
+		Assertions.assertThat(deadEvents.get(0).getEvent()).isEqualTo(5L);
+	}
+
+}
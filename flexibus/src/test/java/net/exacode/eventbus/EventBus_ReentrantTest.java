@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import net.exacode.eventbus.exception.ExceptionHandler;
 import net.exacode.eventbus.util.EventBusTestUtils;
 import net.exacode.eventbus.util.handler.TestEventHandler;
 
@@ -53,6 +54,82 @@ public class EventBus_ReentrantTest {
 						EventBusTestUtils.INTEGER_EVENT));
 	}
 
+	@Test
+	public void shouldKeepOrderOfManyEventsPostedByHandler() {
+		// given
+		final int count = 100;
+		final List<Object> events = new ArrayList<Object>();
+		bus.register(new Object() {
+			@EventHandler
+			public void handle(String event) {
+				events.add(event);
+				for (int i = 0; i < count; ++i) {
+					bus.post(i);
+				}
+				events.add("done");
+			}
+
+			@EventHandler
+			public void handle(Integer event) {
+				events.add(event);
+			}
+		});
+		List<Object> expected = new ArrayList<Object>();
+		expected.add(EventBusTestUtils.STRING_EVENT);
+		expected.add("done");
+		for (int i = 0; i < count; ++i) {
+			expected.add(i);
+		}
+
+		// when
+		bus.post(EventBusTestUtils.STRING_EVENT);
+		bus.post(EventBusTestUtils.STRING_EVENT);
+
+		// then
+		Assertions.assertThat(events.subList(0, expected.size())).isEqualTo(
+				expected);
+		Assertions.assertThat(events.subList(expected.size(), events.size()))
+				.isEqualTo(expected);
+	}
+
+	@Test
+	public void shouldDispatchEventsAfterFailedDispatch() {
+		// given
+		bus = EventBus.builder().withSyncDispatchStrategy()
+				.exceptionHandler(new ExceptionHandler() {
+					@Override
+					public void handle(Throwable e) {
+						throw new IllegalStateException(e);
+					}
+				}).buildEventBus();
+		final List<Object> events = new ArrayList<Object>();
+		bus.register(new Object() {
+			@EventHandler
+			public void handle(String event) {
+				bus.post(EventBusTestUtils.INTEGER_EVENT);
+				throw new IllegalArgumentException(event);
+			}
+
+			@EventHandler
+			public void handle(Integer event) {
+				events.add(event);
+			}
+		});
+		try {
+			bus.post(EventBusTestUtils.STRING_EVENT);
+			Assertions.fail("Expected exception");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		// when
+		bus.post(EventBusTestUtils.INTEGER_EVENT);
+
+		// then
+		Assertions.assertThat(events).containsExactly(
+				EventBusTestUtils.INTEGER_EVENT);
+	}
+
 	public class ReentrantEventHandler implements TestEventHandler<Object> {
 		private boolean ready = false;
 
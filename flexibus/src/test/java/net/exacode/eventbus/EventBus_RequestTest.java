@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import net.exacode.eventbus.exception.EventHandlingException;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+
+public class EventBus_RequestTest {
+
+	public static class ReplyingHandler {
+
+		@EventHandler
+		public String upperCase(String request) {
+			return request.toUpperCase();
+		}
+
+		@EventHandler
+		public CompletionStage<Integer> length(final String request) {
+			return CompletableFuture.supplyAsync(new Supplier<Integer>() {
+				@Override
+				public Integer get() {
+					return request.length();
+				}
+			});
+		}
+
+		@EventHandler
+		public void observe(CharSequence request) {
+		}
+
+		@EventHandler
+		public Integer fail(Integer request) {
+			throw new IllegalStateException("fail");
+		}
+
+		@EventHandler
+		public Integer twice(Number request) {
+			return request.intValue() * 2;
+		}
+
+	}
+
+	@Test
+	public void shouldReturnFirstResult() throws Exception {
+		// given
+		EventBus bus = EventBus.builder().withSyncDispatchStrategy()
+				.buildEventBus(new ReplyingHandler());
+
+		// when
+		Object reply = bus.request("ping").get(5, TimeUnit.SECONDS);
+
+		// then
+		Assertions.assertThat(reply).isIn("PING", 4);
+	}
+
+	@Test
+	public void shouldCollectAllResults() throws Exception {
+		// given
+		EventBus bus = EventBus.builder().withAsyncDispatchStrategy()
+				.buildEventBus(new ReplyingHandler());
+
+		// when
+		List<Object> replies = bus.requestAll("ping").get(5,
+				TimeUnit.SECONDS);
+
+		// then
+		Assertions.assertThat(replies).containsOnly("PING", 4);
+	}
+
+	@Test
+	public void shouldReplyWithNullWithoutResults() throws Exception {
+		// given
+		EventBus bus = EventBus.builder().withSyncDispatchStrategy()
+				.buildEventBus(new ReplyingHandler());
+
+		// when
+		CompletableFuture<Object> observed = bus.request(new StringBuilder(
+				"ping"));
+		CompletableFuture<List<Object>> dead = bus.requestAll(new Object());
+
+		// then
+		Assertions.assertThat(observed.get()).isNull();
+		Assertions.assertThat(dead.get()).isEmpty();
+	}
+
+	@Test
+	public void shouldReplyDespiteFailureOfOtherHandler() throws Exception {
+		// given
+		EventBus bus = EventBus.builder().withSyncDispatchStrategy()
+				.buildEventBus(new ReplyingHandler());
+
+		// when
+		CompletableFuture<Object> first = bus.request(21);
+		CompletableFuture<List<Object>> all = bus.requestAll(21);
+
+		// then
+		Assertions.assertThat(first.get()).isEqualTo(42);
+		try {
+			all.get();
+			Assertions.fail("Expected failed future");
+		} catch (ExecutionException e) {
+			EventHandlingException failure = (EventHandlingException) e
+					.getCause();
+			Assertions.assertThat(failure.getFailures()).hasSize(1);
+			Assertions.assertThat(failure.getCause()).hasMessage("fail");
+		}
+	}
+
+}
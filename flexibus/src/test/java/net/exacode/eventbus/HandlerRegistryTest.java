@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import net.exacode.eventbus.handler.AnnotatedMethodHandlerFinder;
+import net.exacode.eventbus.handler.MethodHandler;
+import net.exacode.eventbus.util.handler.IntHandler;
+import net.exacode.eventbus.util.handler.ObjectHandler;
+import net.exacode.eventbus.util.handler.StringHandler;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HandlerRegistryTest {
+
+	private HandlerRegistry registry;
+
+	@Before
+	public void setUp() {
+		registry = new HandlerRegistry(
+				new AnnotatedMethodHandlerFinder<EventHandler>(
+						EventHandler.class));
+	}
+
+	@Test
+	public void shouldReturnSameHandlersForRepeatedLookups() {
+		// given
+		registry.addHandler(new StringHandler());
+
+		// when
+		List<MethodHandler> first = registry
+				.findEventHandlerMethods(String.class);
+		List<MethodHandler> second = registry
+				.findEventHandlerMethods(String.class);
+
+		// then
+		Assertions.assertThat(first.size()).isEqualTo(1);
+		Assertions.assertThat(second).isSameAs(first);
+	}
+
+	@Test
+	public void shouldRebuildEntriesAffectedByRegistration() {
+		// given
+		registry.addHandler(new StringHandler());
+		List<MethodHandler> before = registry
+				.findEventHandlerMethods(String.class);
+
+		// when
+		registry.addHandler(new ObjectHandler());
+
+		// then
+		List<MethodHandler> after = registry
+				.findEventHandlerMethods(String.class);
+		Assertions.assertThat(before.size()).isEqualTo(1);
+		Assertions.assertThat(after.size()).isEqualTo(2);
+	}
+
+	@Test
+	public void shouldKeepEntriesNotAffectedByRegistration() {
+		// given
+		registry.addHandler(new StringHandler());
+		List<MethodHandler> before = registry
+				.findEventHandlerMethods(String.class);
+
+		// when
+		registry.addHandler(new IntHandler());
+
+		// then
+		Assertions.assertThat(registry.findEventHandlerMethods(String.class))
+				.isSameAs(before);
+		Assertions.assertThat(
+				registry.findEventHandlerMethods(Integer.class).size())
+				.isEqualTo(1);
+	}
+
+	@Test
+	public void shouldRebuildEntriesAffectedByUnregistration() {
+		// given
+		StringHandler stringHandler = new StringHandler();
+		ObjectHandler objectHandler = new ObjectHandler();
+		registry.addHandler(stringHandler);
+		registry.addHandler(objectHandler);
+		Assertions.assertThat(
+				registry.findEventHandlerMethods(String.class).size())
+				.isEqualTo(2);
+
+		// when
+		registry.removeHandler(objectHandler);
+
+		// then
+		List<MethodHandler> handlers = registry
+				.findEventHandlerMethods(String.class);
+		Assertions.assertThat(handlers.size()).isEqualTo(1);
+		Assertions.assertThat(handlers.get(0).getTarget()).isSameAs(
+				stringHandler);
+		Assertions.assertThat(registry.findEventHandlerMethods(Object.class))
+				.isEmpty();
+	}
+
+	@Test
+	public void shouldNotPinEventClasses() throws Exception {
+		// given
+		registry.addHandler(new ObjectHandler());
+		WeakReference<Class<?>> eventClass = new WeakReference<Class<?>>(
+				lookUpIsolatedEventClass());
+
+		// when
+		for (int i = 0; i < 100 && eventClass.get() != null; ++i) {
+			System.gc();
+			Thread.sleep(10);
+		}
+
+		// then
+		Assertions.assertThat(eventClass.get()).isNull();
+		Assertions.assertThat(registry.getDispatchTable()).isEmpty();
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void shouldNotAllowModificationOfReturnedHandlers() {
+		// given
+		registry.addHandler(new StringHandler());
+
+		// when
+		registry.findEventHandlerMethods(String.class).clear();
+	}
+
+	private Class<?> lookUpIsolatedEventClass() throws Exception {
+		Class<?> eventClass = new IsolatingClassLoader()
+				.load(IsolatedEvent.class);
+		Assertions.assertThat(
+				registry.findEventHandlerMethods(eventClass).size())
+				.isEqualTo(1);
+		Assertions.assertThat(registry.getDispatchTable()).hasSize(1);
+		return eventClass;
+	}
+
+	public static class IsolatedEvent {
+	}
+
+	/**
+	 * Defines a fresh copy of a class, so it can be unloaded with the loader.
+	 */
+	private static class IsolatingClassLoader extends ClassLoader {
+
+		IsolatingClassLoader() {
+			super(IsolatingClassLoader.class.getClassLoader());
+		}
+
+		Class<?> load(Class<?> type) throws Exception {
+			String resource = type.getName().replace('.', '/') + ".class";
+			InputStream input = getParent().getResourceAsStream(resource);
+			try {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				byte[] buffer = new byte[4096];
+				int read;
+				while ((read = input.read(buffer)) != -1) {
+					bytes.write(buffer, 0, read);
+				}
+				byte[] definition = bytes.toByteArray();
+				return defineClass(type.getName(), definition, 0,
+						definition.length);
+			} finally {
+				input.close();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2007 The Guava Authors
+ * Copyright (C) 2007 mendlik
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.exacode.eventbus;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.exacode.eventbus.handler.AnnotatedMethodHandlerFinder;
+import net.exacode.eventbus.handler.MethodHandler;
+import net.exacode.eventbus.util.handler.StringHandler;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Stress test for {@link HandlerRegistry} used by many posting and many
+ * registering threads at once.
+ *
+ * @author mendlik
+ */
+public class HandlerRegistry_ConcurrencyTest {
+
+	private static final int POSTER_THREADS = 8;
+
+	private static final int REGISTERING_THREADS = 8;
+
+	private static final long DURATION_MILLIS = 1500;
+
+	/**
+	 * Handler that registers two methods for the same event type. Posting
+	 * threads must see both of them or none.
+	 */
+	public static class PairHandler {
+
+		@EventHandler
+		public void first(String event) {
+		}
+
+		@EventHandler
+		public void second(CharSequence event) {
+		}
+
+	}
+
+	private HandlerRegistry registry;
+
+	private StringHandler stableHandler;
+
+	private final AtomicBoolean running = new AtomicBoolean(true);
+
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+	@Before
+	public void setUp() {
+		registry = new HandlerRegistry(
+				new AnnotatedMethodHandlerFinder<EventHandler>(
+						EventHandler.class));
+		stableHandler = new StringHandler();
+		registry.addHandler(stableHandler);
+	}
+
+	@Test
+	public void shouldNeverExposePartiallyRegisteredHandlers()
+			throws InterruptedException {
+		// given
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < POSTER_THREADS; ++i) {
+			threads.add(new Thread(new Poster(start), "poster-" + i));
+		}
+		for (int i = 0; i < REGISTERING_THREADS; ++i) {
+			threads.add(new Thread(new Registrar(start), "registrar-" + i));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+
+		// when
+		start.countDown();
+		TimeUnit.MILLISECONDS.sleep(DURATION_MILLIS);
+		running.set(false);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		// then
+		Assertions.assertThat(failure.get()).isNull();
+		List<MethodHandler> handlers = registry
+				.findEventHandlerMethods(String.class);
+		Assertions.assertThat(handlers.size()).isEqualTo(1);
+		Assertions.assertThat(handlers.get(0).getTarget()).isSameAs(
+				stableHandler);
+	}
+
+	private abstract class StressTask implements Runnable {
+
+		private final CountDownLatch start;
+
+		StressTask(CountDownLatch start) {
+			this.start = start;
+		}
+
+		@Override
+		public void run() {
+			try {
+				start.await();
+				while (running.get() && failure.get() == null) {
+					iterate();
+				}
+			} catch (Throwable e) {
+				failure.compareAndSet(null, e);
+			}
+		}
+
+		protected abstract void iterate();
+
+	}
+
+	private class Poster extends StressTask {
+
+		Poster(CountDownLatch start) {
+			super(start);
+		}
+
+		@Override
+		protected void iterate() {
+			List<MethodHandler> handlers = registry
+					.findEventHandlerMethods(String.class);
+			Map<Object, Integer> methodsPerTarget = new IdentityHashMap<Object, Integer>();
+			for (MethodHandler handler : handlers) {
+				Integer count = methodsPerTarget.get(handler.getTarget());
+				methodsPerTarget.put(handler.getTarget(), count == null ? 1
+						: count + 1);
+			}
+			if (!methodsPerTarget.containsKey(stableHandler)) {
+				throw new AssertionError("Stable handler disappeared: "
+						+ handlers);
+			}
+			for (Map.Entry<Object, Integer> entry : methodsPerTarget
+					.entrySet()) {
+				if (entry.getKey() instanceof PairHandler
+						&& entry.getValue() != 2) {
+					throw new AssertionError("Half registered handler: "
+							+ handlers);
+				}
+			}
+		}
+
+	}
+
+	private class Registrar extends StressTask {
+
+		private final PairHandler handler = new PairHandler();
+
+		Registrar(CountDownLatch start) {
+			super(start);
+		}
+
+		@Override
+		protected void iterate() {
+			registry.addHandler(handler);
+			registry.removeHandler(handler);
+		}
+
+	}
+
+}
@@ -0,0 +1,336 @@
+package net.exacode.eventbus.dispatch.concurrent;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.EventHandler;
+import net.exacode.eventbus.exception.EventHandlingException;
+import net.exacode.eventbus.exception.ExceptionHandler;
+import net.exacode.eventbus.exception.HandlerTimeoutException;
+import net.exacode.eventbus.metrics.HandlerMetricsSnapshot;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+
+public class BlockingAsyncDispatchStrategyTest {
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.METHOD)
+	@EventHandler(timeoutMillis = 50)
+	public @interface QuickEventHandler {
+	}
+
+	public static class StuckHandler {
+
+		private final CountDownLatch started = new CountDownLatch(1);
+
+		private final CountDownLatch interrupted = new CountDownLatch(1);
+
+		@EventHandler
+		public void handle(String event) {
+			started.countDown();
+			try {
+				new CountDownLatch(1).await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+		}
+
+	}
+
+	public static class OverridingHandler {
+
+		private final List<Object> events = Collections
+				.synchronizedList(new ArrayList<Object>());
+
+		@EventHandler(timeoutMillis = 0)
+		public void handleSlowly(String event) throws InterruptedException {
+			Thread.sleep(100);
+			events.add(event);
+		}
+
+		@EventHandler(timeoutMillis = 50)
+		public void handleStuck(CharSequence event)
+				throws InterruptedException {
+			new CountDownLatch(1).await(5, TimeUnit.SECONDS);
+		}
+
+		@EventHandler
+		public void handle(Integer event) {
+			events.add(event);
+		}
+
+	}
+
+	private final List<Throwable> exceptions = Collections
+			.synchronizedList(new ArrayList<Throwable>());
+
+	private final ExceptionHandler exceptionHandler = new ExceptionHandler() {
+		@Override
+		public void handle(Throwable e) {
+			exceptions.add(e);
+		}
+	};
+
+	@Test
+	public void shouldInterruptHandlerOverrunningDefaultTimeout()
+			throws InterruptedException {
+		// given
+		StuckHandler handler = new StuckHandler();
+		EventBus bus = EventBus.builder()
+				.withBlockingAsyncDispatchStrategy(20, TimeUnit.MILLISECONDS)
+				.exceptionHandler(exceptionHandler).buildEventBus(handler);
+
+		// when
+		long start = System.nanoTime();
+		bus.post("stuck");
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+				- start);
+
+		// then
+		Assertions.assertThat(elapsedMillis).isLessThan(2000);
+		Assertions.assertThat(handler.interrupted.await(5, TimeUnit.SECONDS))
+				.isTrue();
+		List<HandlerTimeoutException> timeouts = timeouts();
+		Assertions.assertThat(timeouts).hasSize(1);
+		HandlerTimeoutException timeout = timeouts.get(0);
+		Assertions.assertThat(timeout.getEvent()).isEqualTo("stuck");
+		Assertions.assertThat(timeout.getTimeout(TimeUnit.MILLISECONDS))
+				.isEqualTo(20);
+		Assertions.assertThat(timeout.getHandler().getMethod().getName())
+				.isEqualTo("handle");
+	}
+
+	@Test
+	public void shouldUseTimeoutOfHandlerMethod() {
+		// given
+		OverridingHandler handler = new OverridingHandler();
+		EventBus bus = EventBus.builder()
+				.withBlockingAsyncDispatchStrategy(20, TimeUnit.MILLISECONDS)
+				.exceptionHandler(exceptionHandler).buildEventBus(handler);
+
+		// when
+		bus.post("slow");
+
+		// then
+		Assertions.assertThat(handler.events).containsExactly("slow");
+		List<HandlerTimeoutException> timeouts = timeouts();
+		Assertions.assertThat(timeouts).hasSize(1);
+		HandlerTimeoutException timeout = timeouts.get(0);
+		Assertions.assertThat(timeout.getHandler().getMethod().getName())
+				.isEqualTo("handleStuck");
+		Assertions.assertThat(timeout.getTimeout(TimeUnit.MILLISECONDS))
+				.isEqualTo(50);
+	}
+
+	public static class QuickHandler {
+
+		@QuickEventHandler
+		public void handle(String event) throws InterruptedException {
+			new CountDownLatch(1).await(5, TimeUnit.SECONDS);
+		}
+
+	}
+
+	@Test
+	public void shouldUseTimeoutOfMetaAnnotation() {
+		// given
+		EventBus bus = EventBus.builder()
+				.withBlockingAsyncDispatchStrategy(0, TimeUnit.MILLISECONDS)
+				.exceptionHandler(exceptionHandler)
+				.buildEventBus(new QuickHandler());
+
+		// when
+		bus.post("stuck");
+
+		// then
+		List<HandlerTimeoutException> timeouts = timeouts();
+		Assertions.assertThat(timeouts).hasSize(1);
+		Assertions.assertThat(
+				timeouts.get(0).getTimeout(TimeUnit.MILLISECONDS)).isEqualTo(
+				50);
+	}
+
+	@Test
+	public void shouldUseTimeoutOfHandlerMethodFoundForDispatcher() {
+		// given
+		OverridingHandler handler = new OverridingHandler();
+		EventBus bus = EventBus.builder()
+				.withBlockingAsyncDispatchStrategy(20, TimeUnit.MILLISECONDS)
+				.withDispatcherMethodHandlerFindingStrategy()
+				.exceptionHandler(exceptionHandler).buildEventBus(handler);
+
+		// when
+		bus.post("slow");
+
+		// then
+		Assertions.assertThat(handler.events).containsExactly("slow");
+		List<HandlerTimeoutException> timeouts = timeouts();
+		Assertions.assertThat(timeouts).hasSize(1);
+		Assertions.assertThat(timeouts.get(0).getHandler().getMethod())
+				.isNotNull();
+		Assertions.assertThat(
+				timeouts.get(0).getTimeout(TimeUnit.MILLISECONDS)).isEqualTo(
+				50);
+	}
+
+	@Test
+	public void shouldAbandonHandlersWhenDispatchingThreadIsInterrupted()
+			throws InterruptedException, TimeoutException {
+		// given
+		final StuckHandler handler = new StuckHandler();
+		final EventBus bus = EventBus.builder()
+				.withBlockingAsyncDispatchStrategy(0, TimeUnit.MILLISECONDS)
+				.exceptionHandler(exceptionHandler).buildEventBus(handler);
+		final AtomicReference<CompletableFuture<Void>> future = new AtomicReference<CompletableFuture<Void>>();
+		final AtomicBoolean interruptedAfterPost = new AtomicBoolean();
+		Thread poster = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				future.set(bus.postAsync("stuck"));
+				interruptedAfterPost.set(Thread.currentThread().isInterrupted());
+			}
+		});
+		poster.start();
+		Assertions.assertThat(handler.started.await(5, TimeUnit.SECONDS))
+				.isTrue();
+
+		// when
+		poster.interrupt();
+		poster.join(2000);
+
+		// then
+		Assertions.assertThat(poster.isAlive()).isFalse();
+		Assertions.assertThat(interruptedAfterPost.get()).isTrue();
+		Assertions.assertThat(handler.interrupted.await(5, TimeUnit.SECONDS))
+				.isTrue();
+		try {
+			future.get().get(2, TimeUnit.SECONDS);
+			Assertions.fail("Expected failed future");
+		} catch (ExecutionException e) {
+			EventHandlingException failure = (EventHandlingException) e
+					.getCause();
+			Assertions.assertThat(failure.getFailures().get(0)).isInstanceOf(
+					InterruptedException.class);
+		}
+	}
+
+	@Test
+	public void shouldNotReportHandlersFinishedInTime() {
+		// given
+		OverridingHandler handler = new OverridingHandler();
+		EventBus bus = EventBus.builder()
+				.withBlockingAsyncDispatchStrategy(1, TimeUnit.SECONDS)
+				.exceptionHandler(exceptionHandler).buildEventBus(handler);
+
+		// when
+		bus.post(1);
+		bus.post(2);
+
+		// then
+		Assertions.assertThat(handler.events).containsExactly(1, 2);
+		Assertions.assertThat(exceptions).isEmpty();
+	}
+
+	@Test
+	public void shouldFailPostAsyncOfHandlerThatTimedOut()
+			throws InterruptedException, TimeoutException {
+		// given
+		StuckHandler handler = new StuckHandler();
+		EventBus bus = EventBus.builder()
+				.withBlockingAsyncDispatchStrategy(20, TimeUnit.MILLISECONDS)
+				.exceptionHandler(exceptionHandler).buildEventBus(handler);
+
+		// when
+		CompletableFuture<Void> future = bus.postAsync("stuck");
+
+		// then
+		assertFailedWithTimeout(future);
+		Assertions.assertThat(timeouts()).hasSize(1);
+	}
+
+	@Test
+	public void shouldFailPostAsyncOfHandlerThatDidNotStart()
+			throws InterruptedException, TimeoutException {
+		// given
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		EventBus bus = EventBus
+				.builder()
+				.eventDispatchStrategy(
+						new BlockingAsyncDispatchStrategy(executor, 20,
+								TimeUnit.MILLISECONDS, exceptionHandler))
+				.buildEventBus(new StuckHandler(), new StuckHandler());
+
+		// when
+		CompletableFuture<Void> future = bus.postAsync("stuck");
+
+		// then
+		assertFailedWithTimeout(future);
+		Assertions.assertThat(timeouts()).hasSize(2);
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void shouldCountTimeoutAsError() throws InterruptedException {
+		// given
+		StuckHandler handler = new StuckHandler();
+		EventBus bus = EventBus.builder()
+				.withBlockingAsyncDispatchStrategy(20, TimeUnit.MILLISECONDS)
+				.exceptionHandler(exceptionHandler).withMetrics()
+				.buildEventBus(handler);
+
+		// when
+		bus.post("stuck");
+
+		// then
+		Assertions.assertThat(handler.interrupted.await(5, TimeUnit.SECONDS))
+				.isTrue();
+		HandlerMetricsSnapshot snapshot = bus.getMetrics().getSnapshot(
+				StuckHandler.class.getName() + ".handle(String)",
+				String.class);
+		Assertions.assertThat(snapshot.getErrorCount()).isEqualTo(1);
+		Assertions.assertThat(timeouts()).hasSize(1);
+	}
+
+	private static void assertFailedWithTimeout(CompletableFuture<Void> future)
+			throws InterruptedException, TimeoutException {
+		try {
+			future.get(2, TimeUnit.SECONDS);
+			Assertions.fail("Expected failed future");
+		} catch (ExecutionException e) {
+			EventHandlingException failure = (EventHandlingException) e
+					.getCause();
+			Assertions.assertThat(failure.getFailures()).isNotEmpty();
+			for (Throwable cause : failure.getFailures()) {
+				Assertions.assertThat(cause).isInstanceOf(
+						HandlerTimeoutException.class);
+			}
+		}
+	}
+
+	private List<HandlerTimeoutException> timeouts() {
+		List<HandlerTimeoutException> timeouts = new ArrayList<HandlerTimeoutException>();
+		for (Throwable exception : exceptions) {
+			if (exception instanceof HandlerTimeoutException) {
+				timeouts.add((HandlerTimeoutException) exception);
+			}
+		}
+		return timeouts;
+	}
+
+}
@@ -0,0 +1,289 @@
+package net.exacode.eventbus.dispatch.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.exacode.eventbus.DroppedEvent;
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.EventHandler;
+import net.exacode.eventbus.dispatch.concurrent.BoundedAsyncDispatchStrategy.OverflowPolicy;
+import net.exacode.eventbus.exception.EventHandlingException;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+
+public class BoundedAsyncDispatchStrategyTest {
+
+	public static class GatedHandler {
+
+		private final CountDownLatch started = new CountDownLatch(1);
+
+		private final CountDownLatch gate = new CountDownLatch(1);
+
+		private final List<Object> events = Collections
+				.synchronizedList(new ArrayList<Object>());
+
+		private final List<Object> droppedEvents = Collections
+				.synchronizedList(new ArrayList<Object>());
+
+		private final List<Thread> threads = Collections
+				.synchronizedList(new ArrayList<Thread>());
+
+		@EventHandler
+		public void handle(Integer event) throws InterruptedException {
+			if (event == 0) {
+				started.countDown();
+				gate.await(5, TimeUnit.SECONDS);
+			}
+			events.add(event);
+			threads.add(Thread.currentThread());
+		}
+
+		@EventHandler
+		public void handleDropped(DroppedEvent droppedEvent) {
+			droppedEvents.add(droppedEvent.getEvent());
+		}
+
+	}
+
+	private BoundedAsyncDispatchStrategy strategy;
+
+	private GatedHandler handler;
+
+	private EventBus bus;
+
+	@After
+	public void tearDown() throws InterruptedException {
+		handler.gate.countDown();
+		strategy.shutdown();
+		strategy.awaitTermination(1, TimeUnit.SECONDS);
+	}
+
+	private void fillQueue(OverflowPolicy overflowPolicy)
+			throws InterruptedException {
+		strategy = new BoundedAsyncDispatchStrategy(1, 2, overflowPolicy, 10,
+				TimeUnit.MILLISECONDS);
+		handler = new GatedHandler();
+		bus = EventBus.builder().eventDispatchStrategy(strategy)
+				.buildEventBus(handler);
+		bus.post(0);
+		handler.started.await(5, TimeUnit.SECONDS);
+		bus.post(1);
+		bus.post(2);
+	}
+
+	private void releaseAndAwait() throws InterruptedException {
+		handler.gate.countDown();
+		strategy.shutdown();
+		Assertions.assertThat(strategy.awaitTermination(5, TimeUnit.SECONDS))
+				.isTrue();
+	}
+
+	@Test
+	public void shouldDropNewestEvent() throws InterruptedException {
+		// given
+		fillQueue(OverflowPolicy.DROP_NEWEST);
+
+		// when
+		bus.post(3);
+		releaseAndAwait();
+
+		// then
+		Assertions.assertThat(handler.events).containsExactly(0, 1, 2);
+		Assertions.assertThat(handler.droppedEvents).containsExactly(3);
+	}
+
+	@Test
+	public void shouldDropOldestEvent() throws InterruptedException {
+		// given
+		fillQueue(OverflowPolicy.DROP_OLDEST);
+
+		// when
+		bus.post(3);
+		releaseAndAwait();
+
+		// then
+		Assertions.assertThat(handler.events).containsExactly(0, 2, 3);
+		Assertions.assertThat(handler.droppedEvents).containsExactly(1);
+	}
+
+	@Test
+	public void shouldQueueBatchAsSingleTask() throws InterruptedException {
+		// given
+		strategy = new BoundedAsyncDispatchStrategy(2,
+				OverflowPolicy.DROP_NEWEST);
+		handler = new GatedHandler();
+		bus = EventBus.builder().eventDispatchStrategy(strategy)
+				.buildEventBus(handler);
+		bus.post(0);
+		handler.started.await(5, TimeUnit.SECONDS);
+
+		// when
+		bus.postAll(Arrays.asList(1, 2, 3, 4));
+		bus.post(5);
+		int queueSize = strategy.getQueueSize();
+		releaseAndAwait();
+
+		// then
+		Assertions.assertThat(queueSize).isEqualTo(2);
+		Assertions.assertThat(handler.events).containsExactly(0, 1, 2, 3, 4,
+				5);
+		Assertions.assertThat(handler.droppedEvents).isEmpty();
+	}
+
+	@Test
+	public void shouldDropWholeBatch() throws InterruptedException {
+		// given
+		fillQueue(OverflowPolicy.DROP_NEWEST);
+
+		// when
+		bus.postAll(Arrays.asList(3, 4));
+		releaseAndAwait();
+
+		// then
+		Assertions.assertThat(handler.events).containsExactly(0, 1, 2);
+		Assertions.assertThat(handler.droppedEvents).containsExactly(3, 4);
+	}
+
+	@Test
+	public void shouldDropEventAfterTimeout() throws InterruptedException {
+		// given
+		fillQueue(OverflowPolicy.BLOCK_WITH_TIMEOUT);
+
+		// when
+		bus.post(3);
+		releaseAndAwait();
+
+		// then
+		Assertions.assertThat(handler.events).containsExactly(0, 1, 2);
+		Assertions.assertThat(handler.droppedEvents).containsExactly(3);
+	}
+
+	@Test
+	public void shouldDeliverEventOnCallerThread() throws InterruptedException {
+		// given
+		fillQueue(OverflowPolicy.CALLER_RUNS);
+
+		// when
+		bus.post(3);
+		releaseAndAwait();
+
+		// then
+		Assertions.assertThat(handler.events).containsExactly(3, 0, 1, 2);
+		Assertions.assertThat(handler.threads.get(0)).isSameAs(
+				Thread.currentThread());
+		Assertions.assertThat(handler.droppedEvents).isEmpty();
+	}
+
+	@Test
+	public void shouldBlockPostingThreadUntilSpaceIsAvailable()
+			throws InterruptedException {
+		// given
+		fillQueue(OverflowPolicy.BLOCK);
+		Thread poster = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				bus.post(3);
+			}
+		});
+
+		// when
+		poster.start();
+		poster.join(100);
+		boolean blocked = poster.isAlive();
+		handler.gate.countDown();
+		// shutdown would reject a poster that still waits
+		poster.join(1000);
+		releaseAndAwait();
+
+		// then
+		Assertions.assertThat(blocked).isTrue();
+		Assertions.assertThat(handler.events).containsExactly(0, 1, 2, 3);
+		Assertions.assertThat(handler.droppedEvents).isEmpty();
+	}
+
+	@Test
+	public void shouldFailPostAsyncOfInterruptedBlockedPoster()
+			throws InterruptedException, TimeoutException {
+		// given
+		fillQueue(OverflowPolicy.BLOCK);
+		final AtomicReference<CompletableFuture<Void>> future = new AtomicReference<CompletableFuture<Void>>();
+		Thread poster = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				future.set(bus.postAsync(3));
+			}
+		});
+		poster.start();
+		awaitBlocked(poster);
+
+		// when
+		poster.interrupt();
+		poster.join(1000);
+
+		// then
+		Assertions.assertThat(poster.isAlive()).isFalse();
+		try {
+			future.get().get(1, TimeUnit.SECONDS);
+			Assertions.fail("Expected failed future");
+		} catch (ExecutionException e) {
+			EventHandlingException failure = (EventHandlingException) e
+					.getCause();
+			Assertions.assertThat(failure.getFailures().get(0)).isInstanceOf(
+					InterruptedException.class);
+		}
+	}
+
+	@Test
+	public void shouldRejectBlockedPosterOnShutdownAndDeliverQueuedEvents()
+			throws InterruptedException {
+		// given
+		fillQueue(OverflowPolicy.BLOCK);
+		final AtomicReference<Throwable> rejection = new AtomicReference<Throwable>();
+		Thread poster = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					bus.post(3);
+				} catch (RejectedExecutionException e) {
+					rejection.set(e);
+				}
+			}
+		});
+		poster.start();
+		awaitBlocked(poster);
+
+		// when
+		strategy.shutdown();
+		poster.join(2000);
+		handler.gate.countDown();
+
+		// then
+		Assertions.assertThat(poster.isAlive()).isFalse();
+		Assertions.assertThat(rejection.get()).isNotNull();
+		Assertions.assertThat(strategy.awaitTermination(5, TimeUnit.SECONDS))
+				.isTrue();
+		Assertions.assertThat(handler.events).containsExactly(0, 1, 2);
+	}
+
+	private static void awaitBlocked(Thread thread)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (thread.getState() != Thread.State.WAITING
+				&& thread.getState() != Thread.State.TIMED_WAITING
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+
+}
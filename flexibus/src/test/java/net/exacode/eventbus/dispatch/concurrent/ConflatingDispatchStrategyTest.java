@@ -0,0 +1,295 @@
+package net.exacode.eventbus.dispatch.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.EventHandler;
+import net.exacode.eventbus.dispatch.KeyExtractor;
+import net.exacode.eventbus.handler.MethodHandler;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConflatingDispatchStrategyTest {
+
+	public static class Quote {
+
+		private final String symbol;
+
+		private final int price;
+
+		public Quote(String symbol, int price) {
+			this.symbol = symbol;
+			this.price = price;
+		}
+
+		@Override
+		public String toString() {
+			return symbol + ":" + price;
+		}
+
+	}
+
+	public static class QuoteHandler {
+
+		private final List<String> quotes = Collections
+				.synchronizedList(new ArrayList<String>());
+
+		private final CountDownLatch gate = new CountDownLatch(1);
+
+		private final CountDownLatch started = new CountDownLatch(1);
+
+		private final AtomicInteger running = new AtomicInteger();
+
+		private volatile boolean overlapped;
+
+		@EventHandler
+		public void handle(Quote quote) throws InterruptedException {
+			if (running.incrementAndGet() > 1) {
+				overlapped = true;
+			}
+			started.countDown();
+			gate.await();
+			quotes.add(quote.toString());
+			running.decrementAndGet();
+		}
+
+	}
+
+	public static class RepostingHandler {
+
+		private final List<String> quotes = Collections
+				.synchronizedList(new ArrayList<String>());
+
+		private final CountDownLatch gate = new CountDownLatch(1);
+
+		private final CountDownLatch started = new CountDownLatch(1);
+
+		private EventBus bus;
+
+		@EventHandler
+		public void handle(Quote quote) throws InterruptedException {
+			quotes.add(quote.toString());
+			if (quote.symbol.equals("ABC") && quote.price < 10) {
+				if (quote.price == 1) {
+					started.countDown();
+					gate.await();
+				}
+				bus.post(new Quote("ABC", quote.price + 1));
+			}
+		}
+
+	}
+
+	private static final KeyExtractor SYMBOL = new KeyExtractor() {
+		@Override
+		public Object getKey(Object event) {
+			if (event instanceof Quote) {
+				return ((Quote) event).symbol;
+			}
+			return null;
+		}
+	};
+
+	private ExecutorService executor;
+
+	private ConflatingDispatchStrategy strategy;
+
+	private EventBus bus;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+		strategy = new ConflatingDispatchStrategy(executor, SYMBOL);
+		bus = EventBus.builder().eventDispatchStrategy(strategy)
+				.buildEventBus();
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void shouldReplacePendingEventWithNewerEvent()
+			throws InterruptedException {
+		// given
+		QuoteHandler handler = new QuoteHandler();
+		bus.register(handler);
+		bus.post(new Quote("ABC", 1));
+		handler.started.await(5, TimeUnit.SECONDS);
+
+		// when
+		bus.post(new Quote("ABC", 2));
+		bus.post(new Quote("ABC", 3));
+		bus.post(new Quote("ABC", 4));
+		handler.gate.countDown();
+
+		// then
+		awaitQuotes(handler, 2);
+		Assertions.assertThat(handler.quotes).containsExactly("ABC:1",
+				"ABC:4");
+		Assertions.assertThat(strategy.getConflatedCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void shouldRemoveDrainedSlots() throws InterruptedException {
+		// given
+		QuoteHandler handler = new QuoteHandler();
+		bus.register(handler);
+		bus.post(new Quote("ABC", 1));
+		bus.post(new Quote("XYZ", 1));
+		handler.started.await(5, TimeUnit.SECONDS);
+		Assertions.assertThat(strategy.getSlotCount()).isEqualTo(2);
+
+		// when
+		handler.gate.countDown();
+		awaitQuotes(handler, 2);
+		bus.unregister(handler);
+
+		// then
+		long deadline = System.currentTimeMillis() + 5000;
+		while (strategy.getSlotCount() > 0
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		Assertions.assertThat(strategy.getSlotCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void shouldNotConflateEventsWithDifferentKeys()
+			throws InterruptedException {
+		// given
+		QuoteHandler handler = new QuoteHandler();
+		handler.gate.countDown();
+		bus.register(handler);
+
+		// when
+		bus.post(new Quote("ABC", 1));
+		bus.post(new Quote("XYZ", 1));
+
+		// then
+		awaitQuotes(handler, 2);
+		Assertions.assertThat(handler.quotes).containsOnly("ABC:1", "XYZ:1");
+		Assertions.assertThat(strategy.getConflatedCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void shouldDeliverLatestEventOfKeySerially()
+			throws InterruptedException {
+		// given
+		QuoteHandler handler = new QuoteHandler();
+		handler.gate.countDown();
+		bus.register(handler);
+		final int events = 10000;
+
+		// when
+		for (int i = 1; i <= events; ++i) {
+			bus.post(new Quote("ABC", i));
+		}
+
+		// then
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!handler.quotes.contains("ABC:" + events)
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		Assertions.assertThat(handler.overlapped).isFalse();
+		Assertions.assertThat(handler.quotes.get(handler.quotes.size() - 1))
+				.isEqualTo("ABC:" + events);
+		Assertions.assertThat(
+				handler.quotes.size() + strategy.getConflatedCount())
+				.isEqualTo(events);
+	}
+
+	@Test
+	public void shouldReleaseThreadToOtherSlotsAfterThroughput()
+			throws InterruptedException {
+		// given
+		executor.shutdownNow();
+		executor = Executors.newSingleThreadExecutor();
+		strategy = new ConflatingDispatchStrategy(executor, SYMBOL, 1);
+		RepostingHandler handler = new RepostingHandler();
+		handler.bus = EventBus.builder().eventDispatchStrategy(strategy)
+				.buildEventBus(handler);
+		handler.bus.post(new Quote("ABC", 1));
+		handler.started.await(5, TimeUnit.SECONDS);
+		handler.bus.post(new Quote("XYZ", 1));
+
+		// when
+		handler.gate.countDown();
+
+		// then
+		long deadline = System.currentTimeMillis() + 5000;
+		while (handler.quotes.size() < 11
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		Assertions.assertThat(handler.quotes.size()).isEqualTo(11);
+		Assertions.assertThat(handler.quotes.get(1)).isEqualTo("XYZ:1");
+	}
+
+	@Test
+	public void shouldKeepDeliveringAfterHandlerThrowsError()
+			throws InterruptedException {
+		// given
+		final List<Object> events = Collections
+				.synchronizedList(new ArrayList<Object>());
+		MethodHandler failing = new MethodHandler() {
+			@Override
+			public void handleEvent(Object event) {
+				events.add(event);
+				throw new AssertionError("handler failure");
+			}
+
+			@Override
+			public Object getTarget() {
+				return events;
+			}
+
+			@Override
+			public Method getMethod() {
+				return null;
+			}
+		};
+		strategy.dispatchEvent(new Quote("ABC", 1),
+				Collections.singletonList(failing));
+		long deadline = System.currentTimeMillis() + 5000;
+		while (strategy.getSlotCount() > 0
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+
+		// when
+		strategy.dispatchEvent(new Quote("ABC", 2),
+				Collections.singletonList(failing));
+
+		// then
+		while ((events.size() < 2 || strategy.getSlotCount() > 0)
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		Assertions.assertThat(events.size()).isEqualTo(2);
+		Assertions.assertThat(strategy.getSlotCount()).isEqualTo(0);
+	}
+
+	private static void awaitQuotes(QuoteHandler handler, int count)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (handler.quotes.size() < count
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+
+}
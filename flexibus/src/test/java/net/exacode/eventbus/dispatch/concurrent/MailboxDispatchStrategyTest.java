@@ -0,0 +1,230 @@
+package net.exacode.eventbus.dispatch.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.EventHandler;
+import net.exacode.eventbus.handler.MethodHandler;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MailboxDispatchStrategyTest {
+
+	private static final int EVENTS = 1000;
+
+	public static class SerialHandler {
+
+		private final List<Object> events = new ArrayList<Object>();
+
+		private final AtomicInteger handled = new AtomicInteger();
+
+		private final AtomicInteger running = new AtomicInteger();
+
+		private volatile boolean overlapped;
+
+		@EventHandler
+		public void handleInteger(Integer event) {
+			handle(event);
+		}
+
+		@EventHandler
+		public void handleNumber(Number event) {
+			handle(event);
+		}
+
+		private void handle(Object event) {
+			if (running.incrementAndGet() > 1) {
+				overlapped = true;
+			}
+			events.add(event);
+			running.decrementAndGet();
+			handled.incrementAndGet();
+		}
+
+		void awaitEvents(int count) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + 5000;
+			while (handled.get() < count
+					&& System.currentTimeMillis() < deadline) {
+				Thread.sleep(1);
+			}
+		}
+
+	}
+
+	private ExecutorService executor;
+
+	private MailboxDispatchStrategy strategy;
+
+	private EventBus bus;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(4);
+		strategy = new MailboxDispatchStrategy(executor, 4);
+		bus = EventBus.builder().eventDispatchStrategy(strategy)
+				.buildEventBus();
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void shouldInvokeHandlersOfOneObjectSeriallyInPostingOrder()
+			throws InterruptedException {
+		// given
+		SerialHandler first = new SerialHandler();
+		SerialHandler second = new SerialHandler();
+		bus.register(first);
+		bus.register(second);
+
+		// when
+		for (int i = 0; i < EVENTS; ++i) {
+			bus.post(i);
+		}
+		first.awaitEvents(2 * EVENTS);
+		second.awaitEvents(2 * EVENTS);
+
+		// then
+		for (SerialHandler handler : new SerialHandler[] { first, second }) {
+			Assertions.assertThat(handler.overlapped).isFalse();
+			Assertions.assertThat(handler.events.size()).isEqualTo(2 * EVENTS);
+			for (int i = 0; i < 2 * EVENTS; ++i) {
+				Assertions.assertThat(handler.events.get(i)).isEqualTo(i / 2);
+			}
+		}
+	}
+
+	@Test
+	public void shouldInvokeHandlersOfOneObjectInBatchOrder()
+			throws InterruptedException {
+		// given
+		SerialHandler first = new SerialHandler();
+		SerialHandler second = new SerialHandler();
+		bus.register(first);
+		bus.register(second);
+		List<Object> events = new ArrayList<Object>();
+		for (int i = 0; i < EVENTS; ++i) {
+			events.add(i);
+		}
+
+		// when
+		for (int i = 0; i < EVENTS; i += 10) {
+			bus.postAll(events.subList(i, i + 10));
+		}
+		first.awaitEvents(2 * EVENTS);
+		second.awaitEvents(2 * EVENTS);
+
+		// then
+		for (SerialHandler handler : new SerialHandler[] { first, second }) {
+			Assertions.assertThat(handler.overlapped).isFalse();
+			Assertions.assertThat(handler.events.size()).isEqualTo(2 * EVENTS);
+			for (int i = 0; i < 2 * EVENTS; ++i) {
+				Assertions.assertThat(handler.events.get(i)).isEqualTo(i / 2);
+			}
+		}
+	}
+
+	@Test
+	public void shouldServeDifferentObjectsInParallel()
+			throws InterruptedException {
+		// given
+		final CountDownLatch bothRunning = new CountDownLatch(2);
+		final List<Boolean> results = Collections
+				.synchronizedList(new ArrayList<Boolean>());
+		for (int i = 0; i < 2; ++i) {
+			bus.register(new Object() {
+				@EventHandler
+				public void handle(String event) throws InterruptedException {
+					bothRunning.countDown();
+					results.add(bothRunning.await(5, TimeUnit.SECONDS));
+				}
+			});
+		}
+
+		// when
+		bus.post("event");
+
+		// then
+		Assertions.assertThat(bothRunning.await(5, TimeUnit.SECONDS)).isTrue();
+		executor.shutdown();
+		Assertions.assertThat(executor.awaitTermination(5, TimeUnit.SECONDS))
+				.isTrue();
+		Assertions.assertThat(results).containsExactly(true, true);
+	}
+
+	@Test
+	public void shouldKeepDeliveringAfterHandlerThrowsError()
+			throws InterruptedException {
+		// given
+		final AtomicInteger handled = new AtomicInteger();
+		MethodHandler failing = new MethodHandler() {
+			@Override
+			public void handleEvent(Object event) {
+				handled.incrementAndGet();
+				throw new AssertionError("handler failure");
+			}
+
+			@Override
+			public Object getTarget() {
+				return handled;
+			}
+
+			@Override
+			public Method getMethod() {
+				return null;
+			}
+		};
+
+		// when
+		for (int i = 0; i < 10; ++i) {
+			strategy.dispatchEvent(i,
+					Collections.<MethodHandler> singletonList(failing));
+		}
+		long deadline = System.currentTimeMillis() + 5000;
+		while ((handled.get() < 10 || strategy.getMailboxCount() > 0)
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+
+		// then
+		Assertions.assertThat(handled.get()).isEqualTo(10);
+		Assertions.assertThat(strategy.getMailboxCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void shouldDiscardEmptyMailboxes() throws InterruptedException {
+		// given
+		SerialHandler handler = new SerialHandler();
+		bus.register(handler);
+
+		// when
+		for (int i = 0; i < EVENTS; ++i) {
+			bus.post(i);
+		}
+		handler.awaitEvents(2 * EVENTS);
+		// the last delivery discards the mailbox after the handler returns
+		long deadline = System.currentTimeMillis() + 5000;
+		while (strategy.getMailboxCount() > 0
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+
+		// then
+		Assertions.assertThat(handler.handled.get()).isEqualTo(2 * EVENTS);
+		Assertions.assertThat(strategy.getMailboxCount()).isEqualTo(0);
+	}
+
+}
@@ -0,0 +1,164 @@
+package net.exacode.eventbus.dispatch.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.EventHandler;
+import net.exacode.eventbus.dispatch.KeyExtractor;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PartitionedDispatchStrategyTest {
+
+	private static final int KEYS = 16;
+
+	private static final int EVENTS_PER_KEY = 200;
+
+	public static class AccountEvent {
+
+		private final int accountId;
+
+		private final int sequence;
+
+		public AccountEvent(int accountId, int sequence) {
+			this.accountId = accountId;
+			this.sequence = sequence;
+		}
+
+	}
+
+	public static class RecordingHandler {
+
+		private final Map<Integer, List<Integer>> sequences = new HashMap<Integer, List<Integer>>();
+
+		@EventHandler
+		public void handle(AccountEvent event) {
+			List<Integer> accountSequences;
+			synchronized (sequences) {
+				accountSequences = sequences.get(event.accountId);
+				if (accountSequences == null) {
+					accountSequences = Collections
+							.synchronizedList(new ArrayList<Integer>());
+					sequences.put(event.accountId, accountSequences);
+				}
+			}
+			accountSequences.add(event.sequence);
+		}
+
+	}
+
+	private static final KeyExtractor ACCOUNT_ID = new KeyExtractor() {
+		@Override
+		public Object getKey(Object event) {
+			if (event instanceof AccountEvent) {
+				return ((AccountEvent) event).accountId;
+			}
+			return null;
+		}
+	};
+
+	private PartitionedDispatchStrategy strategy;
+
+	@Before
+	public void setUp() {
+		strategy = new PartitionedDispatchStrategy(4, ACCOUNT_ID);
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		strategy.shutdown();
+		strategy.awaitTermination(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void shouldDeliverEventsWithEqualKeysInPostingOrder()
+			throws InterruptedException {
+		// given
+		EventBus bus = EventBus.builder().eventDispatchStrategy(strategy)
+				.buildEventBus();
+		RecordingHandler handler = new RecordingHandler();
+		bus.register(handler);
+
+		// when
+		for (int sequence = 0; sequence < EVENTS_PER_KEY; ++sequence) {
+			for (int accountId = 0; accountId < KEYS; ++accountId) {
+				bus.post(new AccountEvent(accountId, sequence));
+			}
+		}
+		strategy.shutdown();
+
+		// then
+		Assertions.assertThat(strategy.awaitTermination(5, TimeUnit.SECONDS))
+				.isTrue();
+		Assertions.assertThat(handler.sequences.size()).isEqualTo(KEYS);
+		for (List<Integer> accountSequences : handler.sequences.values()) {
+			Assertions.assertThat(accountSequences.size()).isEqualTo(
+					EVENTS_PER_KEY);
+			for (int i = 0; i < EVENTS_PER_KEY; ++i) {
+				Assertions.assertThat(accountSequences.get(i)).isEqualTo(i);
+			}
+		}
+	}
+
+	@Test
+	public void shouldDeliverBatchWithEqualKeysInPostingOrder()
+			throws InterruptedException {
+		// given
+		EventBus bus = EventBus.builder().eventDispatchStrategy(strategy)
+				.buildEventBus();
+		RecordingHandler handler = new RecordingHandler();
+		bus.register(handler);
+		List<AccountEvent> events = new ArrayList<AccountEvent>();
+		for (int sequence = 0; sequence < EVENTS_PER_KEY; ++sequence) {
+			for (int accountId = 0; accountId < KEYS; ++accountId) {
+				events.add(new AccountEvent(accountId, sequence));
+			}
+		}
+
+		// when
+		bus.postAll(events);
+		strategy.shutdown();
+
+		// then
+		Assertions.assertThat(strategy.awaitTermination(5, TimeUnit.SECONDS))
+				.isTrue();
+		Assertions.assertThat(handler.sequences.size()).isEqualTo(KEYS);
+		for (List<Integer> accountSequences : handler.sequences.values()) {
+			Assertions.assertThat(accountSequences.size()).isEqualTo(
+					EVENTS_PER_KEY);
+			for (int i = 0; i < EVENTS_PER_KEY; ++i) {
+				Assertions.assertThat(accountSequences.get(i)).isEqualTo(i);
+			}
+		}
+	}
+
+	@Test
+	public void shouldAssignEqualKeysToTheSameLane() {
+		// when
+		int lane = strategy.laneOf(new AccountEvent(7, 1));
+
+		// then
+		Assertions.assertThat(strategy.laneOf(new AccountEvent(7, 2)))
+				.isEqualTo(lane);
+		Assertions.assertThat(strategy.laneOf("no key")).isEqualTo(0);
+		Assertions.assertThat(lane).isGreaterThanOrEqualTo(0).isLessThan(4);
+	}
+
+	@Test
+	public void shouldReportQueueSizePerLane() {
+		// when
+		int[] queueSizes = strategy.getQueueSizes();
+
+		// then
+		Assertions.assertThat(queueSizes).isEqualTo(new int[4]);
+	}
+
+}
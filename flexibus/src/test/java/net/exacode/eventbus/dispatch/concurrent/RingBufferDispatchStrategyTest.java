@@ -0,0 +1,301 @@
+package net.exacode.eventbus.dispatch.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.EventHandler;
+import net.exacode.eventbus.dispatch.concurrent.RingBufferDispatchStrategy.ProducerType;
+import net.exacode.eventbus.handler.MethodHandler;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+
+public class RingBufferDispatchStrategyTest {
+
+	private static final int EVENTS = 10000;
+
+	public static class RecordingHandler {
+
+		private final List<Object> events = Collections
+				.synchronizedList(new ArrayList<Object>());
+
+		@EventHandler
+		public void handle(Integer event) {
+			events.add(event);
+		}
+
+	}
+
+	private RingBufferDispatchStrategy strategy;
+
+	@After
+	public void tearDown() throws InterruptedException {
+		if (strategy != null) {
+			strategy.shutdown();
+			strategy.awaitTermination(1, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test
+	public void shouldDeliverEventsInPostingOrderFromSingleProducer()
+			throws InterruptedException {
+		for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+			// given
+			// spinning producer could starve consumer on single CPU
+			int bufferSize = waitStrategy == WaitStrategy.BUSY_SPIN ? 16384
+					: 8;
+			strategy = new RingBufferDispatchStrategy(bufferSize,
+					ProducerType.SINGLE, waitStrategy);
+			EventBus bus = EventBus.builder().eventDispatchStrategy(strategy)
+					.buildEventBus();
+			RecordingHandler handler = new RecordingHandler();
+			bus.register(handler);
+			List<Object> events = new ArrayList<Object>();
+			for (int i = 0; i < EVENTS; ++i) {
+				events.add(i);
+			}
+
+			// when
+			for (Object event : events) {
+				bus.post(event);
+			}
+			strategy.shutdown();
+
+			// then
+			Assertions.assertThat(
+					strategy.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+			Assertions.assertThat(handler.events).isEqualTo(events);
+		}
+	}
+
+	@Test
+	public void shouldDeliverEventsFromMultipleProducers()
+			throws InterruptedException {
+		// given
+		strategy = new RingBufferDispatchStrategy(16, ProducerType.MULTI,
+				WaitStrategy.YIELD);
+		final EventBus bus = EventBus.builder()
+				.eventDispatchStrategy(strategy).buildEventBus();
+		RecordingHandler handler = new RecordingHandler();
+		bus.register(handler);
+		final int producers = 4;
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int p = 0; p < producers; ++p) {
+			final int producer = p;
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < EVENTS; ++i) {
+						bus.post(producer * EVENTS + i);
+					}
+				}
+			}));
+		}
+
+		// when
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		strategy.shutdown();
+
+		// then
+		Assertions.assertThat(strategy.awaitTermination(5, TimeUnit.SECONDS))
+				.isTrue();
+		Assertions.assertThat(handler.events.size()).isEqualTo(
+				producers * EVENTS);
+		int[] lastPerProducer = new int[] { -1, -1, -1, -1 };
+		for (Object event : handler.events) {
+			int value = (Integer) event;
+			int producer = value / EVENTS;
+			Assertions.assertThat(value % EVENTS).isEqualTo(
+					lastPerProducer[producer] + 1);
+			lastPerProducer[producer] = value % EVENTS;
+		}
+	}
+
+	@Test
+	public void shouldDeliverBatchesLargerThanBuffer()
+			throws InterruptedException {
+		for (ProducerType producerType : ProducerType.values()) {
+			// given
+			strategy = new RingBufferDispatchStrategy(8, producerType,
+					WaitStrategy.YIELD);
+			EventBus bus = EventBus.builder().eventDispatchStrategy(strategy)
+					.buildEventBus();
+			RecordingHandler handler = new RecordingHandler();
+			bus.register(handler);
+			List<Object> events = new ArrayList<Object>();
+			for (int i = 0; i < 100; ++i) {
+				events.add(i);
+			}
+
+			// when
+			bus.postAll(events.subList(0, 3));
+			bus.postAll(events.subList(3, 100));
+			strategy.shutdown();
+
+			// then
+			Assertions.assertThat(
+					strategy.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+			Assertions.assertThat(handler.events).isEqualTo(events);
+		}
+	}
+
+	@Test
+	public void shouldDeliverEventsPostedByHandlers()
+			throws InterruptedException {
+		// given
+		strategy = new RingBufferDispatchStrategy(2, ProducerType.MULTI,
+				WaitStrategy.PARK);
+		final EventBus bus = EventBus.builder()
+				.eventDispatchStrategy(strategy).buildEventBus();
+		final List<Object> events = Collections
+				.synchronizedList(new ArrayList<Object>());
+		bus.register(new Object() {
+			@EventHandler
+			public void handle(Integer event) {
+				events.add(event);
+				if (event > 0) {
+					bus.post(event - 1);
+				}
+			}
+		});
+
+		// when
+		bus.post(10);
+		strategy.shutdown();
+
+		// then
+		Assertions.assertThat(strategy.awaitTermination(5, TimeUnit.SECONDS))
+				.isTrue();
+		Assertions.assertThat(events.size()).isEqualTo(11);
+	}
+
+	@Test
+	public void shouldKeepDeliveringAfterHandlerThrowsError()
+			throws InterruptedException {
+		// given
+		strategy = new RingBufferDispatchStrategy(2, ProducerType.MULTI,
+				WaitStrategy.PARK);
+		final List<Object> events = Collections
+				.synchronizedList(new ArrayList<Object>());
+		MethodHandler failing = new RecordingMethodHandler(events) {
+			@Override
+			public void handleEvent(Object event) {
+				super.handleEvent(event);
+				throw new AssertionError("handler failure");
+			}
+		};
+		MethodHandler recording = new RecordingMethodHandler(events);
+		List<MethodHandler> handlers = Arrays.asList(failing, recording);
+
+		// when
+		for (int i = 0; i < 10; ++i) {
+			strategy.dispatchEvent(i, handlers);
+		}
+		strategy.shutdown();
+
+		// then
+		Assertions.assertThat(strategy.awaitTermination(5, TimeUnit.SECONDS))
+				.isTrue();
+		Assertions.assertThat(events.size()).isEqualTo(20);
+	}
+
+	@Test
+	public void shouldDeliverEveryAcceptedEventOfSingleProducerAfterShutdown()
+			throws InterruptedException {
+		for (int round = 0; round < 20; ++round) {
+			// given
+			strategy = new RingBufferDispatchStrategy(64, ProducerType.SINGLE,
+					WaitStrategy.YIELD);
+			final EventBus bus = EventBus.builder()
+					.eventDispatchStrategy(strategy).buildEventBus();
+			RecordingHandler handler = new RecordingHandler();
+			bus.register(handler);
+			final AtomicInteger accepted = new AtomicInteger();
+			Thread poster = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0;; ++i) {
+							bus.post(i);
+							accepted.incrementAndGet();
+						}
+					} catch (RejectedExecutionException e) {
+						// shut down
+					}
+				}
+			});
+			poster.start();
+			while (accepted.get() < 100) {
+				Thread.yield();
+			}
+
+			// when
+			strategy.shutdown();
+			poster.join(5000);
+
+			// then
+			Assertions.assertThat(
+					strategy.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+			Assertions.assertThat(handler.events.size()).isEqualTo(
+					accepted.get());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectBufferSizeThatIsNotPowerOfTwo() {
+		new RingBufferDispatchStrategy(1000, ProducerType.MULTI,
+				WaitStrategy.PARK);
+	}
+
+	@Test(expected = RejectedExecutionException.class)
+	public void shouldRejectEventsAfterShutdown() {
+		// given
+		strategy = new RingBufferDispatchStrategy();
+		EventBus bus = EventBus.builder().eventDispatchStrategy(strategy)
+				.buildEventBus();
+		bus.register(new RecordingHandler());
+		strategy.shutdown();
+
+		// when
+		bus.post(1);
+	}
+
+	private static class RecordingMethodHandler implements MethodHandler {
+
+		private final List<Object> events;
+
+		RecordingMethodHandler(List<Object> events) {
+			this.events = events;
+		}
+
+		@Override
+		public void handleEvent(Object event) {
+			events.add(event);
+		}
+
+		@Override
+		public Object getTarget() {
+			return events;
+		}
+
+		@Override
+		public Method getMethod() {
+			return null;
+		}
+
+	}
+
+}
@@ -0,0 +1,134 @@
+package net.exacode.eventbus.dispatch.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.EventHandler;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SingleThreadedAsyncDispatchStrategyTest {
+
+	public static class RecordingHandler {
+
+		private final List<Object> events = Collections
+				.synchronizedList(new ArrayList<Object>());
+
+		private final Set<Thread> threads = Collections
+				.synchronizedSet(new HashSet<Thread>());
+
+		@EventHandler
+		public void handle(Integer event) {
+			events.add(event);
+			threads.add(Thread.currentThread());
+		}
+
+	}
+
+	private SingleThreadedAsyncDispatchStrategy strategy;
+
+	private EventBus bus;
+
+	@Before
+	public void setUp() {
+		strategy = new SingleThreadedAsyncDispatchStrategy();
+		bus = EventBus.builder().eventDispatchStrategy(strategy)
+				.buildEventBus();
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		strategy.shutdown();
+		strategy.awaitTermination(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void shouldDeliverEventsInPostingOrderOnSingleThread()
+			throws InterruptedException {
+		// given
+		RecordingHandler handler = new RecordingHandler();
+		bus.register(handler);
+		List<Object> events = new ArrayList<Object>();
+		for (int i = 0; i < 1000; ++i) {
+			events.add(i);
+		}
+
+		// when
+		for (Object event : events) {
+			bus.post(event);
+		}
+		strategy.shutdown();
+
+		// then
+		Assertions.assertThat(strategy.awaitTermination(5, TimeUnit.SECONDS))
+				.isTrue();
+		Assertions.assertThat(handler.events).isEqualTo(events);
+		Assertions.assertThat(handler.threads.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldDeliverOnNonDaemonWorkerThatStopsWhenIdle()
+			throws InterruptedException {
+		// given
+		RecordingHandler handler = new RecordingHandler();
+		bus.register(handler);
+
+		// when
+		bus.post(1);
+		Thread worker = awaitWorker(handler);
+
+		// then
+		Assertions.assertThat(worker.isDaemon()).isFalse();
+		worker.join(SingleThreadedAsyncDispatchStrategy.KEEP_ALIVE_MILLIS * 5);
+		Assertions.assertThat(worker.isAlive()).isFalse();
+	}
+
+	@Test
+	public void shouldRestartWorkerAfterIdleTimeout()
+			throws InterruptedException {
+		// given
+		RecordingHandler handler = new RecordingHandler();
+		bus.register(handler);
+		bus.post(1);
+		awaitWorker(handler).join(
+				SingleThreadedAsyncDispatchStrategy.KEEP_ALIVE_MILLIS * 5);
+
+		// when
+		bus.post(2);
+		strategy.shutdown();
+
+		// then
+		Assertions.assertThat(strategy.awaitTermination(5, TimeUnit.SECONDS))
+				.isTrue();
+		Assertions.assertThat(handler.events).containsExactly(1, 2);
+	}
+
+	@Test(expected = RejectedExecutionException.class)
+	public void shouldRejectEventsAfterShutdown() {
+		// given
+		bus.register(new RecordingHandler());
+		strategy.shutdown();
+
+		// when
+		bus.post(1);
+	}
+
+	private Thread awaitWorker(RecordingHandler handler)
+			throws InterruptedException {
+		for (int i = 0; i < 500 && handler.threads.isEmpty(); ++i) {
+			Thread.sleep(10);
+		}
+		Assertions.assertThat(handler.threads.size()).isEqualTo(1);
+		return handler.threads.iterator().next();
+	}
+
+}
@@ -0,0 +1,143 @@
+package net.exacode.eventbus.dispatch.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.EventHandler;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+
+public class VirtualThreadDispatchStrategyTest {
+
+	public static class BlockingHandler {
+
+		private final AtomicInteger running = new AtomicInteger();
+
+		private final AtomicInteger maxRunning = new AtomicInteger();
+
+		private final AtomicInteger handled = new AtomicInteger();
+
+		@EventHandler
+		public void handle(Integer event) throws InterruptedException {
+			int current = running.incrementAndGet();
+			int max;
+			do {
+				max = maxRunning.get();
+			} while (current > max && !maxRunning.compareAndSet(max, current));
+			Thread.sleep(5);
+			running.decrementAndGet();
+			handled.incrementAndGet();
+		}
+
+	}
+
+	private VirtualThreadDispatchStrategy strategy;
+
+	@After
+	public void tearDown() throws InterruptedException {
+		strategy.shutdown();
+		strategy.awaitTermination(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void shouldBoundConcurrentInvocations() throws InterruptedException {
+		// given
+		strategy = new VirtualThreadDispatchStrategy(4);
+		EventBus bus = EventBus.builder().eventDispatchStrategy(strategy)
+				.buildEventBus();
+		BlockingHandler handler = new BlockingHandler();
+		bus.register(handler);
+
+		// when
+		for (int i = 0; i < 100; ++i) {
+			bus.post(i);
+		}
+		strategy.shutdown();
+
+		// then
+		Assertions.assertThat(strategy.awaitTermination(5, TimeUnit.SECONDS))
+				.isTrue();
+		Assertions.assertThat(handler.handled.get()).isEqualTo(100);
+		Assertions.assertThat(handler.maxRunning.get()).isLessThanOrEqualTo(4);
+		Assertions.assertThat(strategy.getActiveCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void shouldDeliverEventsPostedByHandlersWhenLimitIsReached()
+			throws InterruptedException {
+		// given
+		strategy = new VirtualThreadDispatchStrategy(1);
+		final EventBus bus = EventBus.builder()
+				.eventDispatchStrategy(strategy).buildEventBus();
+		final CountDownLatch delivered = new CountDownLatch(11);
+		bus.register(new Object() {
+			@EventHandler
+			public void handle(Integer event) {
+				delivered.countDown();
+				if (event > 0) {
+					bus.post(event - 1);
+				}
+			}
+		});
+
+		// when
+		bus.post(10);
+
+		// then
+		Assertions.assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	public void shouldLowerConcurrencyLimitWithoutVirtualThreads() {
+		// given
+		strategy = new VirtualThreadDispatchStrategy();
+
+		// then
+		if (strategy.isVirtual()) {
+			Assertions.assertThat(strategy.getMaxConcurrency()).isEqualTo(
+					VirtualThreadDispatchStrategy.DEFAULT_MAX_CONCURRENCY);
+		} else {
+			Assertions.assertThat(strategy.getMaxConcurrency()).isEqualTo(
+					VirtualThreadDispatchStrategy.MAX_PLATFORM_THREADS);
+		}
+	}
+
+	@Test
+	public void shouldFailTrackedDeliveriesSkippedByInterruptedPoster() {
+		// given
+		strategy = new VirtualThreadDispatchStrategy(1);
+		EventBus bus = EventBus.builder().eventDispatchStrategy(strategy)
+				.buildEventBus();
+		bus.register(new BlockingHandler());
+		bus.register(new BlockingHandler());
+
+		// when
+		Thread.currentThread().interrupt();
+		CompletableFuture<Void> delivery = bus.postAsync(1);
+		boolean interrupted = Thread.interrupted();
+
+		// then
+		Assertions.assertThat(interrupted).isTrue();
+		Assertions.assertThat(delivery.isCompletedExceptionally()).isTrue();
+	}
+
+	@Test(expected = RejectedExecutionException.class)
+	public void shouldRejectEventsAfterShutdown() {
+		// given
+		strategy = new VirtualThreadDispatchStrategy();
+		EventBus bus = EventBus.builder().eventDispatchStrategy(strategy)
+				.buildEventBus();
+		bus.register(new BlockingHandler());
+		strategy.shutdown();
+
+		// when
+		bus.post(1);
+	}
+
+}
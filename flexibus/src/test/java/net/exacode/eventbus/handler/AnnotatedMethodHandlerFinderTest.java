@@ -1,9 +1,14 @@
 package net.exacode.eventbus.handler;
 
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
 import java.util.Map;
 import java.util.Set;
 
 import net.exacode.eventbus.EventHandler;
+import net.exacode.eventbus.exception.ExceptionLoggingHandler;
 import net.exacode.eventbus.util.handler.StringHandler;
 
 import org.fest.assertions.api.Assertions;
@@ -13,6 +18,12 @@ public class AnnotatedMethodHandlerFinderTest {
 	private final AnnotatedMethodHandlerFinder<EventHandler> finder = new AnnotatedMethodHandlerFinder<EventHandler>(
 			EventHandler.class);
 
+	@EventHandler
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.METHOD)
+	public @interface CustomHandler {
+	}
+
 	private static class MultipleHandler {
 
 		@EventHandler
@@ -27,6 +38,21 @@ public class AnnotatedMethodHandlerFinderTest {
 
 	}
 
+	public static class ReplyingHandler {
+
+		private final String name;
+
+		ReplyingHandler(String name) {
+			this.name = name;
+		}
+
+		@EventHandler
+		public String reply(String event) {
+			return name + ":" + event;
+		}
+
+	}
+
 	@Test
 	public void shouldNotFindHandlers() throws NoSuchMethodException,
 			SecurityException {
@@ -56,6 +82,8 @@ public class AnnotatedMethodHandlerFinderTest {
 		Set<MethodHandler> methodHandlers = map.get(String.class);
 		Assertions.assertThat(methodHandlers.size()).isEqualTo(1);
 		MethodHandler methodHandler = methodHandlers.iterator().next();
+		Assertions.assertThat(methodHandler).isInstanceOf(
+				InvokerHandlerMethod.class);
 		Assertions.assertThat(methodHandler.getTarget()).isEqualTo(handler);
 		Assertions.assertThat(methodHandler.getMethod()).isEqualTo(
 				handler.getClass().getMethod("hereHaveAString", String.class));
@@ -112,4 +140,73 @@ public class AnnotatedMethodHandlerFinderTest {
 				handler.getClass().getMethod("handle", String.class));
 	}
 
+	@Test
+	public void shouldReuseHandlerMethodsOfKnownClass() {
+		// given
+		StringHandler first = new StringHandler();
+		StringHandler second = new StringHandler();
+		MethodHandler firstHandler = finder.findHandlerMethods(first)
+				.get(String.class).iterator().next();
+
+		// when
+		MethodHandler secondHandler = finder.findHandlerMethods(second)
+				.get(String.class).iterator().next();
+
+		// then
+		Assertions.assertThat(secondHandler.getTarget()).isSameAs(second);
+		Assertions.assertThat(secondHandler.getMethod()).isSameAs(
+				firstHandler.getMethod());
+	}
+
+	@Test
+	public void shouldResolveRequestHandleOncePerClass() {
+		// given
+		HandlerMethodDescriptor descriptor = finder
+				.getDescriptors(ReplyingHandler.class)[0];
+		MethodHandler first = descriptor.bind(new ReplyingHandler("first"),
+				new ExceptionLoggingHandler());
+
+		// when
+		MethodHandler second = descriptor.bind(new ReplyingHandler("second"),
+				new ExceptionLoggingHandler());
+
+		// then
+		Assertions.assertThat(descriptor.getRequestHandle()).isNotNull();
+		Assertions.assertThat(first.handleRequest("a")).isEqualTo("first:a");
+		Assertions.assertThat(second.handleRequest("b")).isEqualTo("second:b");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectHandlerMethodWithManyParameters() {
+		// given
+		Object handler = new Object() {
+			@EventHandler
+			public void handle(String event, String other) {
+
+			}
+		};
+
+		// when
+		finder.findHandlerMethods(handler);
+	}
+
+	@Test
+	public void shouldFindMethodAnnotatedWithMetaAnnotatedAnnotation() {
+		// given
+		Object handler = new Object() {
+			@CustomHandler
+			public void handle(String event) {
+
+			}
+		};
+
+		// when
+		Map<Class<?>, Set<MethodHandler>> map = finder
+				.findHandlerMethods(handler);
+
+		// then
+		Assertions.assertThat(map.size()).isEqualTo(1);
+		Assertions.assertThat(map.get(String.class).size()).isEqualTo(1);
+	}
+
 }
@@ -0,0 +1,211 @@
+package net.exacode.eventbus.handler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.exacode.eventbus.BatchEventHandler;
+import net.exacode.eventbus.EventBus;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+
+public class BatchHandlerMethodTest {
+
+	private final AnnotatedMethodHandlerFinder<BatchEventHandler> finder = new AnnotatedMethodHandlerFinder<BatchEventHandler>(
+			BatchEventHandler.class);
+
+	public static class BatchRecorder {
+
+		protected final List<List<Object>> batches = Collections
+				.synchronizedList(new ArrayList<List<Object>>());
+
+		protected void record(List<?> batch) {
+			batches.add(new ArrayList<Object>(batch));
+		}
+
+		List<Object> events() {
+			List<Object> events = new ArrayList<Object>();
+			synchronized (batches) {
+				for (List<Object> batch : batches) {
+					events.addAll(batch);
+				}
+			}
+			return events;
+		}
+
+	}
+
+	public static class SizeBatchHandler extends BatchRecorder {
+
+		@BatchEventHandler(maxSize = 3, maxLingerMillis = 60000)
+		public void handle(List<Integer> events) {
+			record(events);
+		}
+
+	}
+
+	public static class LingerBatchHandler extends BatchRecorder {
+
+		@BatchEventHandler(maxSize = 100, maxLingerMillis = 20)
+		public void handle(List<? extends CharSequence> events) {
+			record(events);
+		}
+
+	}
+
+	@Test
+	public void shouldFindBatchHandlerForListElementType() {
+		// given
+		LingerBatchHandler handler = new LingerBatchHandler();
+
+		// when
+		Map<Class<?>, Set<MethodHandler>> map = finder
+				.findHandlerMethods(handler);
+
+		// then
+		Assertions.assertThat(map.keySet()).containsOnly(CharSequence.class);
+		MethodHandler methodHandler = map.get(CharSequence.class).iterator()
+				.next();
+		Assertions.assertThat(methodHandler).isInstanceOf(
+				BatchHandlerMethod.class);
+		Assertions.assertThat(methodHandler.getTarget()).isSameAs(handler);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectBatchHandlerWithoutListParameter() {
+		// given
+		Object handler = new Object() {
+			@BatchEventHandler
+			public void handle(String event) {
+
+			}
+		};
+
+		// when
+		finder.findHandlerMethods(handler);
+	}
+
+	public static class RawBatchHandler {
+
+		@SuppressWarnings("rawtypes")
+		@BatchEventHandler
+		public void handleRaw(List events) {
+
+		}
+
+	}
+
+	public static class TypeVariableBatchHandler<T> {
+
+		@BatchEventHandler
+		public void handle(List<T> events) {
+
+		}
+
+	}
+
+	public static class UnboundedBatchHandler {
+
+		@BatchEventHandler
+		public void handle(List<?> events) {
+
+		}
+
+	}
+
+	@Test
+	public void shouldRejectBatchHandlerWithRawList() {
+		try {
+			// when
+			finder.findHandlerMethods(new RawBatchHandler());
+			Assertions.fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			// then
+			Assertions.assertThat(e.getMessage()).contains(
+					RawBatchHandler.class.getName() + ".handleRaw");
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectBatchHandlerWithTypeVariableElement() {
+		// when
+		finder.findHandlerMethods(new TypeVariableBatchHandler<String>());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectBatchHandlerWithUnboundedWildcardElement() {
+		// when
+		finder.findHandlerMethods(new UnboundedBatchHandler());
+	}
+
+	@Test
+	public void shouldDeliverFullBatchesInPostingOrder()
+			throws InterruptedException {
+		// given
+		EventBus bus = EventBus.builder().withSyncDispatchStrategy()
+				.buildEventBus();
+		SizeBatchHandler handler = new SizeBatchHandler();
+		bus.register(handler);
+
+		// when
+		for (int i = 0; i < 7; ++i) {
+			bus.post(i);
+		}
+
+		// then
+		awaitBatches(handler, 2);
+		Assertions.assertThat(handler.batches).containsExactly(
+				Arrays.<Object> asList(0, 1, 2),
+				Arrays.<Object> asList(3, 4, 5));
+	}
+
+	@Test
+	public void shouldDeliverIncompleteBatchAfterLingerTime()
+			throws InterruptedException {
+		// given
+		EventBus bus = EventBus.builder().withSyncDispatchStrategy()
+				.buildEventBus();
+		LingerBatchHandler handler = new LingerBatchHandler();
+		bus.register(handler);
+
+		// when
+		bus.post("a");
+		bus.post("b");
+
+		// then
+		awaitBatches(handler, 1);
+		Assertions.assertThat(handler.events()).containsExactly("a", "b");
+	}
+
+	@Test
+	public void shouldDeliverIncompleteBatchOnFlush()
+			throws InterruptedException {
+		// given
+		SizeBatchHandler handler = new SizeBatchHandler();
+		BatchHandlerMethod methodHandler = (BatchHandlerMethod) finder
+				.findHandlerMethods(handler).get(Integer.class).iterator()
+				.next();
+		methodHandler.handleEvent(1);
+
+		// when
+		methodHandler.flush();
+
+		// then
+		awaitBatches(handler, 1);
+		Assertions.assertThat(handler.events()).containsExactly(1);
+	}
+
+	private static void awaitBatches(BatchRecorder handler, int count)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (handler.batches.size() < count
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+
+}
@@ -0,0 +1,206 @@
+package net.exacode.eventbus.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.EventHandler;
+import net.exacode.eventbus.dispatch.concurrent.SyncDispatchStrategy;
+import net.exacode.eventbus.exception.ExceptionHandler;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+
+public class DispatcherMethodHandlerFinderTest {
+
+	private final List<Throwable> exceptions = new ArrayList<Throwable>();
+
+	private final DispatcherMethodHandlerFinder<EventHandler> finder = new DispatcherMethodHandlerFinder<EventHandler>(
+			EventHandler.class, new ExceptionHandler() {
+				@Override
+				public void handle(Throwable e) {
+					exceptions.add(e);
+				}
+			});
+
+	public static class MultipleHandler {
+
+		private final List<String> calls = new ArrayList<String>();
+
+		@EventHandler
+		public void handleObject(Object event) {
+			calls.add("Object");
+		}
+
+		@EventHandler
+		public void handleCharSequence(CharSequence event) {
+			calls.add("CharSequence");
+		}
+
+		@EventHandler
+		public void handleString(String event) {
+			calls.add("String");
+		}
+
+		@EventHandler
+		public void handleInt(int event) {
+			calls.add("int");
+		}
+
+	}
+
+	public static class FailingHandler {
+
+		private final List<String> calls = new ArrayList<String>();
+
+		@EventHandler
+		public void fail(String event) {
+			throw new IllegalStateException(event);
+		}
+
+		@EventHandler
+		public void handle(Object event) {
+			calls.add("Object");
+		}
+
+	}
+
+	public static class ReplyingHandler {
+
+		private final List<String> calls = new ArrayList<String>();
+
+		@EventHandler
+		public String reply(String event) {
+			return "reply to " + event;
+		}
+
+		@EventHandler
+		public void handle(Object event) {
+			calls.add("Object");
+		}
+
+	}
+
+	@Test
+	public void shouldRegisterSingleDispatcherForAllEventTypes() {
+		// given
+		MultipleHandler handler = new MultipleHandler();
+
+		// when
+		Map<Class<?>, Set<MethodHandler>> map = finder
+				.findHandlerMethods(handler);
+
+		// then
+		Assertions.assertThat(map.keySet()).containsOnly(Object.class,
+				CharSequence.class, String.class, Integer.class);
+		MethodHandler dispatcher = map.get(String.class).iterator().next();
+		Assertions.assertThat(dispatcher).isInstanceOf(ListenerDispatcher.class);
+		Assertions.assertThat(dispatcher.getTarget()).isSameAs(handler);
+		for (Set<MethodHandler> methodHandlers : map.values()) {
+			Assertions.assertThat(methodHandlers).containsOnly(dispatcher);
+		}
+	}
+
+	@Test
+	public void shouldInvokeMethodsInEventHierarchyOrder() {
+		// given
+		MultipleHandler handler = new MultipleHandler();
+		MethodHandler dispatcher = finder.findHandlerMethods(handler)
+				.get(Object.class).iterator().next();
+
+		// when
+		dispatcher.handleEvent("event");
+		dispatcher.handleEvent(1);
+
+		// then
+		Assertions.assertThat(handler.calls).containsExactly("String",
+				"CharSequence", "Object", "int", "Object");
+	}
+
+	@Test
+	public void shouldIsolateExceptionsOfHandlerMethods() {
+		// given
+		FailingHandler handler = new FailingHandler();
+		MethodHandler dispatcher = finder.findHandlerMethods(handler)
+				.get(Object.class).iterator().next();
+
+		// when
+		dispatcher.handleEvent("event");
+
+		// then
+		Assertions.assertThat(handler.calls).containsExactly("Object");
+		Assertions.assertThat(exceptions.size()).isEqualTo(1);
+		Assertions.assertThat(exceptions.get(0)).isInstanceOf(
+				IllegalStateException.class);
+	}
+
+	@Test
+	public void shouldDeliverEventsOnceAndUnregisterListener() {
+		// given
+		EventBus bus = EventBus.builder()
+				.eventDispatchStrategy(new SyncDispatchStrategy())
+				.withDispatcherMethodHandlerFindingStrategy().buildEventBus();
+		MultipleHandler handler = new MultipleHandler();
+		bus.register(handler);
+
+		// when
+		bus.post("first");
+		bus.unregister(handler);
+		bus.post("second");
+
+		// then
+		Assertions.assertThat(handler.calls).containsExactly("String",
+				"CharSequence", "Object");
+	}
+
+	@Test
+	public void shouldRegisterListenerWithReplyingMethodPerMethod() {
+		// given
+		ReplyingHandler handler = new ReplyingHandler();
+
+		// when
+		Map<Class<?>, Set<MethodHandler>> map = finder
+				.findHandlerMethods(handler);
+
+		// then
+		Assertions.assertThat(map.keySet()).containsOnly(Object.class,
+				String.class);
+		for (Set<MethodHandler> methodHandlers : map.values()) {
+			MethodHandler methodHandler = methodHandlers.iterator().next();
+			Assertions.assertThat(methodHandler).isNotInstanceOf(
+					ListenerDispatcher.class);
+			Assertions.assertThat(methodHandler.getMethod()).isNotNull();
+		}
+	}
+
+	@Test
+	public void shouldReplyToRequest() throws InterruptedException,
+			ExecutionException, TimeoutException {
+		// given
+		EventBus bus = EventBus.builder()
+				.eventDispatchStrategy(new SyncDispatchStrategy())
+				.withDispatcherMethodHandlerFindingStrategy().buildEventBus();
+		ReplyingHandler handler = new ReplyingHandler();
+		bus.register(handler);
+
+		// when
+		Object reply = bus.request("event").get(1, TimeUnit.SECONDS);
+
+		// then
+		Assertions.assertThat(reply).isEqualTo("reply to event");
+		Assertions.assertThat(handler.calls).containsExactly("Object");
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldRejectMetrics() {
+		// when
+		EventBus.builder().withDispatcherMethodHandlerFindingStrategy()
+				.withMetrics().buildEventBus();
+	}
+
+}
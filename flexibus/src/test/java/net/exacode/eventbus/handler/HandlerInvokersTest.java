@@ -0,0 +1,160 @@
+package net.exacode.eventbus.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.exacode.eventbus.util.handler.IntHandler;
+import net.exacode.eventbus.util.handler.StringHandler;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+
+public class HandlerInvokersTest {
+
+	private static final List<Object> staticEvents = new ArrayList<Object>();
+
+	private static class PrivateHandler {
+
+		private final List<Object> events = new ArrayList<Object>();
+
+		public void handle(Object event) {
+			events.add(event);
+		}
+
+		public static void handleStatic(Object event) {
+			staticEvents.add(event);
+		}
+
+		public static void handleStaticLong(long event) {
+			staticEvents.add(event);
+		}
+
+		public void fail(Object event) {
+			throw new IllegalStateException(String.valueOf(event));
+		}
+
+	}
+
+	@Test
+	public void shouldInvokeHandlerMethodOfPublicClass() throws Throwable {
+		// given
+		StringHandler handler = new StringHandler();
+		HandlerInvoker invoker = HandlerInvokers.getInvoker(StringHandler.class
+				.getMethod("hereHaveAString", String.class));
+
+		// when
+		invoker.invoke(handler, "Hello");
+
+		// then
+		Assertions.assertThat(invoker.getClass().isSynthetic()).isTrue();
+		Assertions.assertThat(handler.getEvents()).containsExactly("Hello");
+	}
+
+	@Test
+	public void shouldInvokeHandlerMethodOfPrivateClass() throws Throwable {
+		// given
+		PrivateHandler handler = new PrivateHandler();
+		HandlerInvoker invoker = HandlerInvokers
+				.getInvoker(PrivateHandler.class.getMethod("handle",
+						Object.class));
+
+		// when
+		invoker.invoke(handler, "Hello");
+
+		// then
+		Assertions.assertThat(handler.events).containsExactly("Hello");
+	}
+
+	@Test
+	public void shouldUnboxPrimitiveParameter() throws Throwable {
+		// given
+		IntHandler handler = new IntHandler();
+		HandlerInvoker invoker = HandlerInvokers.getInvoker(IntHandler.class
+				.getMethod("hereHaveAnInteger", int.class));
+
+		// when
+		invoker.invoke(handler, 256);
+
+		// then
+		Assertions.assertThat(handler.getEvents()).containsExactly(256);
+	}
+
+	@Test
+	public void shouldInvokePrimitiveHandlerMethodWithPrimitiveInvoker()
+			throws Throwable {
+		// given
+		IntHandler handler = new IntHandler();
+		IntHandlerInvoker invoker = HandlerInvokers.getIntInvoker(IntHandler.class
+				.getMethod("hereHaveAnInteger", int.class));
+
+		// when
+		invoker.invoke(handler, 256);
+
+		// then
+		Assertions.assertThat(handler.getEvents()).containsExactly(256);
+	}
+
+	@Test
+	public void shouldInvokeStaticPrimitiveHandlerMethod() throws Throwable {
+		// given
+		staticEvents.clear();
+		LongHandlerInvoker invoker = HandlerInvokers
+				.getLongInvoker(PrivateHandler.class.getMethod(
+						"handleStaticLong", long.class));
+
+		// when
+		invoker.invoke(null, 256L);
+
+		// then
+		Assertions.assertThat(staticEvents).containsExactly(256L);
+	}
+
+	@Test
+	public void shouldNotCreatePrimitiveInvokerForOtherParameterType()
+			throws NoSuchMethodException {
+		// when
+		LongHandlerInvoker invoker = HandlerInvokers.getLongInvoker(IntHandler.class
+				.getMethod("hereHaveAnInteger", int.class));
+
+		// then
+		Assertions.assertThat(invoker).isNull();
+	}
+
+	@Test
+	public void shouldInvokeStaticHandlerMethod() throws Throwable {
+		// given
+		HandlerInvoker invoker = HandlerInvokers
+				.getInvoker(PrivateHandler.class.getMethod("handleStatic",
+						Object.class));
+
+		// when
+		invoker.invoke(new PrivateHandler(), "Hello");
+
+		// then
+		Assertions.assertThat(staticEvents).contains("Hello");
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldPropagateHandlerException() throws Throwable {
+		// given
+		HandlerInvoker invoker = HandlerInvokers
+				.getInvoker(PrivateHandler.class.getMethod("fail",
+						Object.class));
+
+		// when
+		invoker.invoke(new PrivateHandler(), "Hello");
+	}
+
+	@Test
+	public void shouldCacheInvokers() throws NoSuchMethodException {
+		// when
+		HandlerInvoker first = HandlerInvokers.getInvoker(StringHandler.class
+				.getMethod("hereHaveAString", String.class));
+		HandlerInvoker second = HandlerInvokers.getInvoker(StringHandler.class
+				.getMethod("hereHaveAString", String.class));
+
+		// then
+		Assertions.assertThat(second).isSameAs(first);
+	}
+
+}
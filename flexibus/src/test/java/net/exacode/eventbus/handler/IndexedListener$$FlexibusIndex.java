@@ -0,0 +1,25 @@
+package net.exacode.eventbus.handler;
+
+import net.exacode.eventbus.EventHandler;
+
+/**
+ * Index of {@link IndexedListener} as generated by flexibus-processor.
+ */
+public final class IndexedListener$$FlexibusIndex implements HandlerIndex {
+
+	@Override
+	public HandlerIndexEntry[] getEntries() {
+		return new HandlerIndexEntry[] { new HandlerIndexEntry(
+				EventHandler.class, "handle", String.class,
+				new HandlerInvoker() {
+					@Override
+					public void invoke(Object target, Object event)
+							throws Throwable {
+						IndexedListener listener = (IndexedListener) target;
+						listener.indexedInvocations++;
+						listener.handle((String) event);
+					}
+				}) };
+	}
+
+}
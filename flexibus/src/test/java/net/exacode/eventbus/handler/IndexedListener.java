@@ -0,0 +1,16 @@
+package net.exacode.eventbus.handler;
+
+import net.exacode.eventbus.EventHandler;
+
+public class IndexedListener {
+
+	int indexedInvocations;
+
+	int events;
+
+	@EventHandler
+	public void handle(String event) {
+		events++;
+	}
+
+}
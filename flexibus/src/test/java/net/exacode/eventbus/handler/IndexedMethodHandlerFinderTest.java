@@ -0,0 +1,78 @@
+package net.exacode.eventbus.handler;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.Map;
+import java.util.Set;
+
+import net.exacode.eventbus.EventHandler;
+import net.exacode.eventbus.util.handler.StringHandler;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+
+public class IndexedMethodHandlerFinderTest {
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.METHOD)
+	public @interface Unrelated {
+	}
+
+	private final IndexedMethodHandlerFinder<EventHandler> finder = new IndexedMethodHandlerFinder<EventHandler>(
+			EventHandler.class);
+
+	@Test
+	public void shouldInvokeHandlerMethodThroughIndex() {
+		// given
+		IndexedListener listener = new IndexedListener();
+
+		// when
+		Map<Class<?>, Set<MethodHandler>> map = finder
+				.findHandlerMethods(listener);
+		MethodHandler methodHandler = map.get(String.class).iterator().next();
+		methodHandler.handleEvent("event");
+
+		// then
+		Assertions.assertThat(finder.isIndexed(IndexedListener.class))
+				.isTrue();
+		Assertions.assertThat(methodHandler.getTarget()).isSameAs(listener);
+		Assertions.assertThat(methodHandler.getMethod().getName()).isEqualTo(
+				"handle");
+		Assertions.assertThat(listener.indexedInvocations).isEqualTo(1);
+		Assertions.assertThat(listener.events).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldFindHandlerMethodsOfNotIndexedClassByReflection() {
+		// given
+		StringHandler listener = new StringHandler();
+
+		// when
+		Map<Class<?>, Set<MethodHandler>> map = finder
+				.findHandlerMethods(listener);
+
+		// then
+		Assertions.assertThat(finder.isIndexed(StringHandler.class))
+				.isFalse();
+		Assertions.assertThat(map.get(String.class).size()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldNotUseIndexForUnrelatedAnnotation() {
+		// given
+		IndexedMethodHandlerFinder<Unrelated> unrelatedFinder = new IndexedMethodHandlerFinder<Unrelated>(
+				Unrelated.class);
+
+		// when
+		Map<Class<?>, Set<MethodHandler>> map = unrelatedFinder
+				.findHandlerMethods(new IndexedListener());
+
+		// then
+		Assertions.assertThat(unrelatedFinder.isIndexed(IndexedListener.class))
+				.isFalse();
+		Assertions.assertThat(map).isEmpty();
+	}
+
+}
@@ -0,0 +1,146 @@
+package net.exacode.eventbus.jfr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.EventHandler;
+import net.exacode.eventbus.dispatch.concurrent.SingleThreadedAsyncDispatchStrategy;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+
+public class FlightRecorderEventsTest {
+
+	private static final String POST = "net.exacode.eventbus.Post";
+
+	private static final String HANDLER_INVOCATION = "net.exacode.eventbus.HandlerInvocation";
+
+	private static final String QUEUE_WAIT = "net.exacode.eventbus.QueueWait";
+
+	public static class StringHandler {
+
+		@EventHandler
+		public void handle(String event) {
+			if ("fail".equals(event)) {
+				throw new IllegalStateException(event);
+			}
+		}
+
+	}
+
+	@Test
+	public void shouldRecordPostsAndHandlerInvocations() throws IOException {
+		// given
+		EventBus eventBus = EventBus.builder().logId("jfr-test")
+				.withSyncDispatchStrategy().buildEventBus(new StringHandler());
+		Recording recording = new Recording();
+		recording.enable(POST);
+		recording.enable(HANDLER_INVOCATION);
+
+		// when
+		recording.start();
+		eventBus.post("ok");
+		eventBus.post("fail");
+		eventBus.post(1L);
+		recording.stop();
+
+		// then
+		// dead event is reposted wrapped in DeadEvent
+		List<RecordedEvent> posts = read(recording, POST);
+		Assertions.assertThat(posts.size()).isEqualTo(4);
+		Assertions.assertThat(posts.get(0).getString("bus")).isEqualTo(
+				"jfr-test");
+		Assertions.assertThat(
+				posts.get(0).getClass("eventClass").getName()).isEqualTo(
+				String.class.getName());
+		Assertions.assertThat(posts.get(0).getInt("handlerCount")).isEqualTo(
+				1);
+		RecordedEvent deadPost = posts.get(3);
+		Assertions.assertThat(deadPost.getClass("eventClass").getName())
+				.isEqualTo(Long.class.getName());
+		Assertions.assertThat(deadPost.getBoolean("dead")).isTrue();
+		List<RecordedEvent> invocations = read(recording, HANDLER_INVOCATION);
+		Assertions.assertThat(invocations.size()).isEqualTo(2);
+		Assertions.assertThat(
+				invocations.get(0).getClass("targetClass").getName())
+				.isEqualTo(StringHandler.class.getName());
+		Assertions.assertThat(invocations.get(0).getString("method"))
+				.isEqualTo("handle");
+		Assertions.assertThat(invocations.get(0).getClass("exceptionClass"))
+				.isNull();
+		Assertions.assertThat(
+				invocations.get(1).getClass("exceptionClass").getName())
+				.isEqualTo(IllegalStateException.class.getName());
+		Assertions.assertThat(invocations.get(1).getString("exceptionMessage"))
+				.isEqualTo("fail");
+	}
+
+	@Test
+	public void shouldRecordQueueWaitOfAsyncDispatchStrategy()
+			throws IOException, InterruptedException {
+		// given
+		SingleThreadedAsyncDispatchStrategy strategy = new SingleThreadedAsyncDispatchStrategy();
+		EventBus eventBus = EventBus.builder().eventDispatchStrategy(strategy)
+				.buildEventBus(new StringHandler());
+		Recording recording = new Recording();
+		recording.enable(QUEUE_WAIT);
+
+		// when
+		recording.start();
+		eventBus.post("ok");
+		strategy.shutdown();
+		strategy.awaitTermination(5, TimeUnit.SECONDS);
+		recording.stop();
+
+		// then
+		List<RecordedEvent> waits = read(recording, QUEUE_WAIT);
+		Assertions.assertThat(waits.size()).isEqualTo(1);
+		Assertions.assertThat(waits.get(0).getClass("strategy").getName())
+				.isEqualTo(SingleThreadedAsyncDispatchStrategy.class.getName());
+		Assertions.assertThat(waits.get(0).getClass("eventClass").getName())
+				.isEqualTo(String.class.getName());
+	}
+
+	@Test
+	public void shouldNotRecordEventsByDefault() throws IOException {
+		// given
+		EventBus eventBus = EventBus.builder().withSyncDispatchStrategy()
+				.buildEventBus(new StringHandler());
+		Recording recording = new Recording();
+
+		// when
+		recording.start();
+		eventBus.post("ok");
+		recording.stop();
+
+		// then
+		Assertions.assertThat(read(recording, POST)).isEmpty();
+		Assertions.assertThat(read(recording, HANDLER_INVOCATION)).isEmpty();
+	}
+
+	private static List<RecordedEvent> read(Recording recording, String name)
+			throws IOException {
+		Path file = Files.createTempFile("flexibus", ".jfr");
+		try {
+			recording.dump(file);
+			List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+			for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+				if (event.getEventType().getName().equals(name)) {
+					events.add(event);
+				}
+			}
+			return events;
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+}
@@ -0,0 +1,134 @@
+package net.exacode.eventbus.metrics;
+
+import java.util.List;
+
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.EventHandler;
+import net.exacode.eventbus.dispatch.concurrent.SyncDispatchStrategy;
+import net.exacode.eventbus.exception.ExceptionHandler;
+import net.exacode.eventbus.handler.AnnotatedMethodHandlerFinder;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+
+public class EventBusMetricsTest {
+
+	public static class MeasuredHandler {
+
+		@EventHandler
+		public void handle(Number event) {
+			if (event.intValue() < 0) {
+				throw new IllegalArgumentException("Negative: " + event);
+			}
+		}
+
+		@EventHandler
+		public void handle(long event) {
+		}
+
+	}
+
+	private static final String NUMBER_HANDLER = MeasuredHandler.class
+			.getName() + ".handle(Number)";
+
+	@Test
+	public void shouldRecordInvocationsPerHandlerMethodAndEventType() {
+		// given
+		EventBus bus = EventBus.builder().withSyncDispatchStrategy()
+				.withMetrics().buildEventBus(new MeasuredHandler(), new MeasuredHandler());
+
+		// when
+		bus.post(1);
+		bus.post(2);
+		bus.post(3L);
+		bus.post(-1);
+
+		// then
+		EventBusMetrics metrics = bus.getMetrics();
+		Assertions.assertThat(metrics.isEnabled()).isTrue();
+		HandlerMetricsSnapshot integers = metrics.getSnapshot(NUMBER_HANDLER,
+				Integer.class);
+		Assertions.assertThat(integers.getInvocationCount()).isEqualTo(6);
+		Assertions.assertThat(integers.getErrorCount()).isEqualTo(2);
+		Assertions.assertThat(integers.getLatency().getCount())
+				.isLessThanOrEqualTo(6);
+		HandlerMetricsSnapshot longs = metrics.getSnapshot(NUMBER_HANDLER,
+				Long.class);
+		Assertions.assertThat(longs.getInvocationCount()).isEqualTo(2);
+		Assertions.assertThat(longs.getErrorCount()).isEqualTo(0);
+		HandlerMetricsSnapshot primitiveLongs = metrics.getSnapshot(
+				MeasuredHandler.class.getName() + ".handle(long)", Long.class);
+		Assertions.assertThat(primitiveLongs.getInvocationCount()).isEqualTo(2);
+		List<HandlerMetricsSnapshot> snapshots = metrics.getSnapshots();
+		Assertions.assertThat(snapshots.size()).isEqualTo(3);
+	}
+
+	@Test
+	public void shouldCountExceptionsRethrownByExceptionHandler() {
+		// given
+		EventBus bus = EventBus.builder().withSyncDispatchStrategy()
+				.withMetrics().exceptionHandler(new ExceptionHandler() {
+					@Override
+					public void handle(Throwable e) {
+						throw new IllegalStateException(e);
+					}
+				}).buildEventBus(new MeasuredHandler());
+
+		// when
+		try {
+			bus.post(-1);
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		// then
+		HandlerMetricsSnapshot snapshot = bus.getMetrics().getSnapshot(
+				NUMBER_HANDLER, Integer.class);
+		Assertions.assertThat(snapshot.getInvocationCount()).isEqualTo(1);
+		Assertions.assertThat(snapshot.getErrorCount()).isEqualTo(1);
+	}
+
+	@Test
+	public void shouldMeasureLatencyOfSampledInvocations() {
+		// given
+		EventBusMetrics metrics = new EventBusMetrics(1);
+		EventBus bus = new EventBus("metrics",
+				new InstrumentedMethodHandlerFinder(
+						new AnnotatedMethodHandlerFinder<EventHandler>(
+								EventHandler.class), metrics),
+				new SyncDispatchStrategy(), metrics);
+		bus.register(new MeasuredHandler());
+
+		// when
+		for (int i = 0; i < 10; ++i) {
+			bus.post(i);
+		}
+
+		// then
+		HandlerMetricsSnapshot snapshot = metrics.getSnapshot(NUMBER_HANDLER,
+				Integer.class);
+		Assertions.assertThat(snapshot.getInvocationCount()).isEqualTo(10);
+		Assertions.assertThat(snapshot.getLatency().getCount()).isEqualTo(10);
+		Assertions.assertThat(snapshot.getLatency().getMax()).isGreaterThan(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectSampleIntervalThatIsNotPowerOfTwo() {
+		new EventBusMetrics(10);
+	}
+
+	@Test
+	public void shouldNotRecordByDefault() {
+		// given
+		EventBus bus = EventBus.builder().withSyncDispatchStrategy()
+				.buildEventBus(new MeasuredHandler());
+
+		// when
+		bus.post(1);
+
+		// then
+		Assertions.assertThat(bus.getMetrics().isEnabled()).isFalse();
+		Assertions.assertThat(bus.getMetrics().getSnapshots()).isEmpty();
+	}
+
+}
@@ -0,0 +1,181 @@
+package net.exacode.eventbus.metrics;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import net.exacode.eventbus.EventBus;
+import net.exacode.eventbus.EventHandler;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.After;
+import org.junit.Test;
+
+public class HandlerWatchdogTest {
+
+	public static class BlockingHandler {
+
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		@EventHandler
+		public void handle(String event) throws InterruptedException {
+			release.await();
+		}
+
+		@EventHandler
+		public void handle(Integer event) {
+		}
+
+	}
+
+	private static final String STRING_HANDLER = BlockingHandler.class
+			.getName() + ".handle(String)";
+
+	private final BlockingQueue<SlowHandlerInvocation> reported = new LinkedBlockingQueue<SlowHandlerInvocation>();
+
+	private final HandlerWatchdog watchdog = new HandlerWatchdog(20,
+			TimeUnit.MILLISECONDS, new SlowHandlerListener() {
+				@Override
+				public void slowHandler(SlowHandlerInvocation invocation) {
+					reported.add(invocation);
+				}
+			});
+
+	@After
+	public void shutdownWatchdog() {
+		watchdog.shutdown();
+	}
+
+	@Test
+	public void shouldReportHandlerRunningLongerThanThreshold()
+			throws InterruptedException {
+		// given
+		final BlockingHandler handler = new BlockingHandler();
+		final EventBus bus = EventBus.builder().withSyncDispatchStrategy()
+				.withMetrics().handlerWatchdog(watchdog)
+				.buildEventBus(handler);
+		Thread poster = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				bus.post("stalled");
+			}
+		});
+
+		// when
+		poster.start();
+		SlowHandlerInvocation invocation = reported.poll(5, TimeUnit.SECONDS);
+		handler.release.countDown();
+		poster.join();
+
+		// then
+		Assertions.assertThat(invocation).isNotNull();
+		Assertions.assertThat(invocation.getHandler())
+				.isEqualTo(STRING_HANDLER);
+		Assertions.assertThat((Object) invocation.getEventType()).isEqualTo(
+				String.class);
+		Assertions.assertThat(invocation.getThread()).isSameAs(poster);
+		Assertions.assertThat(invocation.getDuration(TimeUnit.MILLISECONDS))
+				.isGreaterThanOrEqualTo(20);
+		Assertions.assertThat(containsFrame(invocation.getStackTrace(),
+				BlockingHandler.class.getName(), "handle")).isTrue();
+		Assertions.assertThat(
+				bus.getMetrics().getSnapshot(STRING_HANDLER, String.class)
+						.getSlowInvocationCount()).isEqualTo(1);
+		Assertions.assertThat(reported).isEmpty();
+	}
+
+	@Test
+	public void shouldNotReportFastHandlers() throws InterruptedException {
+		// given
+		final BlockingHandler handler = new BlockingHandler();
+		final EventBus bus = EventBus.builder().withSyncDispatchStrategy()
+				.withMetrics().handlerWatchdog(watchdog)
+				.buildEventBus(handler);
+		Thread poster = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				bus.post("stalled");
+			}
+		});
+
+		// when
+		for (int i = 0; i < 1000; ++i) {
+			bus.post(i);
+		}
+		// watchdog checked for the whole threshold once it reports the stall
+		poster.start();
+		SlowHandlerInvocation invocation = reported.poll(5, TimeUnit.SECONDS);
+		handler.release.countDown();
+		poster.join();
+
+		// then
+		Assertions.assertThat(invocation).isNotNull();
+		Assertions.assertThat(invocation.getHandler())
+				.isEqualTo(STRING_HANDLER);
+		Assertions.assertThat(reported).isEmpty();
+		Assertions.assertThat(
+				bus.getMetrics()
+						.getSnapshot(
+								BlockingHandler.class.getName()
+										+ ".handle(Integer)", Integer.class)
+						.getSlowInvocationCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void shouldForgetThreadsThatDiedOrOnShutdown()
+			throws InterruptedException {
+		// given
+		final EventBus bus = EventBus.builder().withSyncDispatchStrategy()
+				.withMetrics().handlerWatchdog(watchdog)
+				.buildEventBus(new BlockingHandler());
+		Runnable post = new Runnable() {
+			@Override
+			public void run() {
+				bus.post(1);
+			}
+		};
+		bus.post(1);
+		Thread poster = new Thread(post);
+
+		// when
+		poster.start();
+		poster.join();
+
+		// then
+		long deadline = System.currentTimeMillis() + 5000;
+		while (watchdog.getWatchedThreadCount() > 1
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		Assertions.assertThat(watchdog.getWatchedThreadCount()).isEqualTo(1);
+
+		// when
+		watchdog.shutdown();
+		Thread lastPoster = new Thread(post);
+		lastPoster.start();
+		lastPoster.join();
+
+		// then
+		Assertions.assertThat(watchdog.getWatchedThreadCount()).isEqualTo(0);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void shouldRequireMetrics() {
+		// when
+		EventBus.builder().metricsEnabled(false).handlerWatchdog(watchdog)
+				.buildEventBus();
+	}
+
+	private static boolean containsFrame(StackTraceElement[] stackTrace,
+			String className, String methodName) {
+		for (StackTraceElement element : stackTrace) {
+			if (element.getClassName().equals(className)
+					&& element.getMethodName().equals(methodName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,83 @@
+package net.exacode.eventbus.metrics;
+
+import org.fest.assertions.api.Assertions;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	private final LatencyHistogram histogram = new LatencyHistogram();
+
+	@Test
+	public void shouldReportPercentilesWithinRelativeError() {
+		// given
+		for (long value = 1; value <= 100000; ++value) {
+			histogram.record(value * 1000);
+		}
+
+		// when
+		HistogramSnapshot snapshot = histogram.snapshot();
+
+		// then
+		Assertions.assertThat(snapshot.getCount()).isEqualTo(100000);
+		Assertions.assertThat(snapshot.getMax()).isEqualTo(100000000);
+		assertApproximately(snapshot.getValueAtPercentile(50), 50000000);
+		assertApproximately(snapshot.getValueAtPercentile(99), 99000000);
+		assertApproximately((long) snapshot.getMean(), 50000500);
+		Assertions.assertThat(snapshot.getValueAtPercentile(100)).isEqualTo(
+				100000000);
+	}
+
+	@Test
+	public void shouldRecordSmallValuesExactly() {
+		// given
+		histogram.record(0);
+		histogram.record(7);
+		histogram.record(-5);
+
+		// when
+		HistogramSnapshot snapshot = histogram.snapshot();
+
+		// then
+		Assertions.assertThat(snapshot.getCount()).isEqualTo(3);
+		Assertions.assertThat(snapshot.getValueAtPercentile(50)).isEqualTo(0);
+		Assertions.assertThat(snapshot.getValueAtPercentile(100)).isEqualTo(7);
+	}
+
+	@Test
+	public void shouldMapEveryValueToBucketContainingIt() {
+		for (long value = 0; value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+			// when
+			int bucket = LatencyHistogram.bucketOf(value);
+
+			// then
+			Assertions.assertThat(bucket).isLessThan(
+					LatencyHistogram.BUCKET_COUNT);
+			if (bucket < LatencyHistogram.BUCKET_COUNT - 1) {
+				Assertions.assertThat(LatencyHistogram.highestValueOf(bucket))
+						.isGreaterThanOrEqualTo(value);
+				Assertions.assertThat(
+						LatencyHistogram.highestValueOf(bucket - 1))
+						.isLessThan(value);
+			}
+		}
+	}
+
+	@Test
+	public void shouldReportEmptyHistogram() {
+		// when
+		HistogramSnapshot snapshot = histogram.snapshot();
+
+		// then
+		Assertions.assertThat(snapshot.getCount()).isEqualTo(0);
+		Assertions.assertThat(snapshot.getValueAtPercentile(99)).isEqualTo(0);
+		Assertions.assertThat(snapshot.getMean()).isEqualTo(0);
+	}
+
+	private static void assertApproximately(long actual, long expected) {
+		Assertions.assertThat(actual).isGreaterThanOrEqualTo(
+				expected - expected / LatencyHistogram.SUB_BUCKET_COUNT);
+		Assertions.assertThat(actual).isLessThanOrEqualTo(
+				expected + expected / LatencyHistogram.SUB_BUCKET_COUNT);
+	}
+
+}